@@ -1,10 +1,20 @@
 package com.logaggregator;
 
 import com.logaggregator.alert.AlertManager;
+import com.logaggregator.collector.BackfillJob;
+import com.logaggregator.collector.BackfillService;
 import com.logaggregator.collector.LogFileWatcher;
+import com.logaggregator.collector.NdjsonIngester;
+import com.logaggregator.collector.NetworkCollector;
 import com.logaggregator.core.Config;
+import com.logaggregator.core.IndexedFields;
 import com.logaggregator.core.LogBuffer;
+import com.logaggregator.core.LogSink;
+import com.logaggregator.core.OverflowPolicy;
+import com.logaggregator.core.PartitionedLogBuffer;
+import com.logaggregator.core.SpillQueue;
 import com.logaggregator.parser.ParserRegistry;
+import com.logaggregator.parser.PatternLogParser;
 import com.logaggregator.processor.LogProcessor;
 import com.logaggregator.storage.InMemoryStorage;
 import com.logaggregator.storage.LogStorage;
@@ -13,7 +23,14 @@ import com.logaggregator.web.LogWebSocket;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -24,13 +41,17 @@ public class Main {
     private static volatile boolean running = true;
 
     private static LogFileWatcher fileWatcher;
-    private static LogBuffer logBuffer;
+    private static LogSink logBuffer;
+    private static PartitionedLogBuffer partitionedBuffer;
     private static ParserRegistry parserRegistry;
     private static LogStorage logStorage;
     private static LogProcessor logProcessor;
     private static AlertManager alertManager;
     private static WebServer webServer;
     private static ScheduledExecutorService scheduler;
+    private static BackfillService backfillService;
+    private static NetworkCollector networkCollector;
+    private static NdjsonIngester ndjsonIngester;
 
     public static void main(String[] args) {
         logger.info("Starting Log Aggregator System");
@@ -50,6 +71,11 @@ public class Main {
             initializeSystem();
             startSystem();
 
+            // --backfill <file or directory>...: load archives alongside the live pipeline
+            if (args.length > 1 && args[0].equals("--backfill")) {
+                startBackfill(Arrays.stream(args, 1, args.length).map(Paths::get).toList());
+            }
+
             // Start monitoring thread
             startMonitoring();
 
@@ -71,25 +97,55 @@ public class Main {
     private static void printConfiguration() {
         logger.info("Configuration:");
         logger.info("  Watch Directory: {}", Config.get("log.watch.directory"));
-        logger.info("  File Pattern: {}", Config.get("log.file.pattern"));
+        logger.info("  File Pattern: {} (exclude: {})", Config.get("log.file.pattern"), Config.get("log.file.exclude", ""));
+        logger.info("  Tail Mode: {}", Config.get("log.tail.mode", "platform"));
         logger.info("  Buffer Size: {}", Config.get("log.buffer.size"));
         logger.info("  Batch Size: {}", Config.get("log.batch.size"));
+        logger.info("  Adaptive Batching: {} (max batch: {}, target latency: {} ms)",
+                Config.getBoolean("log.batch.adaptive", false),
+                Config.get("log.batch.max.size", Config.get("log.batch.size")),
+                Config.get("log.batch.target.latency.ms", Config.get("log.batch.timeout.ms")));
         logger.info("  Processor Threads: {}", Config.get("log.processor.threads"));
         logger.info("  Storage Capacity: {}", Config.get("log.storage.max_entries"));
         logger.info("  Web Server Port: {}", Config.get("web.server.port"));
     }
 
-    private static void initializeSystem() {
+    private static void initializeSystem() throws IOException {
         logger.info("Initializing system components...");
 
         // Initialize core components
-        logBuffer = new LogBuffer(
-                Config.getInt("log.buffer.size"),
-                Config.getInt("log.batch.size"),
-                Config.getLong("log.batch.timeout.ms")
-        );
+        OverflowPolicy overflowPolicy = OverflowPolicy.valueOf(
+                Config.get("log.buffer.overflow.policy", "drop").trim().toUpperCase());
+        int partitions = Config.getInt("log.buffer.partitions", 1);
+        if (partitions > 1) {
+            // Each partition gets an equal share of the capacity and its own spill directory
+            int partitionCapacity = Math.max(1, Config.getInt("log.buffer.size") / partitions);
+            String spillDir = Config.get("log.spill.directory", "data/spill");
+            partitionedBuffer = new PartitionedLogBuffer(partitions, i -> {
+                try {
+                    return createBuffer(partitionCapacity, overflowPolicy, spillDir + "/p" + i, partitions);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            logBuffer = partitionedBuffer;
+        } else {
+            logBuffer = createBuffer(Config.getInt("log.buffer.size"), overflowPolicy,
+                    Config.get("log.spill.directory", "data/spill"), 1);
+        }
 
-        parserRegistry = new ParserRegistry();
+        IndexedFields.configure(Config.get("log.storage.index.fields", "*"));
+        parserRegistry = new ParserRegistry(
+                Config.getInt("parser.reprobe.interval", 1000),
+                Config.getInt("parser.cache.max.sources", 10_000)
+        );
+        Path patternsFile = Paths.get(Config.get("parser.patterns.file", "config/log-patterns.json"));
+        if (Files.isRegularFile(patternsFile)) {
+            PatternLogParser patternParser = PatternLogParser.load(patternsFile);
+            parserRegistry.registerParser(patternParser);
+            logger.info("✓ Loaded {} log patterns from {}: {}", patternParser.getPatternNames().size(),
+                    patternsFile, patternParser.getPatternNames());
+        }
 
         fileWatcher = new LogFileWatcher(
                 Config.get("log.watch.directory"),
@@ -98,24 +154,58 @@ public class Main {
                 parserRegistry
         );
 
-        // Phase 3: Storage and Processing
-        logStorage = new InMemoryStorage(Config.getInt("log.storage.max_entries"));
-        logProcessor = new LogProcessor(
-                logBuffer,
-                logStorage,
-                Config.getInt("log.processor.threads")
-        );
+        // Off unless configured: the endpoint accepts unauthenticated writes
+        if (Config.getBoolean("ingest.enabled", false)) {
+            ndjsonIngester = new NdjsonIngester(
+                    logBuffer,
+                    Config.getInt("ingest.batch.size", 500),
+                    Config.getInt("ingest.saturation.percent", 90) / 100.0
+            );
+        }
+
+        if (Config.getBoolean("net.enabled", false)) {
+            networkCollector = new NetworkCollector(
+                    Config.get("net.bind.address", "0.0.0.0"),
+                    Config.getInt("net.syslog.udp.port", 5514),
+                    Config.getInt("net.syslog.tcp.port", 5514),
+                    Config.getInt("net.raw.tcp.port", 5170),
+                    logBuffer,
+                    parserRegistry,
+                    Config.getInt("net.max.connections", 10_000),
+                    Config.getInt("net.max.message.bytes", 65_536),
+                    Config.getInt("net.read.buffer.bytes", 256 * 1024)
+            );
+        }
 
         // Phase 4: Alerting and Web Dashboard
         alertManager = new AlertManager();
         webServer = new WebServer();
 
+        // Phase 3: Storage and Processing
+        logStorage = new InMemoryStorage(Config.getInt("log.storage.max_entries"));
+        logProcessor = partitionedBuffer != null
+                ? new LogProcessor(partitionedBuffer, logStorage, alertManager,
+                        LogWebSocket::broadcastLogEntries, Config.getInt("log.processor.threads"))
+                : new LogProcessor((LogBuffer) logBuffer, logStorage, alertManager,
+                        LogWebSocket::broadcastLogEntries, Config.getInt("log.processor.threads"));
+
+        int backfillWorkers = Config.getInt("log.backfill.workers", 0);
+        backfillService = new BackfillService(
+                parserRegistry,
+                logStorage,
+                backfillWorkers > 0 ? backfillWorkers : Runtime.getRuntime().availableProcessors(),
+                Config.getInt("log.backfill.batch.size", 5000),
+                Config.getLong("log.backfill.chunk.bytes", 64L << 20),
+                Config.get("log.backfill.file.glob", "{*.log,*.log.[0-9]*,*.gz,*.json}")
+        );
+
         // Setup alert listeners
-        alertManager.addListener(new LogWebSocket());
+        alertManager.addListener("websocket", new LogWebSocket());
 
         scheduler = Executors.newScheduledThreadPool(4);
 
-        logger.info("✓ Log buffer initialized (capacity: {})", Config.getInt("log.buffer.size"));
+        logger.info("✓ Log buffer initialized (capacity: {}, partitions: {}, overflow: {})",
+                Config.getInt("log.buffer.size"), partitions, overflowPolicy);
         logger.info("✓ Parser registry initialized ({} parsers)", parserRegistry.getParsers().size());
         logger.info("✓ File watcher initialized");
         logger.info("✓ In-memory storage initialized (capacity: {})", Config.getInt("log.storage.max_entries"));
@@ -125,10 +215,36 @@ public class Main {
         logger.info("✓ Scheduler initialized");
     }
 
+    private static LogBuffer createBuffer(int capacity, OverflowPolicy overflowPolicy, String spillDir,
+                                          int shares) throws IOException {
+        boolean adaptive = Config.getBoolean("log.batch.adaptive", false);
+        SpillQueue spillQueue = null;
+        if (overflowPolicy == OverflowPolicy.SPILL) {
+            spillQueue = new SpillQueue(
+                    spillDir,
+                    Config.getLong("log.spill.max.bytes", 1L << 30) / shares,
+                    Config.getLong("log.spill.segment.bytes", 64L << 20)
+            );
+        }
+        return new LogBuffer(
+                capacity,
+                Config.getInt("log.batch.size"),
+                adaptive ? Config.getInt("log.batch.max.size", Config.getInt("log.batch.size"))
+                        : Config.getInt("log.batch.size"),
+                adaptive ? Config.getLong("log.batch.target.latency.ms", Config.getLong("log.batch.timeout.ms"))
+                        : Config.getLong("log.batch.timeout.ms"),
+                overflowPolicy,
+                spillQueue
+        );
+    }
+
     private static void startSystem() throws Exception {
         logger.info("Starting system components...");
 
         fileWatcher.start();
+        if (networkCollector != null) {
+            networkCollector.start();
+        }
         logProcessor.start();
         webServer.start();
 
@@ -142,8 +258,13 @@ public class Main {
             Map<String, Object> stats = new HashMap<>();
             stats.put("totalEntries", storageCount);
             stats.put("bufferSize", bufferSize);
+            if (logBuffer instanceof LogBuffer single) {
+                stats.put("batchSize", single.getCurrentBatchSize());
+            }
+            stats.put("droppedCount", logBuffer.getDroppedCount());
             stats.put("processedCount", processedCount);
             stats.put("connectedClients", LogWebSocket.getConnectedClients());
+            stats.put("droppedWebSocketMessages", LogWebSocket.getDroppedMessages());
             stats.put("alertStats", alertManager.getStats());
 
             LogWebSocket.broadcastStats(stats);
@@ -162,6 +283,19 @@ public class Main {
                 Config.getInt("web.server.port"));
     }
 
+    private static void startBackfill(List<Path> roots) {
+        BackfillJob job = backfillService.submit(roots);
+        scheduler.scheduleAtFixedRate(() -> {
+            if (!job.isDone()) {
+                Map<String, Object> status = job.getStatus();
+                logger.info("Backfill {} - {} of {} tasks, {} entries, {} entries/s, {} MB/s",
+                        job.getId(), status.get("completedTasks"), status.get("tasks"), status.get("entries"),
+                        String.format("%.0f", (Double) status.get("entriesPerSecond")),
+                        String.format("%.1f", (Double) status.get("mbPerSecond")));
+            }
+        }, 5, 5, TimeUnit.SECONDS);
+    }
+
     private static void startMonitoring() {
         // Log system status periodically
         scheduler.scheduleAtFixedRate(() -> {
@@ -195,6 +329,10 @@ public class Main {
         logger.info("Shutting down Log Aggregator...");
         running = false;
 
+        if (backfillService != null) {
+            backfillService.stop();
+        }
+
         if (logProcessor != null) {
             logProcessor.stop();
         }
@@ -203,6 +341,10 @@ public class Main {
             fileWatcher.stop();
         }
 
+        if (networkCollector != null) {
+            networkCollector.stop();
+        }
+
         if (alertManager != null) {
             alertManager.stop();
         }
@@ -215,6 +357,10 @@ public class Main {
             logger.error("Error stopping web server", e);
         }
 
+        if (logBuffer != null) {
+            logBuffer.close();
+        }
+
         if (logStorage != null) {
             logStorage.close();
         }
@@ -237,4 +383,32 @@ public class Main {
     public static LogStorage getLogStorage() {
         return logStorage;
     }
+
+    public static LogSink getLogBuffer() {
+        return logBuffer;
+    }
+
+    public static LogFileWatcher getFileWatcher() {
+        return fileWatcher;
+    }
+
+    public static LogProcessor getLogProcessor() {
+        return logProcessor;
+    }
+
+    public static ParserRegistry getParserRegistry() {
+        return parserRegistry;
+    }
+
+    public static NdjsonIngester getNdjsonIngester() {
+        return ndjsonIngester;
+    }
+
+    public static NetworkCollector getNetworkCollector() {
+        return networkCollector;
+    }
+
+    public static BackfillService getBackfillService() {
+        return backfillService;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,132 @@
+package com.logaggregator.alert;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.function.IntConsumer;
+
+// Case-insensitive multi-literal matcher: one pass over the text reports every literal occurring
+// in it. Literals must already be lower case.
+public class AhoCorasick {
+    private static final int[] NO_OUTPUT = new int[0];
+
+    // Per state: sorted transition chars and their target states
+    private char[][] keys;
+    private int[][] targets;
+    private int[] failure;
+    private int[][] outputs;
+    private int stateCount;
+
+    public AhoCorasick(List<String> literals) {
+        keys = new char[16][];
+        targets = new int[16][];
+        outputs = new int[16][];
+        stateCount = 0;
+        newState();
+
+        for (int id = 0; id < literals.size(); id++) {
+            int state = 0;
+            for (char c : literals.get(id).toCharArray()) {
+                int next = transition(state, c);
+                if (next < 0) {
+                    next = newState();
+                    addTransition(state, c, next);
+                }
+                state = next;
+            }
+            outputs[state] = append(outputs[state], id);
+        }
+        buildFailureLinks();
+    }
+
+    private int newState() {
+        if (stateCount == keys.length) {
+            int size = stateCount * 2;
+            keys = Arrays.copyOf(keys, size);
+            targets = Arrays.copyOf(targets, size);
+            outputs = Arrays.copyOf(outputs, size);
+        }
+        keys[stateCount] = new char[0];
+        targets[stateCount] = new int[0];
+        outputs[stateCount] = NO_OUTPUT;
+        return stateCount++;
+    }
+
+    private void addTransition(int state, char c, int next) {
+        char[] k = keys[state];
+        int insertAt = -(Arrays.binarySearch(k, c) + 1);
+        char[] newKeys = new char[k.length + 1];
+        int[] newTargets = new int[k.length + 1];
+        System.arraycopy(k, 0, newKeys, 0, insertAt);
+        System.arraycopy(targets[state], 0, newTargets, 0, insertAt);
+        newKeys[insertAt] = c;
+        newTargets[insertAt] = next;
+        System.arraycopy(k, insertAt, newKeys, insertAt + 1, k.length - insertAt);
+        System.arraycopy(targets[state], insertAt, newTargets, insertAt + 1, k.length - insertAt);
+        keys[state] = newKeys;
+        targets[state] = newTargets;
+    }
+
+    private int transition(int state, char c) {
+        int index = Arrays.binarySearch(keys[state], c);
+        return index >= 0 ? targets[state][index] : -1;
+    }
+
+    private void buildFailureLinks() {
+        failure = new int[stateCount];
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int child : targets[0]) {
+            failure[child] = 0;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int i = 0; i < keys[state].length; i++) {
+                char c = keys[state][i];
+                int child = targets[state][i];
+                int fallback = failure[state];
+                while (fallback > 0 && transition(fallback, c) < 0) {
+                    fallback = failure[fallback];
+                }
+                int next = transition(fallback, c);
+                failure[child] = next >= 0 && next != child ? next : 0;
+                // Inherit the matches of the longest proper suffix
+                for (int id : outputs[failure[child]]) {
+                    outputs[child] = append(outputs[child], id);
+                }
+                queue.add(child);
+            }
+        }
+    }
+
+    public void search(CharSequence text, IntConsumer onMatch) {
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            int next;
+            while ((next = transition(state, c)) < 0 && state > 0) {
+                state = failure[state];
+            }
+            state = Math.max(next, 0);
+            for (int id : outputs[state]) {
+                onMatch.accept(id);
+            }
+        }
+    }
+
+    public int getStateCount() {
+        return stateCount;
+    }
+
+    private static int[] append(int[] array, int value) {
+        for (int existing : array) {
+            if (existing == value) {
+                return array;
+            }
+        }
+        int[] result = Arrays.copyOf(array, array.length + 1);
+        result[array.length] = value;
+        return result;
+    }
+}
@@ -0,0 +1,149 @@
+package com.logaggregator.alert;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Delivers alerts to one listener on its own thread through a bounded queue, so a slow
+// listener only delays (or drops) its own alerts and never the thread that raised them.
+public class AlertDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(AlertDispatcher.class);
+
+    private final String name;
+    private final AlertListener listener;
+    private final BlockingQueue<Pending> queue;
+    private final DispatchOverflow overflow;
+    private final int maxBatch;
+    private final Thread worker;
+    private volatile boolean running;
+
+    private final AtomicLong enqueuedCount = new AtomicLong(0);
+    private final AtomicLong deliveredCount = new AtomicLong(0);
+    private final AtomicLong droppedCount = new AtomicLong(0);
+    private final AtomicLong failedCount = new AtomicLong(0);
+    private final AtomicLong batchCount = new AtomicLong(0);
+    private final AtomicLong totalLatencyNanos = new AtomicLong(0);
+    private final AtomicLong maxLatencyNanos = new AtomicLong(0);
+    private final AtomicLong totalDeliveryNanos = new AtomicLong(0);
+
+    private record Pending(AlertEvent event, long enqueuedNanos) {}
+
+    public AlertDispatcher(String name, AlertListener listener, int queueCapacity,
+                           DispatchOverflow overflow, int maxBatch) {
+        this.name = name;
+        this.listener = listener;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.overflow = overflow;
+        this.maxBatch = Math.max(1, maxBatch);
+        this.running = true;
+        this.worker = new Thread(this::run, "alert-dispatch-" + name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    public void dispatch(AlertEvent event) {
+        Pending pending = new Pending(event, System.nanoTime());
+        if (!queue.offer(pending)) {
+            if (overflow == DispatchOverflow.DROP_NEWEST) {
+                recordDrop();
+                return;
+            }
+            // DROP_OLDEST: evict from the head until there is room for the new alert
+            while (!queue.offer(pending)) {
+                if (queue.poll() != null) {
+                    recordDrop();
+                }
+            }
+        }
+        enqueuedCount.incrementAndGet();
+    }
+
+    private void recordDrop() {
+        long dropped = droppedCount.incrementAndGet();
+        if (dropped == 1 || dropped % 1000 == 0) {
+            logger.warn("Alert listener '{}' is falling behind, {} alerts dropped so far", name, dropped);
+        }
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(maxBatch);
+        List<AlertEvent> events = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatch - 1);
+                batch.forEach(p -> events.add(p.event()));
+
+                long start = System.nanoTime();
+                try {
+                    listener.onAlerts(events);
+                    deliveredCount.addAndGet(events.size());
+                } catch (Exception e) {
+                    failedCount.addAndGet(events.size());
+                    logger.error("Error notifying alert listener '{}'", name, e);
+                }
+                long end = System.nanoTime();
+
+                batchCount.incrementAndGet();
+                totalDeliveryNanos.addAndGet(end - start);
+                for (Pending p : batch) {
+                    long latency = end - p.enqueuedNanos();
+                    totalLatencyNanos.addAndGet(latency);
+                    maxLatencyNanos.accumulateAndGet(latency, Math::max);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+                events.clear();
+            }
+        }
+    }
+
+    public void stop() {
+        running = false;
+        try {
+            worker.join(2000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (worker.isAlive()) {
+            worker.interrupt();
+        }
+    }
+
+    public String getName() { return name; }
+    public AlertListener getListener() { return listener; }
+
+    public Map<String, Object> getStats() {
+        long delivered = deliveredCount.get() + failedCount.get();
+        long batches = batchCount.get();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("queueSize", queue.size());
+        stats.put("queueCapacity", queue.size() + queue.remainingCapacity());
+        stats.put("overflow", overflow.name());
+        stats.put("enqueued", enqueuedCount.get());
+        stats.put("delivered", deliveredCount.get());
+        stats.put("failed", failedCount.get());
+        stats.put("dropped", droppedCount.get());
+        stats.put("batches", batches);
+        stats.put("avgBatchSize", batches > 0 ? (double) delivered / batches : 0.0);
+        stats.put("avgLatencyMs", delivered > 0 ? totalLatencyNanos.get() / delivered / 1_000_000.0 : 0.0);
+        stats.put("maxLatencyMs", maxLatencyNanos.get() / 1_000_000.0);
+        stats.put("avgDeliveryMs", batches > 0 ? totalDeliveryNanos.get() / batches / 1_000_000.0 : 0.0);
+        return stats;
+    }
+}
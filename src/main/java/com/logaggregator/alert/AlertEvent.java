@@ -8,12 +8,23 @@ public class AlertEvent {
     private final LogEntry triggeringEntry;
     private final LocalDateTime timestamp;
     private final String message;
+    private final String groupKey;
+    private final long occurrences;
+    private final LocalDateTime firstOccurrence;
 
     public AlertEvent(AlertRule rule, LogEntry triggeringEntry, LocalDateTime timestamp, String message) {
+        this(rule, triggeringEntry, timestamp, message, rule.getId(), 1, timestamp);
+    }
+
+    public AlertEvent(AlertRule rule, LogEntry triggeringEntry, LocalDateTime timestamp, String message,
+                      String groupKey, long occurrences, LocalDateTime firstOccurrence) {
         this.rule = rule;
         this.triggeringEntry = triggeringEntry;
         this.timestamp = timestamp;
         this.message = message;
+        this.groupKey = groupKey;
+        this.occurrences = occurrences;
+        this.firstOccurrence = firstOccurrence;
     }
 
     // Getters
@@ -21,10 +32,13 @@ public class AlertEvent {
     public LogEntry getTriggeringEntry() { return triggeringEntry; }
     public LocalDateTime getTimestamp() { return timestamp; }
     public String getMessage() { return message; }
+    public String getGroupKey() { return groupKey; }
+    public long getOccurrences() { return occurrences; }
+    public LocalDateTime getFirstOccurrence() { return firstOccurrence; }
 
     @Override
     public String toString() {
-        return String.format("AlertEvent{rule=%s, time=%s, message='%s'}",
-                rule.getName(), timestamp, message);
+        return String.format("AlertEvent{rule=%s, time=%s, occurrences=%d, message='%s'}",
+                rule.getName(), timestamp, occurrences, message);
     }
 }
\ No newline at end of file
@@ -0,0 +1,158 @@
+package com.logaggregator.alert;
+
+import com.logaggregator.core.LogEntry;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Collapses repeated triggers of the same rule and group key: the first trigger is emitted, further
+// ones inside the suppression window are only counted, and the count is emitted later as a single
+// "N occurrences since" roll-up event.
+public class AlertGrouper {
+    private final List<String> groupKeys;
+    private final long suppressionMillis;
+    private final int maxGroups;
+    private final Map<String, AlertGroup> groups;
+
+    private final AtomicLong emittedCount;
+    private final AtomicLong suppressedCount;
+    private final AtomicLong rollupCount;
+    private final AtomicLong evictedCount;
+
+    private static class AlertGroup {
+        final AlertRule rule;
+        long lastEmittedMillis;
+        long lastTriggeredMillis;
+        long suppressed;
+        long suppressedSinceMillis;
+        LogEntry lastEntry;
+
+        AlertGroup(AlertRule rule) {
+            this.rule = rule;
+        }
+    }
+
+    public AlertGrouper(List<String> groupKeys, long suppressionMillis, int maxGroups) {
+        this.groupKeys = List.copyOf(groupKeys);
+        this.suppressionMillis = suppressionMillis;
+        this.maxGroups = maxGroups;
+        this.groups = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, AlertGroup> eldest) {
+                if (size() > AlertGrouper.this.maxGroups) {
+                    evictedCount.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.emittedCount = new AtomicLong(0);
+        this.suppressedCount = new AtomicLong(0);
+        this.rollupCount = new AtomicLong(0);
+        this.evictedCount = new AtomicLong(0);
+    }
+
+    // Returns the event to deliver, or null when the trigger was folded into an existing group
+    public AlertEvent onTrigger(AlertRule rule, LogEntry entry, long nowMillis) {
+        String key = groupKey(rule, entry);
+        long occurrences;
+        long sinceMillis;
+
+        synchronized (groups) {
+            AlertGroup group = groups.computeIfAbsent(key, k -> new AlertGroup(rule));
+            group.lastTriggeredMillis = nowMillis;
+
+            if (group.lastEmittedMillis > 0 && nowMillis - group.lastEmittedMillis < suppressionMillis) {
+                if (group.suppressed == 0) {
+                    group.suppressedSinceMillis = nowMillis;
+                }
+                group.suppressed++;
+                group.lastEntry = entry;
+                suppressedCount.incrementAndGet();
+                return null;
+            }
+
+            // Window over: this event also reports whatever was held back since the last one
+            occurrences = group.suppressed + 1;
+            sinceMillis = group.suppressed > 0 ? group.suppressedSinceMillis : nowMillis;
+            group.suppressed = 0;
+            group.lastEmittedMillis = nowMillis;
+            group.lastEntry = null;
+        }
+
+        emittedCount.incrementAndGet();
+        return createEvent(rule, entry, key, occurrences, sinceMillis, nowMillis);
+    }
+
+    // Emits pending roll-ups whose window has closed and forgets groups that went quiet
+    public List<AlertEvent> flush(long nowMillis) {
+        List<AlertEvent> rollups = new ArrayList<>();
+        synchronized (groups) {
+            Iterator<Map.Entry<String, AlertGroup>> it = groups.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, AlertGroup> e = it.next();
+                AlertGroup group = e.getValue();
+                if (nowMillis - group.lastEmittedMillis < suppressionMillis) {
+                    continue;
+                }
+                if (group.suppressed > 0) {
+                    rollups.add(createEvent(group.rule, group.lastEntry, e.getKey(), group.suppressed,
+                            group.suppressedSinceMillis, nowMillis));
+                    group.suppressed = 0;
+                    group.lastEntry = null;
+                    group.lastEmittedMillis = nowMillis;
+                } else if (nowMillis - group.lastTriggeredMillis >= suppressionMillis) {
+                    it.remove();
+                }
+            }
+        }
+        rollupCount.addAndGet(rollups.size());
+        emittedCount.addAndGet(rollups.size());
+        return rollups;
+    }
+
+    private String groupKey(AlertRule rule, LogEntry entry) {
+        StringBuilder key = new StringBuilder(rule.getId());
+        for (String field : groupKeys) {
+            key.append('|').append(AlertRule.fieldValue(entry, field));
+        }
+        return key.toString();
+    }
+
+    private AlertEvent createEvent(AlertRule rule, LogEntry entry, String key, long occurrences,
+                                   long sinceMillis, long nowMillis) {
+        String message = rule.getMessage() + " - " + entry.getMessage();
+        if (occurrences > 1) {
+            message = String.format("%s - %d occurrences since %s (last: %s)",
+                    rule.getMessage(), occurrences, toLocal(sinceMillis), entry.getMessage());
+        }
+        return new AlertEvent(rule, entry, toLocal(nowMillis), message, key, occurrences, toLocal(sinceMillis));
+    }
+
+    private static LocalDateTime toLocal(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        synchronized (groups) {
+            stats.put("activeGroups", groups.size());
+        }
+        stats.put("groupKeys", groupKeys);
+        stats.put("suppressionWindowMs", suppressionMillis);
+        stats.put("maxGroups", maxGroups);
+        stats.put("emitted", emittedCount.get());
+        stats.put("suppressed", suppressedCount.get());
+        stats.put("rollups", rollupCount.get());
+        stats.put("evicted", evictedCount.get());
+        return stats;
+    }
+}
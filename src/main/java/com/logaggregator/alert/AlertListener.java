@@ -1,6 +1,13 @@
 package com.logaggregator.alert;
 
+import java.util.List;
+
 @FunctionalInterface
 public interface AlertListener {
     void onAlert(AlertEvent event);
-}
\ No newline at end of file
+
+    // Called from the listener's dispatch thread with everything queued since the last delivery
+    default void onAlerts(List<AlertEvent> events) {
+        events.forEach(this::onAlert);
+    }
+}
@@ -1,10 +1,10 @@
 package com.logaggregator.alert;
 
+import com.logaggregator.core.Config;
 import com.logaggregator.core.LogEntry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
@@ -15,17 +15,50 @@ public class AlertManager {
     private static final Logger logger = LoggerFactory.getLogger(AlertManager.class);
 
     private final List<AlertRule> alertRules;
-    private final List<AlertListener> listeners;
+    private final List<AlertDispatcher> listeners;
     private final ScheduledExecutorService scheduler;
+    private final AlertGrouper alertGrouper;
+    private volatile AlertRuleEngine ruleEngine;
+    // With the event clock, windows advance on log timestamps and the pipeline watermark
+    private final boolean eventClock;
+    private volatile long watermark = Long.MIN_VALUE;
 
     public AlertManager() {
+        this(new AlertGrouper(
+                Arrays.asList(Config.get("alert.group.keys", "source").split("\\s*,\\s*")),
+                Config.getLong("alert.suppression.window.ms", 60_000),
+                Config.getInt("alert.group.max.keys", 10_000)));
+    }
+
+    public AlertManager(AlertGrouper alertGrouper) {
+        this(alertGrouper, useEventClock(Config.get("alert.window.clock", "processing"),
+                Config.getBoolean("log.eventtime.enabled", false)));
+    }
+
+    AlertManager(AlertGrouper alertGrouper, boolean eventClock) {
         this.alertRules = new CopyOnWriteArrayList<>();
+        this.ruleEngine = new AlertRuleEngine(alertRules);
+        this.alertGrouper = alertGrouper;
+        this.eventClock = eventClock;
         this.listeners = new CopyOnWriteArrayList<>();
         this.scheduler = Executors.newSingleThreadScheduledExecutor();
         loadDefaultRules();
         startAlertCleanup();
     }
 
+    // Without event-time processing no watermark is published, so windows would mix log timestamps
+    // with the wall clock: old or skewed logs set off absence rules. Fall back to processing time.
+    static boolean useEventClock(String clock, boolean eventTimeEnabled) {
+        if (!"event".equalsIgnoreCase(clock)) {
+            return false;
+        }
+        if (!eventTimeEnabled) {
+            logger.warn("alert.window.clock=event needs log.eventtime.enabled; using processing time");
+            return false;
+        }
+        return true;
+    }
+
     private void loadDefaultRules() {
         // Add some default alert rules
         addRule(new AlertRule(
@@ -37,13 +70,30 @@ public class AlertManager {
                 "Error pattern detected in logs"
         ));
 
-        addRule(new AlertRule(
+        addRule(new WindowedAlertRule(
                 "high-frequency",
                 "High Frequency Logs",
                 ".*",
                 "message",
                 AlertSeverity.MEDIUM,
-                "High log frequency detected"
+                "High log frequency detected",
+                AlertRuleType.COUNT_WINDOW,
+                60,
+                1000,
+                "source"
+        ));
+
+        addRule(new WindowedAlertRule(
+                "error-burst",
+                "Error Burst",
+                "^(ERROR|FATAL)$",
+                "level",
+                AlertSeverity.HIGH,
+                "More than 500 errors from one source in 60s",
+                AlertRuleType.COUNT_WINDOW,
+                60,
+                500,
+                "source"
         ));
 
         logger.info("Loaded {} default alert rules", alertRules.size());
@@ -51,11 +101,19 @@ public class AlertManager {
 
     public void addRule(AlertRule rule) {
         alertRules.add(rule);
+        rebuildEngine();
         logger.info("Added alert rule: {}", rule.getName());
     }
 
     public void removeRule(String ruleId) {
-        alertRules.removeIf(rule -> rule.getId().equals(ruleId));
+        if (alertRules.removeIf(rule -> rule.getId().equals(ruleId))) {
+            rebuildEngine();
+        }
+    }
+
+    private synchronized void rebuildEngine() {
+        // Rules change rarely; evaluation threads just pick up the new engine on their next batch
+        ruleEngine = new AlertRuleEngine(alertRules);
     }
 
     public List<AlertRule> getRules() {
@@ -63,52 +121,105 @@ public class AlertManager {
     }
 
     public void processLogEntry(LogEntry entry) {
-        for (AlertRule rule : alertRules) {
-            if (rule.matches(entry)) {
-                triggerAlert(rule, entry);
-            }
+        ruleEngine.evaluate(entry, this::onRuleMatched);
+    }
+
+    public void processBatch(List<LogEntry> batch) {
+        ruleEngine.evaluateBatch(batch, this::onRuleMatched);
+    }
+
+    public void onWatermark(long watermark) {
+        if (watermark > this.watermark) {
+            this.watermark = watermark;
+        }
+    }
+
+    private long clockMillis() {
+        return eventClock && watermark != Long.MIN_VALUE ? watermark : System.currentTimeMillis();
+    }
+
+    private void onRuleMatched(AlertRule rule, LogEntry entry) {
+        long now = eventClock ? entry.getEventTimeMillis() : System.currentTimeMillis();
+        if (rule.shouldTrigger(entry, now)) {
+            triggerAlert(rule, entry);
         }
     }
 
     private void triggerAlert(AlertRule rule, LogEntry triggeringEntry) {
         rule.trigger(triggeringEntry);
 
-        AlertEvent event = new AlertEvent(
-                rule,
-                triggeringEntry,
-                LocalDateTime.now(),
-                rule.getMessage() + " - " + triggeringEntry.getMessage()
-        );
+        // Repeats within the suppression window are only counted; they surface later as a roll-up
+        AlertEvent event = alertGrouper.onTrigger(rule, triggeringEntry, System.currentTimeMillis());
+        if (event != null) {
+            publish(event);
+        }
+    }
 
-        // Notify listeners
-        for (AlertListener listener : listeners) {
-            try {
-                listener.onAlert(event);
-            } catch (Exception e) {
-                logger.error("Error notifying alert listener", e);
-            }
+    private void publish(AlertEvent event) {
+        // Only enqueues; each listener is called from its own dispatch thread
+        for (AlertDispatcher dispatcher : listeners) {
+            dispatcher.dispatch(event);
         }
 
-        logger.warn("ALERT TRIGGERED: {} - {}", rule.getName(), event.getMessage());
+        logger.warn("ALERT TRIGGERED: {} - {}", event.getRule().getName(), event.getMessage());
     }
 
     public void addListener(AlertListener listener) {
-        listeners.add(listener);
+        addListener(listener.getClass().getSimpleName() + "-" + listeners.size(), listener);
+    }
+
+    public void addListener(String name, AlertListener listener) {
+        listeners.add(new AlertDispatcher(
+                name,
+                listener,
+                Config.getInt("alert.dispatch.queue.size", 1000),
+                DispatchOverflow.valueOf(Config.get("alert.dispatch.overflow", "drop_oldest").toUpperCase()),
+                Config.getInt("alert.dispatch.batch.size", 100)));
     }
 
     public void removeListener(AlertListener listener) {
-        listeners.remove(listener);
+        for (AlertDispatcher dispatcher : listeners) {
+            if (dispatcher.getListener() == listener) {
+                listeners.remove(dispatcher);
+                dispatcher.stop();
+            }
+        }
     }
 
     private void startAlertCleanup() {
-        // Clean up old alerts periodically (in a real system)
+        // Emit pending roll-ups and expire alert groups that went quiet
         scheduler.scheduleAtFixedRate(() -> {
-            // Could implement alert expiration here
-        }, 1, 1, TimeUnit.HOURS);
+            try {
+                alertGrouper.flush(System.currentTimeMillis()).forEach(this::publish);
+            } catch (Exception e) {
+                logger.error("Error flushing alert groups", e);
+            }
+        }, 1, 1, TimeUnit.SECONDS);
+
+        // Absence rules fire on silence, so they have to be checked on a clock rather than per entry
+        scheduler.scheduleAtFixedRate(this::checkWindowedRules, 1, 1, TimeUnit.SECONDS);
+    }
+
+    void checkWindowedRules() {
+        if (eventClock && watermark == Long.MIN_VALUE) {
+            // No event time has been observed yet; the wall clock isn't comparable with log timestamps
+            return;
+        }
+        long now = clockMillis();
+        try {
+            for (AlertRule rule : alertRules) {
+                if (rule instanceof WindowedAlertRule windowed) {
+                    windowed.checkAbsence(now, this::triggerAlert);
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Error checking windowed alert rules", e);
+        }
     }
 
     public void stop() {
         scheduler.shutdown();
+        listeners.forEach(AlertDispatcher::stop);
         logger.info("Alert manager stopped");
     }
 
@@ -122,6 +233,22 @@ public class AlertManager {
             severityCounts.merge(rule.getSeverity(), rule.getTriggerCount(), Long::sum);
         });
         stats.put("triggersBySeverity", severityCounts);
+        stats.put("engine", ruleEngine.getStats());
+
+        long now = clockMillis();
+        Map<String, Object> windows = new HashMap<>();
+        alertRules.forEach(rule -> {
+            if (rule instanceof WindowedAlertRule windowed) {
+                windows.put(rule.getId(), windowed.getWindowState(now));
+            }
+        });
+        stats.put("windows", windows);
+        stats.put("windowClock", eventClock ? "event" : "processing");
+        stats.put("grouping", alertGrouper.getStats());
+
+        Map<String, Object> listenerStats = new HashMap<>();
+        listeners.forEach(dispatcher -> listenerStats.put(dispatcher.getName(), dispatcher.getStats()));
+        stats.put("listeners", listenerStats);
 
         return stats;
     }
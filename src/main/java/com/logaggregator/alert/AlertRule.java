@@ -35,29 +35,42 @@ public class AlertRule {
     }
 
     public boolean matches(LogEntry entry) {
-        String textToMatch;
+        return matchesText(extractText(entry));
+    }
+
+    public String extractText(LogEntry entry) {
+        return fieldValue(entry, field);
+    }
 
+    static String fieldValue(LogEntry entry, String field) {
         switch (field) {
             case "message":
-                textToMatch = entry.getMessage();
-                break;
+                return entry.getMessage();
             case "source":
-                textToMatch = entry.getSource();
-                break;
+                return entry.getSource();
             case "level":
-                textToMatch = entry.getLevel().name();
-                break;
+                return entry.getLevel().name();
             default:
-                Object fieldValue = entry.getFields().get(field);
-                textToMatch = fieldValue != null ? fieldValue.toString() : "";
-                break;
+                Object fieldValue = entry.getField(field);
+                return fieldValue != null ? fieldValue.toString() : "";
         }
+    }
 
+    public boolean matchesText(String textToMatch) {
         if (textToMatch == null) return false;
 
         return pattern.matcher(textToMatch).find();
     }
 
+    // Called for every matching entry; stateful rule types decide whether this match should alert
+    public boolean shouldTrigger(LogEntry entry, long nowMillis) {
+        return true;
+    }
+
+    public AlertRuleType getType() {
+        return AlertRuleType.MATCH;
+    }
+
     public void trigger(LogEntry entry) {
         this.lastTriggered = LocalDateTime.now();
         this.triggerCount++;
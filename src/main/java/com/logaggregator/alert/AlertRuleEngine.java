@@ -0,0 +1,167 @@
+package com.logaggregator.alert;
+
+import com.logaggregator.core.LogEntry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+// Evaluates all alert rules against an entry with one scan per target field: the literal parts of
+// every rule's regex are compiled into a single Aho-Corasick automaton per field, and the full
+// Pattern only runs for rules whose literals were found.
+public class AlertRuleEngine {
+    private static final Set<String> MATCH_ALL_PATTERNS = Set.of("", ".*", ".*?", "^", "^.*");
+
+    private final AlertRule[] rules;
+    private final boolean[] matchAll;
+    private final List<FieldGroup> groups;
+    private final int prefilteredRules;
+
+    private final AtomicLong entriesEvaluated;
+    private final AtomicLong regexEvaluations;
+    private final AtomicLong ruleMatches;
+
+    private static class FieldGroup {
+        final String field;
+        final AlertRule sample;
+        final int[] alwaysCandidates;
+        final AhoCorasick automaton;
+        final int[][] literalRules;
+
+        FieldGroup(String field, AlertRule sample, int[] alwaysCandidates,
+                   AhoCorasick automaton, int[][] literalRules) {
+            this.field = field;
+            this.sample = sample;
+            this.alwaysCandidates = alwaysCandidates;
+            this.automaton = automaton;
+            this.literalRules = literalRules;
+        }
+    }
+
+    public AlertRuleEngine(List<AlertRule> ruleList) {
+        this.rules = ruleList.toArray(new AlertRule[0]);
+        this.matchAll = new boolean[rules.length];
+        this.groups = new ArrayList<>();
+        this.entriesEvaluated = new AtomicLong(0);
+        this.regexEvaluations = new AtomicLong(0);
+        this.ruleMatches = new AtomicLong(0);
+
+        Map<String, List<Integer>> rulesByField = new LinkedHashMap<>();
+        for (int i = 0; i < rules.length; i++) {
+            rulesByField.computeIfAbsent(rules[i].getField(), f -> new ArrayList<>()).add(i);
+        }
+
+        int prefiltered = 0;
+        for (Map.Entry<String, List<Integer>> group : rulesByField.entrySet()) {
+            List<Integer> always = new ArrayList<>();
+            Map<String, List<Integer>> rulesByLiteral = new LinkedHashMap<>();
+
+            for (int index : group.getValue()) {
+                String pattern = rules[index].getPattern();
+                matchAll[index] = MATCH_ALL_PATTERNS.contains(pattern);
+                Set<String> literals = matchAll[index] ? null : RegexLiterals.extract(pattern);
+                if (literals == null) {
+                    always.add(index);
+                } else {
+                    prefiltered++;
+                    for (String literal : literals) {
+                        rulesByLiteral.computeIfAbsent(literal, l -> new ArrayList<>()).add(index);
+                    }
+                }
+            }
+
+            List<String> literals = new ArrayList<>(rulesByLiteral.keySet());
+            int[][] literalRules = new int[literals.size()][];
+            for (int i = 0; i < literals.size(); i++) {
+                literalRules[i] = rulesByLiteral.get(literals.get(i)).stream().mapToInt(Integer::intValue).toArray();
+            }
+            groups.add(new FieldGroup(
+                    group.getKey(),
+                    rules[group.getValue().get(0)],
+                    always.stream().mapToInt(Integer::intValue).toArray(),
+                    literals.isEmpty() ? null : new AhoCorasick(literals),
+                    literalRules
+            ));
+        }
+        this.prefilteredRules = prefiltered;
+    }
+
+    public void evaluate(LogEntry entry, BiConsumer<AlertRule, LogEntry> onMatch) {
+        evaluateBatch(List.of(entry), onMatch);
+    }
+
+    public void evaluateBatch(List<LogEntry> batch, BiConsumer<AlertRule, LogEntry> onMatch) {
+        if (rules.length == 0) {
+            return;
+        }
+
+        boolean[] candidates = new boolean[rules.length];
+        String[] texts = new String[rules.length];
+        long regexRuns = 0;
+        long matches = 0;
+
+        for (LogEntry entry : batch) {
+            Arrays.fill(candidates, false);
+
+            for (FieldGroup group : groups) {
+                String text = group.sample.extractText(entry);
+                if (text == null) {
+                    continue;
+                }
+                for (int index : group.alwaysCandidates) {
+                    candidates[index] = true;
+                    texts[index] = text;
+                }
+                if (group.automaton != null) {
+                    group.automaton.search(text, literal -> {
+                        for (int index : group.literalRules[literal]) {
+                            candidates[index] = true;
+                            texts[index] = text;
+                        }
+                    });
+                }
+            }
+
+            // Rule order is preserved so triggers fire exactly as a sequential scan would
+            for (int i = 0; i < rules.length; i++) {
+                if (!candidates[i]) {
+                    continue;
+                }
+                boolean matched;
+                if (matchAll[i]) {
+                    matched = true;
+                } else {
+                    regexRuns++;
+                    matched = rules[i].matchesText(texts[i]);
+                }
+                if (matched) {
+                    matches++;
+                    onMatch.accept(rules[i], entry);
+                }
+            }
+        }
+
+        entriesEvaluated.addAndGet(batch.size());
+        regexEvaluations.addAndGet(regexRuns);
+        ruleMatches.addAndGet(matches);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        long entries = entriesEvaluated.get();
+        stats.put("rules", rules.length);
+        stats.put("prefilteredRules", prefilteredRules);
+        stats.put("fieldGroups", groups.size());
+        stats.put("entriesEvaluated", entries);
+        stats.put("regexEvaluations", regexEvaluations.get());
+        stats.put("ruleMatches", ruleMatches.get());
+        stats.put("regexPerEntry", entries > 0 ? (double) regexEvaluations.get() / entries : 0.0);
+        return stats;
+    }
+}
@@ -0,0 +1,5 @@
+package com.logaggregator.alert;
+
+public enum AlertRuleType {
+    MATCH, COUNT_WINDOW, RATE_CHANGE, ABSENCE
+}
@@ -0,0 +1,6 @@
+package com.logaggregator.alert;
+
+// What a listener's dispatch queue does when it is full. Neither option blocks the caller.
+public enum DispatchOverflow {
+    DROP_NEWEST, DROP_OLDEST
+}
@@ -0,0 +1,285 @@
+package com.logaggregator.alert;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+// Extracts literal strings a regex cannot match without: if extract() returns a set, every match
+// of the regex contains at least one of its (lower-cased) strings. Returns null when no such set
+// can be derived, in which case the regex has to be evaluated on every input.
+public final class RegexLiterals {
+    private static final int MAX_EXACT_SET = 16;
+
+    private final String regex;
+    private int pos;
+
+    private RegexLiterals(String regex) {
+        this.regex = regex;
+    }
+
+    public static Set<String> extract(String regex) {
+        try {
+            RegexLiterals parser = new RegexLiterals(regex);
+            Info info = parser.parseAlternation();
+            if (parser.pos != regex.length()) {
+                return null;
+            }
+            return info.best();
+        } catch (UnsupportedOperationException | IndexOutOfBoundsException e) {
+            // Syntax we don't model (inline flags, back-references, ...): no prefilter
+            return null;
+        }
+    }
+
+    // exact: the complete set of strings the node can match (null if unbounded)
+    // required: strings of which at least one appears in any match (null if unconstrained)
+    private record Info(Set<String> exact, Set<String> required) {
+        static final Info ANY = new Info(null, null);
+        static final Info EMPTY = new Info(Set.of(""), null);
+
+        Set<String> best() {
+            Set<String> fromExact = usable(exact) ? exact : null;
+            return better(fromExact, required);
+        }
+    }
+
+    private Info parseAlternation() {
+        List<Info> branches = new ArrayList<>();
+        branches.add(parseSequence());
+        while (pos < regex.length() && regex.charAt(pos) == '|') {
+            pos++;
+            branches.add(parseSequence());
+        }
+        if (branches.size() == 1) {
+            return branches.get(0);
+        }
+
+        Set<String> exact = new LinkedHashSet<>();
+        Set<String> required = new LinkedHashSet<>();
+        for (Info branch : branches) {
+            if (exact != null && branch.exact() != null) {
+                exact.addAll(branch.exact());
+            } else {
+                exact = null;
+            }
+            Set<String> best = branch.best();
+            if (required != null && best != null) {
+                required.addAll(best);
+            } else {
+                required = null;
+            }
+        }
+        if (exact != null && exact.size() > MAX_EXACT_SET) {
+            exact = null;
+        }
+        return new Info(exact, required);
+    }
+
+    private Info parseSequence() {
+        Set<String> current = Set.of("");
+        Set<String> best = null;
+        while (pos < regex.length() && regex.charAt(pos) != '|' && regex.charAt(pos) != ')') {
+            Info atom = parseQuantified();
+            if (current != null && atom.exact() != null && current.size() * atom.exact().size() <= MAX_EXACT_SET) {
+                current = concat(current, atom.exact());
+                continue;
+            }
+            // The run of literals ends here; remember it as a candidate requirement
+            if (current != null && usable(current)) {
+                best = better(best, current);
+            }
+            best = better(best, atom.best());
+            current = atom.exact() != null && atom.exact().size() <= MAX_EXACT_SET ? atom.exact() : null;
+        }
+        if (best == null) {
+            return new Info(current, null);
+        }
+        if (current != null && usable(current)) {
+            best = better(best, current);
+        }
+        // A sequence with a gap has no finite exact set, only a requirement
+        return new Info(null, best);
+    }
+
+    private Info parseQuantified() {
+        Info atom = parseAtom();
+        if (pos >= regex.length()) {
+            return atom;
+        }
+
+        int min;
+        char c = regex.charAt(pos);
+        if (c == '*' || c == '?') {
+            pos++;
+            min = 0;
+        } else if (c == '+') {
+            pos++;
+            min = 1;
+        } else if (c == '{') {
+            int close = regex.indexOf('}', pos);
+            String bounds = regex.substring(pos + 1, close);
+            String lower = bounds.contains(",") ? bounds.substring(0, bounds.indexOf(',')) : bounds;
+            min = Integer.parseInt(lower.trim());
+            pos = close + 1;
+        } else {
+            return atom;
+        }
+        // Lazy and possessive variants match the same strings
+        if (pos < regex.length() && (regex.charAt(pos) == '?' || regex.charAt(pos) == '+')) {
+            pos++;
+        }
+
+        if (min == 0) {
+            return Info.ANY;
+        }
+        return new Info(null, atom.best());
+    }
+
+    private Info parseAtom() {
+        char c = regex.charAt(pos);
+        switch (c) {
+            case '(':
+                return parseGroup();
+            case '[':
+                skipCharClass();
+                return Info.ANY;
+            case '.':
+                pos++;
+                return Info.ANY;
+            case '^':
+            case '$':
+                pos++;
+                return Info.EMPTY;
+            case '\\':
+                return parseEscape();
+            case '*':
+            case '+':
+            case '?':
+            case '{':
+                throw new UnsupportedOperationException("dangling quantifier");
+            default:
+                pos++;
+                return literal(String.valueOf(c));
+        }
+    }
+
+    private Info parseGroup() {
+        pos++; // '('
+        boolean zeroWidth = false;
+        if (regex.startsWith("?", pos)) {
+            if (regex.startsWith("?:", pos) || regex.startsWith("?>", pos)) {
+                pos += 2;
+            } else if (regex.startsWith("?=", pos) || regex.startsWith("?!", pos)) {
+                pos += 2;
+                zeroWidth = true;
+            } else if (regex.startsWith("?<=", pos) || regex.startsWith("?<!", pos)) {
+                pos += 3;
+                zeroWidth = true;
+            } else if (regex.startsWith("?<", pos)) {
+                pos = regex.indexOf('>', pos) + 1; // named group
+            } else {
+                // Inline flags such as (?i) or (?x) change how the rest is read
+                throw new UnsupportedOperationException("inline flags");
+            }
+        }
+        Info inner = parseAlternation();
+        if (pos >= regex.length() || regex.charAt(pos) != ')') {
+            throw new UnsupportedOperationException("unbalanced group");
+        }
+        pos++;
+        return zeroWidth ? Info.EMPTY : inner;
+    }
+
+    private Info parseEscape() {
+        char c = regex.charAt(pos + 1);
+        pos += 2;
+        switch (c) {
+            case 't': return literal("\t");
+            case 'n': return literal("\n");
+            case 'r': return literal("\r");
+            case 'f': return literal("\f");
+            case 'a': return literal("\u0007");
+            case 'e': return literal("\u001B");
+            case 'b': case 'B': case 'A': case 'z': case 'Z': case 'G':
+                return Info.EMPTY;
+            case 'd': case 'D': case 's': case 'S': case 'w': case 'W':
+            case 'h': case 'H': case 'v': case 'V': case 'R': case 'X':
+                return Info.ANY;
+            case 'Q': {
+                int end = regex.indexOf("\\E", pos);
+                String quoted = end < 0 ? regex.substring(pos) : regex.substring(pos, end);
+                pos = end < 0 ? regex.length() : end + 2;
+                return quoted.isEmpty() ? Info.EMPTY : literal(quoted);
+            }
+            default:
+                if (Character.isLetterOrDigit(c)) {
+                    // Back-references, property classes, hex and unicode escapes, ...
+                    throw new UnsupportedOperationException("escape \\" + c);
+                }
+                return literal(String.valueOf(c));
+        }
+    }
+
+    private void skipCharClass() {
+        int depth = 0;
+        while (true) {
+            char c = regex.charAt(pos);
+            if (c == '\\') {
+                pos += 2;
+                continue;
+            }
+            if (c == '[') {
+                depth++;
+                pos++;
+                // A ']' right after '[' or '[^' is a literal member of the class
+                if (regex.charAt(pos) == '^') {
+                    pos++;
+                }
+                if (regex.charAt(pos) == ']') {
+                    pos++;
+                }
+                continue;
+            }
+            pos++;
+            if (c == ']' && --depth == 0) {
+                return;
+            }
+        }
+    }
+
+    private static Info literal(String text) {
+        // Lower-case char by char, exactly as AhoCorasick folds the scanned text
+        char[] chars = text.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(chars[i]);
+        }
+        return new Info(Set.of(new String(chars)), null);
+    }
+
+    private static Set<String> concat(Set<String> left, Set<String> right) {
+        Set<String> result = new LinkedHashSet<>();
+        for (String l : left) {
+            for (String r : right) {
+                result.add(l + r);
+            }
+        }
+        return result;
+    }
+
+    private static boolean usable(Set<String> literals) {
+        return literals != null && !literals.isEmpty() && !literals.contains("");
+    }
+
+    private static Set<String> better(Set<String> a, Set<String> b) {
+        if (!usable(a)) return usable(b) ? b : null;
+        if (!usable(b)) return a;
+        // Longer shortest literal = more selective prefilter
+        return minLength(b) > minLength(a) ? b : a;
+    }
+
+    private static int minLength(Set<String> literals) {
+        return literals.isEmpty() ? 0 : Collections.min(literals.stream().map(String::length).toList());
+    }
+}
@@ -0,0 +1,61 @@
+package com.logaggregator.alert;
+
+// Ring of time buckets covering two consecutive windows: the current window and the one before it.
+// Adding and reading are O(1) amortized: advancing the clock clears only the buckets that expired.
+public class WindowCounter {
+    private final long bucketMillis;
+    private final int bucketsPerWindow;
+    private final long[] counts;
+    private long currentBucket;
+    private long currentTotal;
+    private long previousTotal;
+
+    public WindowCounter(long windowMillis, int bucketsPerWindow) {
+        this.bucketsPerWindow = bucketsPerWindow;
+        this.bucketMillis = Math.max(1, windowMillis / bucketsPerWindow);
+        this.counts = new long[bucketsPerWindow * 2];
+        this.currentBucket = -1;
+    }
+
+    public void add(long nowMillis, long amount) {
+        advance(nowMillis);
+        counts[slot(currentBucket)] += amount;
+        currentTotal += amount;
+    }
+
+    public long currentWindow(long nowMillis) {
+        advance(nowMillis);
+        return currentTotal;
+    }
+
+    public long previousWindow(long nowMillis) {
+        advance(nowMillis);
+        return previousTotal;
+    }
+
+    private void advance(long nowMillis) {
+        long bucket = nowMillis / bucketMillis;
+        if (currentBucket < 0 || bucket - currentBucket >= counts.length) {
+            // First use, or idle for longer than both windows: everything has expired
+            java.util.Arrays.fill(counts, 0);
+            currentTotal = 0;
+            previousTotal = 0;
+            currentBucket = bucket;
+            return;
+        }
+        while (currentBucket < bucket) {
+            currentBucket++;
+            // The oldest bucket of the current window slides into the previous window,
+            // and the oldest bucket of the previous window falls off the ring
+            int leavingCurrent = slot(currentBucket - bucketsPerWindow);
+            int leavingPrevious = slot(currentBucket);
+            currentTotal -= counts[leavingCurrent];
+            previousTotal += counts[leavingCurrent] - counts[leavingPrevious];
+            counts[leavingPrevious] = 0;
+        }
+    }
+
+    private int slot(long bucket) {
+        return (int) Math.floorMod(bucket, (long) counts.length);
+    }
+}
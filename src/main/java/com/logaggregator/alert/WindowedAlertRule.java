@@ -0,0 +1,167 @@
+package com.logaggregator.alert;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.logaggregator.core.LogEntry;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+public class WindowedAlertRule extends AlertRule {
+    private static final int BUCKETS_PER_WINDOW = 12;
+    private static final int DEFAULT_MAX_KEYS = 10_000;
+
+    private final AlertRuleType type;
+    private final long windowMillis;
+    private final double threshold;
+    private final long minCount;
+    private final String groupBy;
+    private final int maxKeys;
+    private final Map<String, WindowState> states;
+
+    private static class WindowState {
+        final WindowCounter counter;
+        long lastSeenMillis;
+        LogEntry lastEntry;
+        boolean firing;
+
+        WindowState(long windowMillis) {
+            this.counter = new WindowCounter(windowMillis, BUCKETS_PER_WINDOW);
+        }
+    }
+
+    @JsonCreator
+    public WindowedAlertRule(
+            @JsonProperty("id") String id,
+            @JsonProperty("name") String name,
+            @JsonProperty("pattern") String pattern,
+            @JsonProperty("field") String field,
+            @JsonProperty("severity") AlertSeverity severity,
+            @JsonProperty("message") String message,
+            @JsonProperty("type") AlertRuleType type,
+            @JsonProperty("windowSeconds") long windowSeconds,
+            @JsonProperty("threshold") double threshold,
+            @JsonProperty("minCount") long minCount,
+            @JsonProperty("groupBy") String groupBy,
+            @JsonProperty("maxKeys") int maxKeys) {
+        super(id, name, pattern, field, severity, message);
+        if (type == null || type == AlertRuleType.MATCH) {
+            throw new IllegalArgumentException("Windowed rule needs COUNT_WINDOW, RATE_CHANGE or ABSENCE type");
+        }
+        this.type = type;
+        this.windowMillis = Math.max(1, windowSeconds) * 1000;
+        this.threshold = threshold;
+        this.minCount = minCount;
+        this.groupBy = groupBy;
+        this.maxKeys = maxKeys > 0 ? maxKeys : DEFAULT_MAX_KEYS;
+        // Access-ordered so the least recently seen group key is evicted once maxKeys is reached
+        this.states = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, WindowState> eldest) {
+                return size() > WindowedAlertRule.this.maxKeys;
+            }
+        };
+    }
+
+    public WindowedAlertRule(String id, String name, String pattern, String field, AlertSeverity severity,
+                             String message, AlertRuleType type, long windowSeconds, double threshold,
+                             String groupBy) {
+        this(id, name, pattern, field, severity, message, type, windowSeconds, threshold, 0, groupBy, 0);
+    }
+
+    @Override
+    public boolean shouldTrigger(LogEntry entry, long nowMillis) {
+        String key = groupKey(entry);
+        synchronized (states) {
+            WindowState state = states.computeIfAbsent(key, k -> new WindowState(windowMillis));
+            state.counter.add(nowMillis, 1);
+            state.lastSeenMillis = nowMillis;
+            state.lastEntry = entry;
+
+            boolean breached;
+            switch (type) {
+                case COUNT_WINDOW:
+                    breached = state.counter.currentWindow(nowMillis) > threshold;
+                    break;
+                case RATE_CHANGE:
+                    long current = state.counter.currentWindow(nowMillis);
+                    long previous = state.counter.previousWindow(nowMillis);
+                    breached = current >= minCount && current > threshold * Math.max(previous, 1);
+                    break;
+                default:
+                    // ABSENCE: seeing the log clears the condition; checkAbsence() raises it
+                    state.firing = false;
+                    return false;
+            }
+
+            // Alert once when the condition starts, not on every entry while it holds
+            boolean trigger = breached && !state.firing;
+            state.firing = breached;
+            return trigger;
+        }
+    }
+
+    public void checkAbsence(long nowMillis, BiConsumer<AlertRule, LogEntry> onAbsent) {
+        if (type != AlertRuleType.ABSENCE) {
+            return;
+        }
+        List<LogEntry> absent = new ArrayList<>();
+        synchronized (states) {
+            for (WindowState state : states.values()) {
+                if (!state.firing && nowMillis - state.lastSeenMillis > windowMillis) {
+                    state.firing = true;
+                    absent.add(state.lastEntry);
+                }
+            }
+        }
+        absent.forEach(entry -> onAbsent.accept(this, entry));
+    }
+
+    private String groupKey(LogEntry entry) {
+        if (groupBy == null || groupBy.isEmpty()) {
+            return "*";
+        }
+        String value = fieldValue(entry, groupBy);
+        return value != null ? value : "";
+    }
+
+    public Map<String, Object> getWindowState(long nowMillis) {
+        Map<String, Object> state = new HashMap<>();
+        state.put("type", type.name());
+        state.put("windowSeconds", windowMillis / 1000);
+        state.put("threshold", threshold);
+        state.put("groupBy", groupBy);
+
+        Map<String, Long> counts = new LinkedHashMap<>();
+        int firing = 0;
+        int keys;
+        synchronized (states) {
+            keys = states.size();
+            List<Map.Entry<String, Long>> perKey = new ArrayList<>();
+            for (Map.Entry<String, WindowState> e : states.entrySet()) {
+                perKey.add(Map.entry(e.getKey(), e.getValue().counter.currentWindow(nowMillis)));
+                if (e.getValue().firing) {
+                    firing++;
+                }
+            }
+            perKey.sort(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()));
+            perKey.stream().limit(10).forEach(e -> counts.put(e.getKey(), e.getValue()));
+        }
+        state.put("trackedKeys", keys);
+        state.put("maxKeys", maxKeys);
+        state.put("firingKeys", firing);
+        state.put("topCounts", counts);
+        return state;
+    }
+
+    @Override
+    public AlertRuleType getType() { return type; }
+    public long getWindowSeconds() { return windowMillis / 1000; }
+    public double getThreshold() { return threshold; }
+    public String getGroupBy() { return groupBy; }
+}
@@ -0,0 +1,79 @@
+package com.logaggregator.collector;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Progress of one backfill run; updated by the workers, read by the API and CLI
+public class BackfillJob {
+    public enum State { SCANNING, RUNNING, COMPLETED, FAILED }
+
+    private final String id;
+    private final List<Path> roots;
+    private final long startedMillis;
+    private volatile State state;
+    private volatile long finishedMillis;
+    private volatile String error;
+
+    final AtomicInteger files = new AtomicInteger();
+    final AtomicInteger tasks = new AtomicInteger();
+    final AtomicInteger completedTasks = new AtomicInteger();
+    final AtomicLong totalBytes = new AtomicLong();
+    final AtomicLong processedBytes = new AtomicLong();
+    final AtomicLong lines = new AtomicLong();
+    final AtomicLong entries = new AtomicLong();
+    final AtomicLong unparsed = new AtomicLong();
+    final AtomicInteger failedTasks = new AtomicInteger();
+
+    BackfillJob(String id, List<Path> roots) {
+        this.id = id;
+        this.roots = List.copyOf(roots);
+        this.startedMillis = System.currentTimeMillis();
+        this.state = State.SCANNING;
+    }
+
+    void running() {
+        state = State.RUNNING;
+    }
+
+    void finished(String error) {
+        this.error = error;
+        this.finishedMillis = System.currentTimeMillis();
+        this.state = error == null ? State.COMPLETED : State.FAILED;
+    }
+
+    public String getId() { return id; }
+    public State getState() { return state; }
+    public boolean isDone() { return state == State.COMPLETED || state == State.FAILED; }
+
+    public Map<String, Object> getStatus() {
+        long end = finishedMillis > 0 ? finishedMillis : System.currentTimeMillis();
+        double seconds = Math.max(0.001, (end - startedMillis) / 1000.0);
+        long total = totalBytes.get();
+
+        Map<String, Object> status = new HashMap<>();
+        status.put("id", id);
+        status.put("state", state.name());
+        status.put("roots", roots.stream().map(Path::toString).toList());
+        status.put("files", files.get());
+        status.put("tasks", tasks.get());
+        status.put("completedTasks", completedTasks.get());
+        status.put("failedTasks", failedTasks.get());
+        status.put("totalBytes", total);
+        status.put("processedBytes", processedBytes.get());
+        status.put("progress", total > 0 ? (double) processedBytes.get() / total : 0.0);
+        status.put("lines", lines.get());
+        status.put("entries", entries.get());
+        status.put("unparsedLines", unparsed.get());
+        status.put("elapsedSeconds", seconds);
+        status.put("entriesPerSecond", entries.get() / seconds);
+        status.put("mbPerSecond", processedBytes.get() / 1048576.0 / seconds);
+        if (error != null) {
+            status.put("error", error);
+        }
+        return status;
+    }
+}
@@ -0,0 +1,224 @@
+package com.logaggregator.collector;
+
+import com.logaggregator.core.LogEntry;
+import com.logaggregator.parser.ParserRegistry;
+import com.logaggregator.storage.LogStorage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+// Loads historical log files straight into storage, bypassing the live buffer and pipeline.
+// Plain files are split into byte ranges that are read in parallel; gzip files can't be split,
+// so each one is stream-decompressed by its own task. Entries are stored in large batches.
+public class BackfillService {
+    private static final Logger logger = LoggerFactory.getLogger(BackfillService.class);
+    private static final int READ_BUFFER_BYTES = 1024 * 1024;
+    private static final int MAX_LINE_BYTES = 4 * 1024 * 1024;
+
+    private final ParserRegistry parserRegistry;
+    private final LogStorage storage;
+    private final int batchSize;
+    private final long chunkBytes;
+    private final PathMatcher fileMatcher;
+    private final ExecutorService workers;
+    private final Map<String, BackfillJob> jobs;
+    private final AtomicInteger jobCounter;
+
+    public BackfillService(ParserRegistry parserRegistry, LogStorage storage, int workerCount, int batchSize,
+                           long chunkBytes, String fileGlob) {
+        this.parserRegistry = parserRegistry;
+        this.storage = storage;
+        this.batchSize = batchSize;
+        this.chunkBytes = chunkBytes;
+        this.fileMatcher = FileSystems.getDefault().getPathMatcher("glob:" + fileGlob);
+        AtomicInteger workerIndex = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "backfill-worker-" + workerIndex.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.jobs = new ConcurrentHashMap<>();
+        this.jobCounter = new AtomicInteger();
+    }
+
+    public BackfillJob submit(List<Path> roots) {
+        BackfillJob job = new BackfillJob("backfill-" + jobCounter.incrementAndGet(), roots);
+        jobs.put(job.getId(), job);
+        // The coordinator only scans and waits, so it gets its own thread rather than a worker slot
+        Thread coordinator = new Thread(() -> run(job, roots), job.getId());
+        coordinator.setDaemon(true);
+        coordinator.start();
+        return job;
+    }
+
+    private void run(BackfillJob job, List<Path> roots) {
+        try {
+            List<CompletableFuture<Void>> tasks = new ArrayList<>();
+            for (Path file : findFiles(roots)) {
+                job.files.incrementAndGet();
+                long size = Files.size(file);
+                job.totalBytes.addAndGet(size);
+                String name = file.getFileName().toString();
+                if (name.endsWith(".gz")) {
+                    tasks.add(schedule(job, () -> readGzip(job, file)));
+                } else {
+                    // Ranges only need to be roughly equal: each one finds its own line boundaries
+                    for (long start = 0; start < size; start += chunkBytes) {
+                        long from = start;
+                        long to = Math.min(size, start + chunkBytes);
+                        tasks.add(schedule(job, () -> readRange(job, file, from, to)));
+                    }
+                }
+            }
+            job.tasks.set(tasks.size());
+            job.running();
+            logger.info("Backfill {} started: {} files, {} MB in {} tasks", job.getId(), job.files.get(),
+                    job.totalBytes.get() / 1048576, tasks.size());
+
+            CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0])).join();
+            job.finished(job.failedTasks.get() > 0 ? job.failedTasks.get() + " tasks failed" : null);
+        } catch (Exception e) {
+            logger.error("Backfill {} failed", job.getId(), e);
+            job.finished(e.getMessage());
+        }
+        logger.info("Backfill {} finished: {}", job.getId(), job.getStatus());
+    }
+
+    private List<Path> findFiles(List<Path> roots) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (Path root : roots) {
+            if (Files.isRegularFile(root)) {
+                files.add(root);
+                continue;
+            }
+            try (Stream<Path> walk = Files.walk(root)) {
+                walk.filter(Files::isRegularFile)
+                        .filter(path -> fileMatcher.matches(path.getFileName()))
+                        .forEach(files::add);
+            }
+        }
+        return files;
+    }
+
+    private interface Task {
+        void run() throws IOException;
+    }
+
+    private CompletableFuture<Void> schedule(BackfillJob job, Task task) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                job.failedTasks.incrementAndGet();
+                logger.error("Backfill {} task failed", job.getId(), e);
+            } finally {
+                job.completedTasks.incrementAndGet();
+            }
+        }, workers);
+    }
+
+    private void readRange(BackfillJob job, Path file, long start, long end) throws IOException {
+        Batcher batcher = new Batcher(job, sourceName(file), formatHint(file));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            new LineFramer(READ_BUFFER_BYTES, MAX_LINE_BYTES).readRange(channel, start, end, batcher::accept);
+        }
+        batcher.flush();
+        job.processedBytes.addAndGet(end - start);
+    }
+
+    private void readGzip(BackfillJob job, Path file) throws IOException {
+        Batcher batcher = new Batcher(job, sourceName(file), formatHint(file));
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file), 64 * 1024), StandardCharsets.UTF_8),
+                READ_BUFFER_BYTES)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                batcher.accept(line);
+            }
+        }
+        batcher.flush();
+        job.processedBytes.addAndGet(Files.size(file));
+    }
+
+    // Archived app.log.gz and rotated app.log.3 belong to the same source as the live app.log
+    private static String sourceName(Path file) {
+        String name = file.getFileName().toString();
+        if (name.endsWith(".gz")) {
+            name = name.substring(0, name.length() - 3);
+        }
+        return name.replaceFirst("\\.\\d+$", "");
+    }
+
+    private static String formatHint(Path file) {
+        return sourceName(file).endsWith(".json") ? "json" : "text";
+    }
+
+    private class Batcher {
+        private final BackfillJob job;
+        private final String source;
+        private final String formatHint;
+        private List<LogEntry> batch;
+
+        Batcher(BackfillJob job, String source, String formatHint) {
+            this.job = job;
+            this.source = source;
+            this.formatHint = formatHint;
+            this.batch = new ArrayList<>(batchSize);
+        }
+
+        void accept(String line) {
+            if (line.isBlank()) {
+                return;
+            }
+            job.lines.incrementAndGet();
+            parserRegistry.parseLine(source, line, formatHint).ifPresentOrElse(entry -> {
+                batch.add(entry);
+                if (batch.size() >= batchSize) {
+                    flush();
+                }
+            }, job.unparsed::incrementAndGet);
+        }
+
+        void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            storage.storeBatch(batch);
+            job.entries.addAndGet(batch.size());
+            batch = new ArrayList<>(batchSize);
+        }
+    }
+
+    public BackfillJob getJob(String id) {
+        return jobs.get(id);
+    }
+
+    public Collection<BackfillJob> getJobs() {
+        return jobs.values();
+    }
+
+    public void stop() {
+        workers.shutdownNow();
+    }
+}
@@ -0,0 +1,65 @@
+package com.logaggregator.collector;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Fixed-size buffers handed out and returned instead of allocated per use. Up to maxPooled idle
+// buffers are kept; beyond that returned buffers are left to the GC.
+public class ByteBufferPool {
+    private final int bufferBytes;
+    private final int maxPooled;
+    private final ConcurrentLinkedQueue<ByteBuffer> free;
+    private final AtomicInteger freeCount;
+    private final AtomicLong allocated;
+    private final AtomicLong reused;
+
+    public ByteBufferPool(int bufferBytes, int maxPooled) {
+        this.bufferBytes = bufferBytes;
+        this.maxPooled = maxPooled;
+        this.free = new ConcurrentLinkedQueue<>();
+        this.freeCount = new AtomicInteger(0);
+        this.allocated = new AtomicLong(0);
+        this.reused = new AtomicLong(0);
+    }
+
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = free.poll();
+        if (buffer != null) {
+            freeCount.decrementAndGet();
+            reused.incrementAndGet();
+            return buffer;
+        }
+        allocated.incrementAndGet();
+        return ByteBuffer.allocate(bufferBytes);
+    }
+
+    public void release(ByteBuffer buffer) {
+        if (buffer == null || buffer.capacity() != bufferBytes) {
+            return;
+        }
+        buffer.clear();
+        if (freeCount.incrementAndGet() <= maxPooled) {
+            free.offer(buffer);
+        } else {
+            freeCount.decrementAndGet();
+        }
+    }
+
+    public int getBufferBytes() {
+        return bufferBytes;
+    }
+
+    public int getFreeCount() {
+        return freeCount.get();
+    }
+
+    public long getAllocated() {
+        return allocated.get();
+    }
+
+    public long getReused() {
+        return reused.get();
+    }
+}
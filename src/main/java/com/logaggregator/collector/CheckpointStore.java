@@ -0,0 +1,126 @@
+package com.logaggregator.collector;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Read offsets per file identity (inode), so a restart resumes where it stopped and a renamed
+// file is recognised as the same file. Updates are kept in memory and written out in one
+// fsynced, atomically renamed file by flush(), which the watcher calls periodically.
+public class CheckpointStore {
+    private static final Logger logger = LoggerFactory.getLogger(CheckpointStore.class);
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private final Path file;
+    private final long retentionMillis;
+    private final Map<String, Checkpoint> checkpoints;
+    private final AtomicBoolean dirty;
+    private final AtomicLong flushCount;
+    private volatile long lastFlushMillis;
+
+    public record Checkpoint(String path, long offset, long updatedMillis) {}
+
+    public CheckpointStore(String file, long retentionMillis) {
+        this.file = Paths.get(file);
+        this.retentionMillis = retentionMillis;
+        this.checkpoints = new ConcurrentHashMap<>();
+        this.dirty = new AtomicBoolean(false);
+        this.flushCount = new AtomicLong(0);
+        load();
+    }
+
+    private void load() {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try {
+            Map<String, Checkpoint> stored = mapper.readValue(file.toFile(),
+                    new TypeReference<Map<String, Checkpoint>>() {});
+            checkpoints.putAll(stored);
+            logger.info("Loaded {} file checkpoints from {}", stored.size(), file);
+        } catch (IOException e) {
+            // A corrupt checkpoint only costs re-reading files, don't refuse to start over it
+            logger.warn("Ignoring unreadable checkpoint file {}", file, e);
+        }
+    }
+
+    // Identity that survives renames; falls back to the path where the platform has no file key
+    public static String fileKey(Path path) throws IOException {
+        try {
+            Object key = Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+            return key != null ? key.toString() : path.toAbsolutePath().toString();
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    public long getOffset(String fileKey) {
+        Checkpoint checkpoint = checkpoints.get(fileKey);
+        return checkpoint != null ? checkpoint.offset() : 0;
+    }
+
+    public void update(String fileKey, Path path, long offset) {
+        Checkpoint previous = checkpoints.put(fileKey,
+                new Checkpoint(path.toString(), offset, System.currentTimeMillis()));
+        if (previous == null || previous.offset() != offset) {
+            dirty.set(true);
+        }
+    }
+
+    public synchronized void flush() throws IOException {
+        long now = System.currentTimeMillis();
+        // Inode numbers get reused, so forget files nobody has read from in a long time
+        if (checkpoints.values().removeIf(c -> now - c.updatedMillis() > retentionMillis)) {
+            dirty.set(true);
+        }
+        if (!dirty.getAndSet(false)) {
+            return;
+        }
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            byte[] data = mapper.writeValueAsBytes(new HashMap<>(checkpoints));
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.wrap(data);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            flushCount.incrementAndGet();
+            lastFlushMillis = now;
+        } catch (IOException e) {
+            dirty.set(true);
+            throw e;
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("file", file.toString());
+        stats.put("checkpoints", checkpoints.size());
+        stats.put("flushes", flushCount.get());
+        stats.put("lastFlushMillis", lastFlushMillis);
+        stats.put("dirty", dirty.get());
+        return stats;
+    }
+}
@@ -0,0 +1,104 @@
+package com.logaggregator.collector;
+
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.List;
+
+// Include and exclude globs, compiled once into PathMatchers. A glob without a '/' is matched
+// against the file name ("*.log"); one with a '/' is matched against the path relative to the
+// watched root ("payments/**/*.log"). Excludes also apply to directories, which prunes the subtree.
+public class FileSelector {
+    private final List<String> includes;
+    private final List<String> excludes;
+    private final List<Rule> includeRules;
+    private final List<Rule> excludeRules;
+
+    private record Rule(PathMatcher matcher, boolean relative) {
+        boolean matches(Path relativePath) {
+            Path target = relative ? relativePath : relativePath.getFileName();
+            return target != null && matcher.matches(target);
+        }
+    }
+
+    public FileSelector(List<String> includes, List<String> excludes) {
+        this.includes = List.copyOf(includes);
+        this.excludes = List.copyOf(excludes);
+        this.includeRules = compile(this.includes);
+        this.excludeRules = compile(this.excludes);
+    }
+
+    // Comma-separated globs, as they appear in config.properties
+    public static FileSelector parse(String includes, String excludes) {
+        return new FileSelector(split(includes), split(excludes));
+    }
+
+    static List<String> split(String globs) {
+        List<String> result = new ArrayList<>();
+        if (globs == null) {
+            return result;
+        }
+        // Commas inside {a,b} alternatives belong to the glob, not the list
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < globs.length(); i++) {
+            char c = globs.charAt(i);
+            if (c == '{') {
+                depth++;
+            } else if (c == '}') {
+                depth = Math.max(0, depth - 1);
+            } else if (c == ',' && depth == 0) {
+                addTrimmed(result, globs.substring(start, i));
+                start = i + 1;
+            }
+        }
+        addTrimmed(result, globs.substring(start));
+        return result;
+    }
+
+    private static void addTrimmed(List<String> result, String glob) {
+        if (!glob.isBlank()) {
+            result.add(glob.trim());
+        }
+    }
+
+    private static List<Rule> compile(List<String> globs) {
+        FileSystem fs = FileSystems.getDefault();
+        List<Rule> rules = new ArrayList<>(globs.size());
+        for (String glob : globs) {
+            rules.add(new Rule(fs.getPathMatcher("glob:" + glob), glob.indexOf('/') >= 0));
+        }
+        return rules;
+    }
+
+    public boolean matchesFile(Path relativePath) {
+        if (includeRules.isEmpty() || isExcluded(relativePath)) {
+            return false;
+        }
+        for (Rule rule : includeRules) {
+            if (rule.matches(relativePath)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isExcluded(Path relativePath) {
+        for (Rule rule : excludeRules) {
+            if (rule.matches(relativePath)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public List<String> getIncludes() {
+        return includes;
+    }
+
+    public List<String> getExcludes() {
+        return excludes;
+    }
+}
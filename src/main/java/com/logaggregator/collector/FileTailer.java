@@ -0,0 +1,283 @@
+package com.logaggregator.collector;
+
+import com.logaggregator.core.LogSink;
+import com.logaggregator.parser.ParserRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+public class FileTailer implements Runnable {
+    private static final Logger logger = LoggerFactory.getLogger(FileTailer.class);
+    private static final long DROP_WARN_INTERVAL = 10_000;
+
+    private final Path filePath;
+    private final String fileName;
+    private final String formatHint;
+    private final LogSink buffer;
+    private final ParserRegistry parserRegistry;
+    private final CheckpointStore checkpoints;
+    private final Set<String> claimedKeys;
+    private final long minPollMs;
+    private final long maxPollMs;
+    private final long rotateGraceMs;
+    private final long closeInactiveMs;
+    private final Semaphore wakeup;
+    private final LineFramer framer;
+    private final MultilineAssembler assembler;
+    private volatile boolean active;
+
+    // The open file is followed by identity, not by name: after a rename it is still drained.
+    // lastPosition is how far the file has been read, including a partial line held by the framer
+    private FileChannel channel;
+    private String fileKey;
+    // Without checkpoints this is the only record of where an idle-released file was left
+    private String releasedKey;
+    private long lastPosition;
+    private long lastReadMillis;
+
+    public FileTailer(Path filePath, String formatHint, LogSink buffer, ParserRegistry parserRegistry,
+                      CheckpointStore checkpoints, Set<String> claimedKeys, long minPollMs, long maxPollMs,
+                      long rotateGraceMs, long closeInactiveMs, int readBufferBytes, int maxLineBytes,
+                      MultilineAssembler assembler) {
+        this.filePath = filePath;
+        this.fileName = filePath.getFileName().toString();
+        this.formatHint = formatHint;
+        this.buffer = buffer;
+        this.parserRegistry = parserRegistry;
+        this.checkpoints = checkpoints;
+        this.claimedKeys = claimedKeys;
+        this.minPollMs = minPollMs;
+        this.maxPollMs = Math.max(minPollMs, maxPollMs);
+        this.rotateGraceMs = rotateGraceMs;
+        this.closeInactiveMs = closeInactiveMs;
+        this.wakeup = new Semaphore(0);
+        this.framer = new LineFramer(readBufferBytes, maxLineBytes);
+        this.assembler = assembler;
+        this.active = true;
+        this.lastPosition = 0;
+    }
+
+    // Called from the watch loop on ENTRY_MODIFY; coalesces bursts of events into one wakeup
+    public void signal() {
+        if (wakeup.availablePermits() == 0) {
+            wakeup.release();
+        }
+    }
+
+    public void stop() {
+        active = false;
+        signal();
+    }
+
+    public Path getFilePath() {
+        return filePath;
+    }
+
+    @Override
+    public void run() {
+        logger.info("Started tailing file: {}", filePath);
+
+        long pollMs = minPollMs;
+        long missingSince = 0;
+        try {
+            while (active) {
+                try {
+                    if (readNewContent()) {
+                        pollMs = minPollMs;
+                    } else {
+                        // Idle file: back off so thousands of quiet files cost almost nothing
+                        pollMs = Math.min(pollMs * 2, maxPollMs);
+                    }
+                } catch (IOException e) {
+                    logger.warn("Error reading file {}, retrying...", filePath, e);
+                    pollMs = maxPollMs;
+                }
+                long waitMs = pollMs;
+                if (assembler != null) {
+                    long now = System.currentTimeMillis();
+                    if (assembler.flushIfIdle(now, this::processLine)) {
+                        checkpoint();
+                    }
+                    // Don't let the idle back-off hold a finished stack trace for seconds
+                    waitMs = Math.min(pollMs, Math.max(1, assembler.millisUntilFlush(now)));
+                }
+
+                // Gone and not recreated by a rotation within the grace period: stop
+                if (channel == null && !Files.exists(filePath)) {
+                    long now = System.currentTimeMillis();
+                    if (missingSince == 0) {
+                        missingSince = now;
+                    } else if (now - missingSince >= rotateGraceMs) {
+                        break;
+                    }
+                } else {
+                    missingSince = 0;
+                }
+
+                if (wakeup.tryAcquire(waitMs, TimeUnit.MILLISECONDS)) {
+                    wakeup.drainPermits();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            release();
+        }
+
+        logger.info("Stopped tailing file: {}", filePath);
+    }
+
+    private boolean readNewContent() throws IOException {
+        if (channel == null && !open()) {
+            return false;
+        }
+
+        boolean read = drain();
+        String currentKey = CheckpointStore.fileKey(filePath);
+        if (!fileKey.equals(currentKey)) {
+            // Rotated: the old file was renamed or deleted. Catch writes that raced with the rename,
+            // then move on to whatever now lives under the name
+            read |= drain();
+            framer.flush(this::assembleLine);
+            flushEvent();
+            checkpoint();
+            logger.info("Detected rotation of {}, finished previous file at offset {}", filePath, lastPosition);
+            release();
+            if (currentKey != null && open()) {
+                read |= drain();
+            }
+        } else if (!read && System.currentTimeMillis() - lastReadMillis >= closeInactiveMs) {
+            // Don't hold descriptors for files that stopped changing; the checkpoint has the offset
+            release();
+        }
+        return read;
+    }
+
+    private boolean open() throws IOException {
+        String key = CheckpointStore.fileKey(filePath);
+        // Another tailer may still be draining this file under its old name
+        if (key == null || !claimedKeys.add(key)) {
+            return false;
+        }
+        try {
+            channel = FileChannel.open(filePath, StandardOpenOption.READ);
+        } catch (IOException e) {
+            claimedKeys.remove(key);
+            throw e;
+        }
+        fileKey = key;
+        lastPosition = startOffset(key);
+        framer.reset();
+        lastReadMillis = System.currentTimeMillis();
+        return true;
+    }
+
+    private long startOffset(String key) {
+        if (checkpoints != null) {
+            return checkpoints.getOffset(key);
+        }
+        // Reopening the file released for inactivity: carry on from the release, not from the start
+        return key.equals(releasedKey) ? lastPosition : 0;
+    }
+
+    private void release() {
+        if (channel == null) {
+            return;
+        }
+        // A partial line or held event is re-read from the checkpoint when the file is opened again
+        lastPosition = resumeOffset();
+        framer.reset();
+        if (assembler != null) {
+            assembler.reset();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.debug("Error closing {}", filePath, e);
+        }
+        channel = null;
+        claimedKeys.remove(fileKey);
+        releasedKey = fileKey;
+        fileKey = null;
+    }
+
+    private boolean drain() throws IOException {
+        long fileSize = channel.size();
+
+        if (fileSize < lastPosition) {
+            // Same file but shorter: truncated in place (copytruncate rotation)
+            logger.info("File {} was truncated, reading from the start", filePath);
+            flushEvent();
+            lastPosition = 0;
+            framer.reset();
+        }
+
+        if (fileSize <= lastPosition) {
+            return false;
+        }
+
+        lastPosition += framer.readFrom(channel, lastPosition, this::assembleLine);
+
+        lastReadMillis = System.currentTimeMillis();
+        checkpoint();
+        return true;
+    }
+
+    private void checkpoint() {
+        if (checkpoints != null && fileKey != null) {
+            checkpoints.update(fileKey, filePath, resumeOffset());
+        }
+    }
+
+    // Resume at the start of the unfinished line or held multiline event, never in the middle of one
+    private long resumeOffset() {
+        long offset = lastPosition - framer.pendingBytes();
+        if (assembler != null && assembler.hasPending()) {
+            offset = Math.min(offset, assembler.pendingOffset());
+        }
+        return offset;
+    }
+
+    private void assembleLine(String line) {
+        if (assembler == null) {
+            processLine(line);
+        } else if (!line.isBlank()) {
+            assembler.accept(line, framer.lineOffset(), System.currentTimeMillis(), this::processLine);
+        }
+    }
+
+    private void flushEvent() {
+        if (assembler != null) {
+            assembler.flush(this::processLine);
+        }
+    }
+
+    private void processLine(String line) {
+        if (line.isBlank()) {
+            return;
+        }
+        parserRegistry.parseLine(fileName, line, formatHint)
+                .ifPresent(entry -> {
+                    if (!buffer.offer(entry) && buffer.getDroppedCount() % DROP_WARN_INTERVAL == 1) {
+                        // Rate-limited: per-entry warnings only add load during a burst
+                        logger.warn("Log buffer overflow, {} entries dropped so far", buffer.getDroppedCount());
+                    }
+                });
+    }
+
+    public long getOversizedLines() {
+        return framer.getOversizedLines();
+    }
+
+    public long getMergedLines() {
+        return assembler != null ? assembler.getMergedLines() : 0;
+    }
+}
@@ -0,0 +1,151 @@
+package com.logaggregator.collector;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+// Splits a byte stream into lines without decoding anything up front. Bytes are read into one
+// reused buffer and scanned for '\n'; only complete lines are decoded (as UTF-8, straight from
+// the buffer), and an unfinished line is carried over to the next read.
+public class LineFramer {
+    private final int maxLineBytes;
+    private ByteBuffer buffer;
+    // Bytes in [0, scanFrom) are already known to contain no newline
+    private int scanFrom;
+    // File offset of buffer[0]
+    private long bufferBase;
+    // Only lines starting in [rangeStart, rangeEnd) are handed over
+    private long rangeStart;
+    private long rangeEnd = Long.MAX_VALUE;
+    private boolean rangeDone;
+    private long lineOffset;
+    private long oversizedLines;
+
+    public LineFramer(int initialBytes, int maxLineBytes) {
+        this.maxLineBytes = Math.max(initialBytes, maxLineBytes);
+        this.buffer = ByteBuffer.allocate(initialBytes);
+    }
+
+    // Reads from position to EOF, handing each complete line over. Returns the number of bytes read.
+    public long readFrom(FileChannel channel, long position, Consumer<String> lines) throws IOException {
+        return read(channel, position, lines);
+    }
+
+    // Hands over the lines that start in [start, end), including the last one even if it runs past
+    // end. The line running into start belongs to the previous range, so adjacent ranges split a
+    // file exactly once without having to agree on boundaries beforehand.
+    public void readRange(FileChannel channel, long start, long end, Consumer<String> lines) throws IOException {
+        reset();
+        rangeStart = start;
+        rangeEnd = end;
+        try {
+            // Starting one byte early: if that byte is '\n' the first line begins exactly at start
+            read(channel, start > 0 ? start - 1 : 0, lines);
+            if (!rangeDone) {
+                deliver(buffer.array(), 0, buffer.position(), bufferBase, lines);
+            }
+        } finally {
+            rangeStart = 0;
+            rangeEnd = Long.MAX_VALUE;
+            rangeDone = false;
+            reset();
+        }
+    }
+
+    private long read(FileChannel channel, long position, Consumer<String> lines) throws IOException {
+        bufferBase = position - buffer.position();
+        long total = 0;
+        while (!rangeDone) {
+            if (!buffer.hasRemaining()) {
+                makeRoom(lines);
+            }
+            int read = channel.read(buffer, position + total);
+            if (read <= 0) {
+                break;
+            }
+            total += read;
+            emitLines(lines);
+        }
+        return total;
+    }
+
+    private void emitLines(Consumer<String> lines) {
+        byte[] bytes = buffer.array();
+        int end = buffer.position();
+        int lineStart = 0;
+        for (int i = scanFrom; i < end && !rangeDone; i++) {
+            if (bytes[i] == '\n') {
+                deliver(bytes, lineStart, i, bufferBase + lineStart, lines);
+                lineStart = i + 1;
+            }
+        }
+        // Carry the unfinished line to the front of the buffer
+        int remaining = end - lineStart;
+        if (lineStart > 0) {
+            System.arraycopy(bytes, lineStart, bytes, 0, remaining);
+            buffer.position(remaining);
+            bufferBase += lineStart;
+        }
+        scanFrom = remaining;
+    }
+
+    private void makeRoom(Consumer<String> lines) {
+        if (buffer.capacity() < maxLineBytes) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.min(buffer.capacity() * 2, maxLineBytes));
+            buffer.flip();
+            larger.put(buffer);
+            buffer = larger;
+        } else {
+            // A single line longer than the limit: pass it on in pieces rather than buffer without bound
+            oversizedLines++;
+            deliver(buffer.array(), 0, buffer.position(), bufferBase, lines);
+            bufferBase += buffer.position();
+            buffer.clear();
+            scanFrom = 0;
+        }
+    }
+
+    private void deliver(byte[] bytes, int start, int end, long fileOffset, Consumer<String> lines) {
+        if (fileOffset < rangeStart) {
+            return;
+        }
+        if (fileOffset >= rangeEnd) {
+            rangeDone = true;
+            return;
+        }
+        if (end > start && bytes[end - 1] == '\r') {
+            end--;
+        }
+        if (end > start) {
+            lineOffset = fileOffset;
+            lines.accept(new String(bytes, start, end - start, StandardCharsets.UTF_8));
+        }
+    }
+
+    // Hands over a final line that has no trailing newline, e.g. when a rotated file is finished
+    public void flush(Consumer<String> lines) {
+        deliver(buffer.array(), 0, buffer.position(), bufferBase, lines);
+        reset();
+    }
+
+    public void reset() {
+        buffer.clear();
+        scanFrom = 0;
+    }
+
+    // Bytes read but not yet part of a complete line; the resume offset excludes them
+    public int pendingBytes() {
+        return buffer.position();
+    }
+
+    // File offset of the line being handed over, valid inside the line consumer
+    public long lineOffset() {
+        return lineOffset;
+    }
+
+    public long getOversizedLines() {
+        return oversizedLines;
+    }
+}
@@ -1,59 +1,160 @@
 package com.logaggregator.collector;
 
-import com.logaggregator.core.LogBuffer;
+import com.logaggregator.core.Config;
+import com.logaggregator.core.LogSink;
 import com.logaggregator.parser.ParserRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.nio.channels.FileChannel;
 import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
 
 import static java.nio.file.StandardWatchEventKinds.*;
 
 public class LogFileWatcher {
     private static final Logger logger = LoggerFactory.getLogger(LogFileWatcher.class);
 
-    private final Path watchDirectory;
-    private final String filePattern;
-    private final LogBuffer buffer;
+    private final List<Path> roots;
+    private final FileSelector selector;
+    private final boolean recursive;
+    private final LogSink buffer;
     private final ParserRegistry parserRegistry;
     private final AtomicBoolean running;
+    private final TailMode tailMode;
     private final ExecutorService executor;
+    private final Map<Path, FileTailer> tailers;
+    private final long minPollMs;
+    private final long maxPollMs;
+    private final long rotateGraceMs;
+    private final long closeInactiveMs;
+    private final int readBufferBytes;
+    private final int maxLineBytes;
+    private final CheckpointStore checkpoints;
+    private final Set<String> claimedKeys;
+    private final ScheduledExecutorService checkpointScheduler;
+    private final boolean multiline;
+    private final Pattern multilineStart;
+    private final Pattern multilineContinuation;
+    private final int multilineMaxLines;
+    private final int multilineMaxBytes;
+    private final long multilineFlushMs;
+    private final Map<WatchKey, WatchedDir> watchedDirs;
+    private final ForkJoinPool scanPool;
+    private final AtomicLong scannedDirs;
+    private volatile WatchService watchService;
+    private volatile long lastScanMillis;
 
     public LogFileWatcher(String watchDir, String filePattern,
-                          LogBuffer buffer, ParserRegistry parserRegistry) {
-        this.watchDirectory = Paths.get(watchDir);
-        this.filePattern = filePattern;
+                          LogSink buffer, ParserRegistry parserRegistry) {
+        this(watchDir, filePattern, buffer, parserRegistry,
+                TailMode.valueOf(Config.get("log.tail.mode", "platform").trim().toUpperCase()));
+    }
+
+    public LogFileWatcher(String watchDir, String filePattern,
+                          LogSink buffer, ParserRegistry parserRegistry, TailMode tailMode) {
+        this(watchDir, filePattern, buffer, parserRegistry, tailMode,
+                Config.getBoolean("log.checkpoint.enabled", true)
+                        ? new CheckpointStore(Config.get("log.checkpoint.file", "data/checkpoints.json"),
+                                TimeUnit.HOURS.toMillis(Config.getLong("log.checkpoint.retention.hours", 168)))
+                        : null);
+    }
+
+    public LogFileWatcher(String watchDir, String filePattern, LogSink buffer, ParserRegistry parserRegistry,
+                          TailMode tailMode, CheckpointStore checkpoints) {
+        this(FileSelector.split(watchDir).stream().map(Paths::get).toList(),
+                FileSelector.parse(filePattern, Config.get("log.file.exclude", "")),
+                Config.getBoolean("log.watch.recursive", true),
+                buffer, parserRegistry, tailMode, checkpoints);
+    }
+
+    public LogFileWatcher(List<Path> roots, FileSelector selector, boolean recursive, LogSink buffer,
+                          ParserRegistry parserRegistry, TailMode tailMode, CheckpointStore checkpoints) {
+        this.roots = List.copyOf(roots);
+        this.selector = selector;
+        this.recursive = recursive;
         this.buffer = buffer;
         this.parserRegistry = parserRegistry;
         this.running = new AtomicBoolean(false);
-        this.executor = Executors.newCachedThreadPool();
+        this.tailMode = tailMode;
+        this.executor = tailMode == TailMode.VIRTUAL
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newCachedThreadPool();
+        this.tailers = new ConcurrentHashMap<>();
+        this.watchedDirs = new ConcurrentHashMap<>();
+        this.minPollMs = Config.getLong("log.tail.poll.min.ms", 100);
+        this.maxPollMs = Config.getLong("log.tail.poll.max.ms", 5000);
+        this.rotateGraceMs = Config.getLong("log.tail.rotate.grace.ms", 10_000);
+        this.closeInactiveMs = Config.getLong("log.tail.close.inactive.ms", 300_000);
+        this.readBufferBytes = Config.getInt("log.tail.read.buffer.bytes", 64 * 1024);
+        this.maxLineBytes = Config.getInt("log.tail.max.line.bytes", 1024 * 1024);
+        this.checkpoints = checkpoints;
+        this.claimedKeys = ConcurrentHashMap.newKeySet();
+        this.checkpointScheduler = checkpoints != null ? Executors.newSingleThreadScheduledExecutor() : null;
+        // Compiled once and shared; each text file gets its own assembler
+        this.multiline = Config.getBoolean("log.multiline.enabled", true);
+        this.multilineStart = compileOptional(Config.get("log.multiline.start", ""));
+        this.multilineContinuation = compileOptional(Config.get("log.multiline.continuation",
+                MultilineAssembler.DEFAULT_CONTINUATION));
+        this.multilineMaxLines = Config.getInt("log.multiline.max.lines", 500);
+        this.multilineMaxBytes = Config.getInt("log.multiline.max.bytes", 1024 * 1024);
+        this.multilineFlushMs = Config.getLong("log.multiline.flush.ms", 1000);
+        int scanThreads = Config.getInt("log.watch.scan.threads", 0);
+        this.scanPool = new ForkJoinPool(scanThreads > 0 ? scanThreads : Runtime.getRuntime().availableProcessors());
+        this.scannedDirs = new AtomicLong(0);
     }
 
     public void start() throws IOException {
-        if (!Files.exists(watchDirectory)) {
-            Files.createDirectories(watchDirectory);
-            logger.info("Created watch directory: {}", watchDirectory.toAbsolutePath());
+        for (Path root : roots) {
+            if (!Files.exists(root)) {
+                Files.createDirectories(root);
+                logger.info("Created watch directory: {}", root.toAbsolutePath());
+            }
         }
 
         running.set(true);
+        watchService = FileSystems.getDefault().newWatchService();
+
+        // Directories are registered before they are listed, so a file created mid-scan is
+        // either listed or reported by the watch service (or both; tailing is idempotent)
+        long scanStart = System.currentTimeMillis();
+        List<ForkJoinTask<Void>> scans = new ArrayList<>();
+        for (Path root : roots) {
+            scans.add(scanPool.submit(new DirectoryScan(root, root)));
+        }
+        scans.forEach(ForkJoinTask::join);
+        lastScanMillis = System.currentTimeMillis() - scanStart;
 
-        // Start watching for new files
-        executor.submit(this::watchForNewFiles);
+        executor.submit(this::watchForChanges);
 
-        // Start watching existing files
-        watchExistingFiles();
+        if (checkpointScheduler != null) {
+            long interval = Config.getLong("log.checkpoint.flush.ms", 1000);
+            checkpointScheduler.scheduleWithFixedDelay(this::flushCheckpoints, interval, interval, TimeUnit.MILLISECONDS);
+        }
 
-        logger.info("Log file watcher started for directory: {}", watchDirectory);
+        logger.info("Log file watcher started for {} ({} tailing, {} directories, {} files, scanned in {} ms)",
+                roots, tailMode.name().toLowerCase(), watchedDirs.size(), tailers.size(), lastScanMillis);
     }
 
     public void stop() {
         running.set(false);
+        scanPool.shutdownNow();
+        tailers.values().forEach(FileTailer::stop);
         executor.shutdown();
         try {
             if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
@@ -63,125 +164,150 @@ public class LogFileWatcher {
             executor.shutdownNow();
             Thread.currentThread().interrupt();
         }
+        if (checkpointScheduler != null) {
+            checkpointScheduler.shutdown();
+            // Tailers have stopped, so this records exactly where each file was left
+            flushCheckpoints();
+        }
         logger.info("Log file watcher stopped");
     }
 
-    private void watchForNewFiles() {
-        try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
-            watchDirectory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+    private void flushCheckpoints() {
+        try {
+            checkpoints.flush();
+        } catch (IOException e) {
+            logger.error("Error writing file checkpoints", e);
+        }
+    }
 
+    private void watchForChanges() {
+        try (WatchService service = watchService) {
             while (running.get()) {
-                WatchKey key = watchService.poll(1, TimeUnit.SECONDS);
+                WatchKey key = service.poll(1, TimeUnit.SECONDS);
                 if (key == null) continue;
 
-                for (WatchEvent<?> event : key.pollEvents()) {
-                    if (event.kind() == OVERFLOW) continue;
+                WatchedDir watched = watchedDirs.get(key);
+                if (watched == null) {
+                    key.cancel();
+                    continue;
+                }
 
-                    Path fileName = (Path) event.context();
-                    if (matchesFilePattern(fileName.toString())) {
-                        Path filePath = watchDirectory.resolve(fileName);
-                        if (Files.isRegularFile(filePath)) {
-                            startTailingFile(filePath);
-                        }
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == OVERFLOW) {
+                        // Events were lost: let every tailer check its file and look for missed creates
+                        tailers.values().forEach(FileTailer::signal);
+                        rescan();
+                        continue;
                     }
+                    onEvent(watched, watched.dir().resolve((Path) event.context()), event.kind());
                 }
 
                 if (!key.reset()) {
-                    break;
+                    // The directory itself is gone
+                    watchedDirs.remove(key);
                 }
             }
-        } catch (IOException | InterruptedException e) {
+        } catch (IOException | InterruptedException | ClosedWatchServiceException e) {
             if (running.get()) {
                 logger.error("Error in file watcher", e);
             }
         }
     }
 
-    private void watchExistingFiles() throws IOException {
-        try (DirectoryStream<Path> stream = Files.newDirectoryStream(watchDirectory, fileName -> matchesFilePattern(String.valueOf(fileName)))) {
-            for (Path filePath : stream) {
-                if (Files.isRegularFile(filePath)) {
-                    startTailingFile(filePath);
-                }
+    private void onEvent(WatchedDir watched, Path path, WatchEvent.Kind<?> kind) {
+        FileTailer tailer = tailers.get(path);
+        if (tailer != null) {
+            tailer.signal();
+            return;
+        }
+        Path relative = watched.root().relativize(path);
+        if (kind == ENTRY_CREATE && recursive && Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+            // New subdirectory: register and scan it off the watch thread, it may arrive already populated
+            if (!selector.isExcluded(relative)) {
+                scanPool.execute(new DirectoryScan(watched.root(), path));
             }
+        } else if (selector.matchesFile(relative) && Files.isRegularFile(path)) {
+            startTailingFile(path);
         }
     }
 
-    private void startTailingFile(Path filePath) {
-        executor.submit(() -> {
-            try {
-                tailFile(filePath);
-            } catch (IOException e) {
-                logger.error("Error tailing file: {}", filePath, e);
-            } catch (InterruptedException e) {
-                throw new RuntimeException(e);
-            }
-        });
+    private void rescan() {
+        for (Path root : roots) {
+            scanPool.execute(new DirectoryScan(root, root));
+        }
     }
 
-    private void tailFile(Path filePath) throws IOException, InterruptedException {
-        logger.info("Started tailing file: {}", filePath);
+    private record WatchedDir(Path root, Path dir) {}
 
-        long lastPosition = 0;
-        String fileName = filePath.getFileName().toString();
-        String formatHint = detectFormatHint(fileName);
+    // One task per directory: files are handled inline, subdirectories are forked so large trees
+    // are listed by several threads at once
+    private class DirectoryScan extends RecursiveAction {
+        private final Path root;
+        private final Path dir;
 
-        while (running.get() && Files.exists(filePath)) {
-            try {
-                long fileSize = Files.size(filePath);
-
-                if (fileSize < lastPosition) {
-                    // File was truncated/rotated
-                    lastPosition = 0;
-                }
+        DirectoryScan(Path root, Path dir) {
+            this.root = root;
+            this.dir = dir;
+        }
 
-                if (fileSize > lastPosition) {
-                    try (var fileChannel = FileChannel.open(filePath, StandardOpenOption.READ)) {
-                        var buffer = java.nio.ByteBuffer.allocate(8192);
-                        fileChannel.position(lastPosition);
-
-                        int bytesRead;
-                        while ((bytesRead = fileChannel.read(buffer)) > 0) {
-                            buffer.flip();
-                            String newContent = new String(buffer.array(), 0, bytesRead);
-                            processNewContent(fileName, newContent, formatHint);
-                            buffer.clear();
+        @Override
+        protected void compute() {
+            if (!running.get()) {
+                return;
+            }
+            List<DirectoryScan> children = new ArrayList<>();
+            try {
+                watchedDirs.put(dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY), new WatchedDir(root, dir));
+                scannedDirs.incrementAndGet();
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+                    for (Path path : stream) {
+                        Path relative = root.relativize(path);
+                        if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                            if (recursive && !selector.isExcluded(relative)) {
+                                children.add(new DirectoryScan(root, path));
+                            }
+                        } else if (selector.matchesFile(relative) && Files.isRegularFile(path)) {
+                            startTailingFile(path);
                         }
-
-                        lastPosition = fileChannel.position();
                     }
                 }
-
-                Thread.sleep(100); // Check for new content every 100ms
-
-            } catch (IOException e) {
-                logger.warn("Error reading file {}, retrying...", filePath, e);
-                Thread.sleep(1000);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
+            } catch (IOException | ClosedWatchServiceException e) {
+                // Usually removed while being scanned; its parent's watch key reports anything new
+                logger.debug("Skipping directory {}: {}", dir, e.toString());
             }
+            invokeAll(children);
         }
+    }
 
-        logger.info("Stopped tailing file: {}", filePath);
+    private static Pattern compileOptional(String regex) {
+        return regex == null || regex.isBlank() ? null : Pattern.compile(regex);
     }
 
-    private void processNewContent(String source, String content, String formatHint) {
-        String[] lines = content.split("\\r?\\n");
-        for (String line : lines) {
-            if (!line.trim().isEmpty()) {
-                parserRegistry.parseLine(source, line, formatHint)
-                        .ifPresent(entry -> {
-                            if (!buffer.offer(entry)) {
-                                logger.warn("Buffer full, dropping log entry: {}", entry.getMessage());
-                            }
-                        });
-            }
+    private void startTailingFile(Path filePath) {
+        if (tailers.containsKey(filePath)) {
+            return; // already being tailed, don't allocate a tailer just to discard it
+        }
+        String formatHint = detectFormatHint(filePath.getFileName().toString());
+        // JSON logs carry one record per line; escaped stack traces are already inside it
+        MultilineAssembler assembler = multiline && formatHint.equals("text")
+                && (multilineStart != null || multilineContinuation != null)
+                ? new MultilineAssembler(multilineStart, multilineContinuation, multilineMaxLines,
+                        multilineMaxBytes, multilineFlushMs)
+                : null;
+        FileTailer tailer = new FileTailer(filePath, formatHint,
+                buffer, parserRegistry, checkpoints, claimedKeys, minPollMs, maxPollMs, rotateGraceMs, closeInactiveMs,
+                readBufferBytes, maxLineBytes, assembler);
+        if (tailers.putIfAbsent(filePath, tailer) != null) {
+            return; // already being tailed
         }
-    }
 
-    private boolean matchesFilePattern(String fileName) {
-        return fileName.matches(filePattern.replace("*", ".*").replace("?", "."));
+        executor.submit(() -> {
+            try {
+                tailer.run();
+            } finally {
+                tailers.remove(filePath, tailer);
+            }
+        });
     }
 
     private String detectFormatHint(String fileName) {
@@ -190,4 +316,29 @@ public class LogFileWatcher {
         }
         return "text";
     }
+
+    public int getTailedFileCount() {
+        return tailers.size();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("tailMode", tailMode.name());
+        stats.put("tailedFiles", tailers.size());
+        stats.put("roots", roots.stream().map(Path::toString).toList());
+        stats.put("include", selector.getIncludes());
+        stats.put("exclude", selector.getExcludes());
+        stats.put("recursive", recursive);
+        stats.put("watchedDirectories", watchedDirs.size());
+        stats.put("scannedDirectories", scannedDirs.get());
+        stats.put("initialScanMs", lastScanMillis);
+        stats.put("openFiles", claimedKeys.size());
+        stats.put("oversizedLines", tailers.values().stream().mapToLong(FileTailer::getOversizedLines).sum());
+        stats.put("multiline", multiline);
+        stats.put("mergedLines", tailers.values().stream().mapToLong(FileTailer::getMergedLines).sum());
+        if (checkpoints != null) {
+            stats.put("checkpoints", checkpoints.getStats());
+        }
+        return stats;
+    }
 }
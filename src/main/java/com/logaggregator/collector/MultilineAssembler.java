@@ -0,0 +1,142 @@
+package com.logaggregator.collector;
+
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+// Joins the physical lines of one logical record (a stack trace, a pretty-printed dump) into a
+// single event. A line continues the held event when it matches the continuation pattern, or,
+// with a start pattern configured, when it does not look like the start of a new event. The held
+// event is emitted when the next one starts, when it hits the line or byte limit, or once no line
+// has arrived for the flush timeout. One assembler per file; not thread-safe.
+public class MultilineAssembler {
+    // Indented frames, "at", "Caused by:", "Suppressed:", "... n more", and the exception's own
+    // header line (java.lang.IllegalStateException: boom) that precedes the frames
+    public static final String DEFAULT_CONTINUATION =
+            "^(\\s|at |Caused by:|Suppressed:|\\.\\.\\. \\d+ more|[\\w$.]+(Exception|Error)(:|$))";
+
+    private final Pattern startPattern;
+    private final Pattern continuationPattern;
+    private final int maxLines;
+    private final int maxBytes;
+    private final long flushTimeoutMs;
+
+    private final StringBuilder pending;
+    private int pendingLines;
+    private int pendingBytes;
+    private long pendingOffset;
+    private long lastLineMillis;
+
+    private long events;
+    private long mergedLines;
+    private long splitEvents;
+
+    public MultilineAssembler(Pattern startPattern, Pattern continuationPattern, int maxLines, int maxBytes,
+                              long flushTimeoutMs) {
+        this.startPattern = startPattern;
+        this.continuationPattern = continuationPattern;
+        this.maxLines = Math.max(1, maxLines);
+        this.maxBytes = maxBytes;
+        this.flushTimeoutMs = flushTimeoutMs;
+        this.pending = new StringBuilder();
+    }
+
+    // fileOffset is where the line starts; while an event is held, pendingOffset() is where it starts
+    public void accept(String line, long fileOffset, long nowMillis, Consumer<String> events) {
+        if (pendingLines > 0 && isContinuation(line)) {
+            int lineBytes = utf8Length(line);
+            if (pendingLines < maxLines && pendingBytes + 1 + lineBytes < maxBytes) {
+                pending.append('\n').append(line);
+                pendingLines++;
+                pendingBytes += 1 + lineBytes;
+                mergedLines++;
+                lastLineMillis = nowMillis;
+                return;
+            }
+            // Runaway record: cut it here rather than hold an unbounded event
+            splitEvents++;
+        }
+        flush(events);
+        pending.append(line);
+        pendingLines = 1;
+        pendingBytes = utf8Length(line);
+        pendingOffset = fileOffset;
+        lastLineMillis = nowMillis;
+    }
+
+    // maxBytes is a byte limit; counting chars would let non-ASCII events grow up to 3x past it
+    private static int utf8Length(String line) {
+        int bytes = line.length();
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    bytes++;
+                } else if (Character.isHighSurrogate(c)) {
+                    // The pair is 4 bytes in UTF-8 over 2 chars
+                    bytes += 2;
+                    i++;
+                } else {
+                    bytes += 2;
+                }
+            }
+        }
+        return bytes;
+    }
+
+    private boolean isContinuation(String line) {
+        if (continuationPattern != null && continuationPattern.matcher(line).find()) {
+            return true;
+        }
+        return startPattern != null && !startPattern.matcher(line).find();
+    }
+
+    // The writer may still be in the middle of a stack trace; only give up on it after the timeout
+    public boolean flushIfIdle(long nowMillis, Consumer<String> events) {
+        if (pendingLines > 0 && nowMillis - lastLineMillis >= flushTimeoutMs) {
+            flush(events);
+            return true;
+        }
+        return false;
+    }
+
+    public void flush(Consumer<String> events) {
+        if (pendingLines == 0) {
+            return;
+        }
+        String event = pending.toString();
+        reset();
+        this.events++;
+        events.accept(event);
+    }
+
+    public void reset() {
+        pending.setLength(0);
+        pendingLines = 0;
+        pendingBytes = 0;
+    }
+
+    public boolean hasPending() {
+        return pendingLines > 0;
+    }
+
+    public long pendingOffset() {
+        return pendingOffset;
+    }
+
+    // How long until flushIfIdle() would emit the held event, for the caller's poll interval
+    public long millisUntilFlush(long nowMillis) {
+        return pendingLines > 0 ? Math.max(0, lastLineMillis + flushTimeoutMs - nowMillis) : Long.MAX_VALUE;
+    }
+
+    public long getEvents() {
+        return events;
+    }
+
+    public long getMergedLines() {
+        return mergedLines;
+    }
+
+    public long getSplitEvents() {
+        return splitEvents;
+    }
+}
@@ -0,0 +1,170 @@
+package com.logaggregator.collector;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.logaggregator.core.LogEntry;
+import com.logaggregator.core.LogSink;
+import com.logaggregator.parser.JsonLogParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Reads newline-delimited JSON records from a pushed request body with Jackson's streaming parser:
+// one record is materialised at a time and entries are handed to the buffer in batches. A batch is
+// taken only up to the room left below the saturation threshold, counting entries spilled to disk as
+// well as those in memory; when the room runs out or the buffer refuses an entry, ingestion stops
+// and the caller learns how many records were taken, so the client can retry the rest later.
+public class NdjsonIngester {
+    private static final Logger logger = LoggerFactory.getLogger(NdjsonIngester.class);
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private final LogSink buffer;
+    private final int batchSize;
+    private final double saturationThreshold;
+
+    private final AtomicLong requests;
+    private final AtomicLong acceptedEntries;
+    private final AtomicLong skippedRecords;
+    private final AtomicLong saturatedRequests;
+    private final AtomicLong malformedRequests;
+    private final AtomicLong unreadableRequests;
+
+    // committedRecords: records fully handled (accepted or skipped); a retry resumes after them
+    public record Result(long accepted, long skipped, long committedRecords, boolean saturated, String error) {}
+
+    public NdjsonIngester(LogSink buffer, int batchSize, double saturationThreshold) {
+        long threshold = (long) (buffer.getCapacity() * saturationThreshold);
+        if (threshold < 1) {
+            throw new IllegalArgumentException("Saturation threshold " + saturationThreshold
+                    + " leaves no room in a buffer of " + buffer.getCapacity());
+        }
+        if (batchSize > threshold) {
+            // A batch larger than the room below the threshold could never be taken whole
+            logger.warn("Ingest batch size {} exceeds the {} entries allowed below the saturation threshold, using {}",
+                    batchSize, threshold, threshold);
+            batchSize = (int) threshold;
+        }
+        this.buffer = buffer;
+        this.batchSize = Math.max(1, batchSize);
+        this.saturationThreshold = saturationThreshold;
+        this.requests = new AtomicLong(0);
+        this.acceptedEntries = new AtomicLong(0);
+        this.skippedRecords = new AtomicLong(0);
+        this.saturatedRequests = new AtomicLong(0);
+        this.malformedRequests = new AtomicLong(0);
+        this.unreadableRequests = new AtomicLong(0);
+    }
+
+    public boolean isSaturated(int incoming) {
+        return room() < incoming;
+    }
+
+    // Entries that may still be queued before the threshold; the backlog includes spilled entries
+    private long room() {
+        return (long) (buffer.getCapacity() * saturationThreshold) - buffer.getBacklog();
+    }
+
+    public Result ingest(InputStream body, String defaultSource) throws IOException {
+        requests.incrementAndGet();
+        long accepted = 0;
+        long records = 0;
+        List<LogEntry> batch = new ArrayList<>(batchSize);
+        // Record number (1-based) of each batch entry, to commit up to the first one not taken
+        long[] recordOf = new long[batchSize];
+
+        try (JsonParser parser = mapper.getFactory().createParser(body)) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token != JsonToken.START_OBJECT) {
+                    throw new JsonParseException(parser, "Expected one JSON object per line, got " + token);
+                }
+                LogEntry entry = readEntry(parser, defaultSource);
+                records++;
+                if (entry != null) {
+                    recordOf[batch.size()] = records;
+                    batch.add(entry);
+                }
+
+                if (batch.size() >= batchSize) {
+                    int taken = offerBatch(batch);
+                    accepted += taken;
+                    if (taken < batch.size()) {
+                        return finish(accepted, recordOf[taken] - 1, true, null);
+                    }
+                    batch.clear();
+                }
+            }
+        } catch (JsonProcessingException e) {
+            // Records before the broken one are still taken: the client resends from committedRecords
+            malformedRequests.incrementAndGet();
+            String error = "Malformed JSON at record " + (records + 1) + ": " + e.getOriginalMessage();
+            int taken = offerBatch(batch);
+            accepted += taken;
+            return finish(accepted, taken < batch.size() ? recordOf[taken] - 1 : records, false, error);
+        } catch (IOException e) {
+            // The body broke off (corrupt or truncated gzip, client gone): earlier batches are
+            // already queued, so the count still has to reach the client or a retry duplicates them
+            unreadableRequests.incrementAndGet();
+            String error = "Request body unreadable at record " + (records + 1) + ": " + e.getMessage();
+            int taken = offerBatch(batch);
+            accepted += taken;
+            return finish(accepted, taken < batch.size() ? recordOf[taken] - 1 : records, false, error);
+        }
+
+        int taken = offerBatch(batch);
+        accepted += taken;
+        if (taken < batch.size()) {
+            return finish(accepted, recordOf[taken] - 1, true, null);
+        }
+        return finish(accepted, records, false, null);
+    }
+
+    // Every committed record was either accepted or skipped for lacking a message
+    private Result finish(long accepted, long committed, boolean saturated, String error) {
+        if (saturated) {
+            saturatedRequests.incrementAndGet();
+        }
+        acceptedEntries.addAndGet(accepted);
+        skippedRecords.addAndGet(committed - accepted);
+        return new Result(accepted, committed - accepted, committed, saturated, error);
+    }
+
+    // Queues entries up to the room left below the threshold; stops at the first one the buffer
+    // refuses (DROP policy, spill cap), so everything counted as taken really was enqueued
+    private int offerBatch(List<LogEntry> batch) {
+        long room = room();
+        int taken = 0;
+        while (taken < batch.size() && taken < room && buffer.offer(batch.get(taken))) {
+            taken++;
+        }
+        return taken;
+    }
+
+    // Same aliases, field rules and value types as a JSON line read by the tailer
+    private LogEntry readEntry(JsonParser parser, String defaultSource) throws IOException {
+        return JsonLogParser.readObject(parser, defaultSource);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("requests", requests.get());
+        stats.put("acceptedEntries", acceptedEntries.get());
+        stats.put("skippedRecords", skippedRecords.get());
+        stats.put("saturatedRequests", saturatedRequests.get());
+        stats.put("malformedRequests", malformedRequests.get());
+        stats.put("unreadableRequests", unreadableRequests.get());
+        stats.put("batchSize", batchSize);
+        stats.put("saturationThreshold", saturationThreshold);
+        return stats;
+    }
+}
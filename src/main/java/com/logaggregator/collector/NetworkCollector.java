@@ -0,0 +1,486 @@
+package com.logaggregator.collector;
+
+import com.logaggregator.core.LogEntry;
+import com.logaggregator.core.LogSink;
+import com.logaggregator.parser.ParserRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.NetworkChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Receives logs over the network and feeds them straight into the log buffer: syslog (RFC 5424 and
+// 3164) over UDP and TCP, and plain newline-delimited text over TCP. One selector thread serves all
+// sockets. Reads go through a single shared buffer; a connection only holds a pooled buffer while it
+// has a partial message outstanding, so thousands of mostly idle connections cost little memory.
+// Parsing and buffer.offer run on the selector thread too. When the buffer refuses a TCP message the
+// connection stops reading (OP_READ off) and retries later, so the kernel's flow control pushes back
+// on the sender; UDP has no such channel and refused datagrams are dropped.
+public class NetworkCollector {
+    private static final Logger logger = LoggerFactory.getLogger(NetworkCollector.class);
+    // Room for an octet-counting header ("65536 ") in front of a maximum-size message
+    private static final int FRAME_HEADER_BYTES = 16;
+    private static final int MAX_LENGTH_DIGITS = 9;
+    // How often paused connections retry while the buffer is full
+    private static final long RESUME_INTERVAL_MS = 50;
+
+    private final String bindAddress;
+    private final int syslogUdpPort;
+    private final int syslogTcpPort;
+    private final int rawTcpPort;
+    private final LogSink buffer;
+    private final ParserRegistry parserRegistry;
+    private final int maxConnections;
+    private final int maxMessageBytes;
+    private final ByteBuffer readBuffer;
+    private final ByteBufferPool carryPool;
+
+    private Selector selector;
+    private DatagramChannel syslogUdp;
+    private ServerSocketChannel syslogTcp;
+    private ServerSocketChannel rawTcp;
+    private Thread selectorThread;
+    private volatile boolean running;
+    // Connections with reading paused; only touched by the selector thread
+    private final List<SelectionKey> pausedKeys;
+
+    private final AtomicInteger activeConnections;
+    private final AtomicLong acceptedConnections;
+    private final AtomicLong rejectedConnections;
+    private final AtomicLong tcpMessages;
+    private final AtomicLong udpMessages;
+    private final AtomicLong bytesReceived;
+    private final AtomicLong oversizedMessages;
+    private final AtomicLong unparsedMessages;
+    private final AtomicLong droppedMessages;
+    private final AtomicLong readPauses;
+
+    private static final class Connection {
+        final boolean syslog;
+        final String source;
+        // Partial message carried over to the next read, null when there is none
+        ByteBuffer carry;
+        // Remaining bytes of an octet-counted message too large to accept
+        long skip;
+        // The buffer refused a message; it is kept in carry and retried before reading more
+        boolean paused;
+
+        Connection(boolean syslog, String source) {
+            this.syslog = syslog;
+            this.source = source;
+        }
+    }
+
+    // A port below zero disables that listener, zero binds an ephemeral port
+    public NetworkCollector(String bindAddress, int syslogUdpPort, int syslogTcpPort, int rawTcpPort,
+                            LogSink buffer, ParserRegistry parserRegistry, int maxConnections,
+                            int maxMessageBytes, int readBufferBytes) {
+        this.bindAddress = bindAddress;
+        this.syslogUdpPort = syslogUdpPort;
+        this.syslogTcpPort = syslogTcpPort;
+        this.rawTcpPort = rawTcpPort;
+        this.buffer = buffer;
+        this.parserRegistry = parserRegistry;
+        this.maxConnections = maxConnections;
+        this.maxMessageBytes = maxMessageBytes;
+        this.readBuffer = ByteBuffer.allocate(Math.max(readBufferBytes, 65_536) + maxMessageBytes + FRAME_HEADER_BYTES);
+        this.carryPool = new ByteBufferPool(maxMessageBytes + FRAME_HEADER_BYTES, 1024);
+        this.activeConnections = new AtomicInteger(0);
+        this.acceptedConnections = new AtomicLong(0);
+        this.rejectedConnections = new AtomicLong(0);
+        this.tcpMessages = new AtomicLong(0);
+        this.udpMessages = new AtomicLong(0);
+        this.bytesReceived = new AtomicLong(0);
+        this.oversizedMessages = new AtomicLong(0);
+        this.unparsedMessages = new AtomicLong(0);
+        this.droppedMessages = new AtomicLong(0);
+        this.readPauses = new AtomicLong(0);
+        this.pausedKeys = new ArrayList<>();
+    }
+
+    public void start() throws IOException {
+        selector = Selector.open();
+        if (syslogUdpPort >= 0) {
+            syslogUdp = DatagramChannel.open();
+            syslogUdp.bind(new InetSocketAddress(bindAddress, syslogUdpPort));
+            syslogUdp.configureBlocking(false);
+            syslogUdp.register(selector, SelectionKey.OP_READ);
+        }
+        if (syslogTcpPort >= 0) {
+            syslogTcp = listen(syslogTcpPort);
+        }
+        if (rawTcpPort >= 0) {
+            rawTcp = listen(rawTcpPort);
+        }
+
+        running = true;
+        selectorThread = new Thread(this::selectLoop, "network-collector");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+
+        logger.info("Network collector listening on {} (syslog udp: {}, syslog tcp: {}, raw tcp: {})",
+                bindAddress, getSyslogUdpPort(), getSyslogTcpPort(), getRawTcpPort());
+    }
+
+    private ServerSocketChannel listen(int port) throws IOException {
+        ServerSocketChannel server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(bindAddress, port), 1024);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        return server;
+    }
+
+    public void stop() {
+        running = false;
+        if (selector != null) {
+            selector.wakeup();
+        }
+        if (selectorThread != null) {
+            try {
+                selectorThread.join(5_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        logger.info("Network collector stopped");
+    }
+
+    private void selectLoop() {
+        try {
+            while (running) {
+                selector.select(pausedKeys.isEmpty() ? 500 : RESUME_INTERVAL_MS);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    try {
+                        if (key.isAcceptable()) {
+                            accept((ServerSocketChannel) key.channel());
+                        } else if (key.channel() == syslogUdp) {
+                            receiveDatagrams();
+                        } else if (key.isReadable()) {
+                            read(key);
+                        }
+                    } catch (IOException e) {
+                        if (key.attachment() instanceof Connection) {
+                            logger.debug("Network read failed", e);
+                            close(key);
+                        } else {
+                            // Listener sockets stay open, e.g. through a burst of accept failures
+                            logger.warn("Network listener error: {}", e.getMessage());
+                        }
+                    }
+                }
+                resumePaused();
+            }
+        } catch (IOException e) {
+            logger.error("Network collector selector failed", e);
+        } finally {
+            closeAll();
+        }
+    }
+
+    private void accept(ServerSocketChannel server) throws IOException {
+        SocketChannel channel;
+        while ((channel = server.accept()) != null) {
+            if (activeConnections.get() >= maxConnections) {
+                rejectedConnections.incrementAndGet();
+                channel.close();
+                continue;
+            }
+            try {
+                channel.configureBlocking(false);
+                boolean syslog = server == syslogTcp;
+                String host = hostOf(channel.getRemoteAddress());
+                channel.register(selector, SelectionKey.OP_READ, new Connection(syslog, (syslog ? "syslog:" : "tcp:") + host));
+            } catch (IOException e) {
+                // E.g. the peer reset before setup finished: drop this one, keep accepting the rest
+                logger.debug("Failed to set up accepted connection", e);
+                try {
+                    channel.close();
+                } catch (IOException closeError) {
+                    logger.debug("Error closing connection", closeError);
+                }
+                continue;
+            }
+            activeConnections.incrementAndGet();
+            acceptedConnections.incrementAndGet();
+        }
+    }
+
+    private void receiveDatagrams() throws IOException {
+        // One datagram is one message (RFC 5426); drain everything queued before selecting again
+        SocketAddress sender;
+        while (true) {
+            readBuffer.clear();
+            sender = syslogUdp.receive(readBuffer);
+            if (sender == null) {
+                return;
+            }
+            bytesReceived.addAndGet(readBuffer.position());
+            udpMessages.incrementAndGet();
+            if (!deliver("syslog:" + hostOf(sender), true, readBuffer.array(), 0, readBuffer.position())) {
+                droppedMessages.incrementAndGet();
+            }
+        }
+    }
+
+    private void read(SelectionKey key) throws IOException {
+        SocketChannel channel = (SocketChannel) key.channel();
+        Connection connection = (Connection) key.attachment();
+
+        readBuffer.clear();
+        if (connection.carry != null) {
+            connection.carry.flip();
+            readBuffer.put(connection.carry);
+            carryPool.release(connection.carry);
+            connection.carry = null;
+        }
+
+        int read = channel.read(readBuffer);
+        if (read > 0) {
+            bytesReceived.addAndGet(read);
+        }
+        readBuffer.flip();
+        connection.paused = false;
+        frame(connection, readBuffer, read < 0);
+
+        if (connection.paused) {
+            // Everything from the refused message on waits, however much of the read that is
+            int remaining = readBuffer.remaining();
+            connection.carry = remaining <= carryPool.getBufferBytes()
+                    ? carryPool.acquire() : ByteBuffer.allocate(remaining);
+            connection.carry.put(readBuffer);
+            key.interestOps(0);
+            pausedKeys.add(key);
+            readPauses.incrementAndGet();
+        } else if (read < 0) {
+            close(key);
+        } else if (readBuffer.hasRemaining()) {
+            connection.carry = carryPool.acquire();
+            connection.carry.put(readBuffer);
+        }
+    }
+
+    // Retries the held messages of paused connections; those refused again pause for another round
+    private void resumePaused() {
+        if (pausedKeys.isEmpty()) {
+            return;
+        }
+        List<SelectionKey> retry = new ArrayList<>(pausedKeys);
+        pausedKeys.clear();
+        for (SelectionKey key : retry) {
+            if (!key.isValid()) {
+                continue;
+            }
+            try {
+                key.interestOps(SelectionKey.OP_READ);
+                read(key);
+            } catch (IOException e) {
+                logger.debug("Network read failed", e);
+                close(key);
+            }
+        }
+    }
+
+    // Splits the received bytes into messages. Syslog over TCP may use octet counting
+    // ("<length> <message>", RFC 6587) or LF-terminated frames; each frame is checked for which.
+    private void frame(Connection connection, ByteBuffer data, boolean endOfStream) {
+        byte[] bytes = data.array();
+        int pos = data.position();
+        int end = data.limit();
+
+        while (pos < end) {
+            if (connection.skip > 0) {
+                int skipped = (int) Math.min(connection.skip, end - pos);
+                pos += skipped;
+                connection.skip -= skipped;
+                continue;
+            }
+
+            if (connection.syslog && isDigit(bytes[pos])) {
+                int digitsEnd = pos;
+                long length = 0;
+                while (digitsEnd < end && isDigit(bytes[digitsEnd]) && digitsEnd - pos < MAX_LENGTH_DIGITS) {
+                    length = length * 10 + (bytes[digitsEnd] - '0');
+                    digitsEnd++;
+                }
+                if (digitsEnd == end) {
+                    break; // header not complete yet
+                }
+                if (bytes[digitsEnd] == ' ') {
+                    int start = digitsEnd + 1;
+                    if (length > maxMessageBytes) {
+                        oversizedMessages.incrementAndGet();
+                        connection.skip = length;
+                        pos = start;
+                        continue;
+                    }
+                    if (end - start < length) {
+                        break; // wait for the rest of the message
+                    }
+                    if (!deliverFrame(connection, bytes, start, (int) length)) {
+                        break;
+                    }
+                    pos = start + (int) length;
+                    continue;
+                }
+                // Digits not followed by a space: an LF-terminated message that happens to start with a digit
+            }
+
+            int newline = indexOf(bytes, pos, end, (byte) '\n');
+            if (newline >= 0) {
+                if (!deliverFrame(connection, bytes, pos, newline - pos)) {
+                    break;
+                }
+                pos = newline + 1;
+            } else if (endOfStream || end - pos >= maxMessageBytes) {
+                // Sender closed without a final newline, or a line over the limit: pass on what there is
+                if (!deliverFrame(connection, bytes, pos, end - pos)) {
+                    break;
+                }
+                if (!endOfStream) {
+                    oversizedMessages.incrementAndGet();
+                }
+                pos = end;
+            } else {
+                break;
+            }
+        }
+        data.position(pos);
+    }
+
+    // False when the buffer refused the message: the connection pauses and the frame is kept
+    private boolean deliverFrame(Connection connection, byte[] bytes, int offset, int length) {
+        if (!deliver(connection.source, connection.syslog, bytes, offset, length)) {
+            connection.paused = true;
+            return false;
+        }
+        tcpMessages.incrementAndGet();
+        return true;
+    }
+
+    // False only when the buffer refused a parsed entry
+    private boolean deliver(String source, boolean syslog, byte[] bytes, int offset, int length) {
+        while (length > 0 && (bytes[offset + length - 1] == '\n' || bytes[offset + length - 1] == '\r')) {
+            length--;
+        }
+        if (length == 0) {
+            return true;
+        }
+        String message = new String(bytes, offset, length, StandardCharsets.UTF_8);
+        Optional<LogEntry> entry = parserRegistry.parseLine(source, message, syslog ? "syslog" : "text");
+        if (entry.isEmpty()) {
+            unparsedMessages.incrementAndGet();
+            return true;
+        }
+        return buffer.offer(entry.get());
+    }
+
+    private void close(SelectionKey key) {
+        Object attachment = key.attachment();
+        if (attachment instanceof Connection connection) {
+            carryPool.release(connection.carry);
+            connection.carry = null;
+            activeConnections.decrementAndGet();
+        }
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            logger.debug("Error closing connection", e);
+        }
+    }
+
+    private void closeAll() {
+        if (selector == null) {
+            return;
+        }
+        for (SelectionKey key : selector.keys()) {
+            close(key);
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            logger.debug("Error closing selector", e);
+        }
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static int indexOf(byte[] bytes, int from, int to, byte value) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String hostOf(SocketAddress address) {
+        return address instanceof InetSocketAddress inet ? inet.getAddress().getHostAddress() : String.valueOf(address);
+    }
+
+    private static int localPort(NetworkChannel channel) {
+        try {
+            return channel != null ? ((InetSocketAddress) channel.getLocalAddress()).getPort() : -1;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    public int getSyslogUdpPort() {
+        return localPort(syslogUdp);
+    }
+
+    public int getSyslogTcpPort() {
+        return localPort(syslogTcp);
+    }
+
+    public int getRawTcpPort() {
+        return localPort(rawTcp);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("syslogUdpPort", getSyslogUdpPort());
+        stats.put("syslogTcpPort", getSyslogTcpPort());
+        stats.put("rawTcpPort", getRawTcpPort());
+        stats.put("activeConnections", activeConnections.get());
+        stats.put("maxConnections", maxConnections);
+        stats.put("acceptedConnections", acceptedConnections.get());
+        stats.put("rejectedConnections", rejectedConnections.get());
+        stats.put("tcpMessages", tcpMessages.get());
+        stats.put("udpMessages", udpMessages.get());
+        stats.put("bytesReceived", bytesReceived.get());
+        stats.put("oversizedMessages", oversizedMessages.get());
+        stats.put("unparsedMessages", unparsedMessages.get());
+        stats.put("droppedMessages", droppedMessages.get());
+        stats.put("readPauses", readPauses.get());
+        stats.put("pooledBuffers", carryPool.getFreeCount());
+        stats.put("allocatedBuffers", carryPool.getAllocated());
+        return stats;
+    }
+}
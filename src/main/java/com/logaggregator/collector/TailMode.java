@@ -0,0 +1,5 @@
+package com.logaggregator.collector;
+
+public enum TailMode {
+    PLATFORM, VIRTUAL
+}
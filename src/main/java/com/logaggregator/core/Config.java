@@ -38,4 +38,23 @@ public class Config {
     public static long getLong(String key) {
         return Long.parseLong(properties.getProperty(key));
     }
+
+    public static String get(String key, String defaultValue) {
+        return properties.getProperty(key, defaultValue);
+    }
+
+    public static int getInt(String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        return value != null ? Integer.parseInt(value.trim()) : defaultValue;
+    }
+
+    public static long getLong(String key, long defaultValue) {
+        String value = properties.getProperty(key);
+        return value != null ? Long.parseLong(value.trim()) : defaultValue;
+    }
+
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = properties.getProperty(key);
+        return value != null ? Boolean.parseBoolean(value.trim()) : defaultValue;
+    }
 }
\ No newline at end of file
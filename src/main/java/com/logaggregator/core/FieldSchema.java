@@ -0,0 +1,127 @@
+package com.logaggregator.core;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// The ordered keys and value kinds of a FieldStore, shared by every entry whose fields were added in
+// the same order with the same kinds. Adding a field moves a store to the next schema through a
+// cached transition, so lines of one format end up pointing at one schema and keep only values.
+// Keys are interned, so entries don't hold their own copies of the names.
+public class FieldSchema {
+    // Bounds for logs with unbounded key sets (ids used as keys); past them schemas are not shared
+    private static final int MAX_SCHEMAS = 100_000;
+    private static final int MAX_KEYS = 100_000;
+    private static final int INDEX_THRESHOLD = 12;
+
+    enum Kind { INT, LONG, DOUBLE, BOOLEAN, OBJECT }
+
+    private static final Kind[] KINDS = Kind.values();
+    private static final Map<String, String> keys = new ConcurrentHashMap<>();
+    private static final AtomicInteger schemas = new AtomicInteger(1);
+
+    static final FieldSchema EMPTY = new FieldSchema(new String[0], new Kind[0], new int[0], 0, 0);
+
+    final String[] names;
+    final Kind[] kinds;
+    // Position of each field's value in the store's primitive or object array
+    final int[] slots;
+    final int primitiveCount;
+    final int objectCount;
+    private final Map<String, FieldSchema[]> transitions;
+    private volatile Map<String, Integer> index;
+
+    private FieldSchema(String[] names, Kind[] kinds, int[] slots, int primitiveCount, int objectCount) {
+        this.names = names;
+        this.kinds = kinds;
+        this.slots = slots;
+        this.primitiveCount = primitiveCount;
+        this.objectCount = objectCount;
+        this.transitions = new ConcurrentHashMap<>();
+    }
+
+    int size() {
+        return names.length;
+    }
+
+    int indexOf(String key) {
+        if (names.length > INDEX_THRESHOLD) {
+            Map<String, Integer> byName = index;
+            if (byName == null) {
+                byName = new HashMap<>();
+                for (int i = 0; i < names.length; i++) {
+                    byName.put(names[i], i);
+                }
+                index = byName;
+            }
+            Integer i = byName.get(key);
+            return i != null ? i : -1;
+        }
+        for (int i = 0; i < names.length; i++) {
+            if (names[i] == key) {
+                return i;
+            }
+        }
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    FieldSchema with(String key, Kind kind) {
+        FieldSchema[] byKind = transitions.get(key);
+        FieldSchema next = byKind != null ? byKind[kind.ordinal()] : null;
+        if (next != null) {
+            return next;
+        }
+        next = extend(intern(key), kind);
+        if (schemas.get() >= MAX_SCHEMAS) {
+            return next;
+        }
+        FieldSchema[] created = transitions.computeIfAbsent(next.names[names.length], k -> new FieldSchema[KINDS.length]);
+        synchronized (created) {
+            if (created[kind.ordinal()] == null) {
+                created[kind.ordinal()] = next;
+                schemas.incrementAndGet();
+            }
+            return created[kind.ordinal()];
+        }
+    }
+
+    private FieldSchema extend(String key, Kind kind) {
+        int n = names.length;
+        String[] nextNames = Arrays.copyOf(names, n + 1);
+        Kind[] nextKinds = Arrays.copyOf(kinds, n + 1);
+        int[] nextSlots = Arrays.copyOf(slots, n + 1);
+        nextNames[n] = key;
+        nextKinds[n] = kind;
+        boolean object = kind == Kind.OBJECT;
+        nextSlots[n] = object ? objectCount : primitiveCount;
+        return new FieldSchema(nextNames, nextKinds, nextSlots,
+                object ? primitiveCount : primitiveCount + 1, object ? objectCount + 1 : objectCount);
+    }
+
+    private static String intern(String key) {
+        String canonical = keys.get(key);
+        if (canonical != null) {
+            return canonical;
+        }
+        if (keys.size() >= MAX_KEYS) {
+            return key;
+        }
+        canonical = keys.putIfAbsent(key, key);
+        return canonical != null ? canonical : key;
+    }
+
+    public static Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("schemas", schemas.get());
+        stats.put("keys", keys.size());
+        stats.put("shared", schemas.get() < MAX_SCHEMAS);
+        return stats;
+    }
+}
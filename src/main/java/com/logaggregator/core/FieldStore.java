@@ -0,0 +1,205 @@
+package com.logaggregator.core;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+// An entry's fields as values only: keys and kinds live in a shared FieldSchema, numbers and
+// booleans sit unboxed in a long[] and everything else in an Object[]. Boxing happens when a value
+// is read. Not thread-safe, like the HashMap it replaces.
+public class FieldStore {
+    private static final long[] NO_PRIMITIVES = new long[0];
+    private static final Object[] NO_OBJECTS = new Object[0];
+
+    private FieldSchema schema = FieldSchema.EMPTY;
+    private long[] primitives = NO_PRIMITIVES;
+    private Object[] objects = NO_OBJECTS;
+
+    public int size() {
+        return schema.size();
+    }
+
+    public boolean isEmpty() {
+        return schema.size() == 0;
+    }
+
+    public boolean containsKey(String key) {
+        return schema.indexOf(key) >= 0;
+    }
+
+    public Object get(String key) {
+        int i = schema.indexOf(key);
+        return i >= 0 ? valueAt(i) : null;
+    }
+
+    public void put(String key, Object value) {
+        if (value instanceof Integer) {
+            putInt(key, (Integer) value);
+        } else if (value instanceof Long) {
+            putLong(key, (Long) value);
+        } else if (value instanceof Double) {
+            putDouble(key, (Double) value);
+        } else if (value instanceof Boolean) {
+            putBoolean(key, (Boolean) value);
+        } else {
+            // The slot first: adding a field may replace the array
+            int slot = slotFor(key, FieldSchema.Kind.OBJECT);
+            objects[slot] = value;
+        }
+    }
+
+    public void putInt(String key, int value) {
+        int slot = slotFor(key, FieldSchema.Kind.INT);
+        primitives[slot] = value;
+    }
+
+    public void putLong(String key, long value) {
+        int slot = slotFor(key, FieldSchema.Kind.LONG);
+        primitives[slot] = value;
+    }
+
+    public void putDouble(String key, double value) {
+        int slot = slotFor(key, FieldSchema.Kind.DOUBLE);
+        primitives[slot] = Double.doubleToRawLongBits(value);
+    }
+
+    public void putBoolean(String key, boolean value) {
+        int slot = slotFor(key, FieldSchema.Kind.BOOLEAN);
+        primitives[slot] = value ? 1 : 0;
+    }
+
+    public void putAll(FieldStore other) {
+        other.forEach(this::put);
+    }
+
+    public void forEach(BiConsumer<String, Object> action) {
+        FieldSchema current = schema;
+        for (int i = 0; i < current.size(); i++) {
+            action.accept(current.names[i], valueAt(i));
+        }
+    }
+
+    // A live Map over the store; put writes through, removal isn't supported
+    public Map<String, Object> asMap() {
+        return new View();
+    }
+
+    private Object valueAt(int i) {
+        int slot = schema.slots[i];
+        switch (schema.kinds[i]) {
+            case INT:
+                return (int) primitives[slot];
+            case LONG:
+                return primitives[slot];
+            case DOUBLE:
+                return Double.longBitsToDouble(primitives[slot]);
+            case BOOLEAN:
+                return primitives[slot] != 0;
+            default:
+                return objects[slot];
+        }
+    }
+
+    private int slotFor(String key, FieldSchema.Kind kind) {
+        int i = schema.indexOf(key);
+        if (i >= 0) {
+            if (schema.kinds[i] == kind) {
+                return schema.slots[i];
+            }
+            // Same key with a value of another kind: rare, so rebuild without the old field
+            dropField(i);
+        }
+        schema = schema.with(key, kind);
+        if (schema.primitiveCount > primitives.length) {
+            primitives = Arrays.copyOf(primitives, grow(primitives.length, schema.primitiveCount));
+        }
+        if (schema.objectCount > objects.length) {
+            objects = Arrays.copyOf(objects, grow(objects.length, schema.objectCount));
+        }
+        return schema.slots[schema.size() - 1];
+    }
+
+    private void dropField(int dropped) {
+        FieldSchema old = schema;
+        long[] oldPrimitives = primitives;
+        Object[] oldObjects = objects;
+        schema = FieldSchema.EMPTY;
+        primitives = NO_PRIMITIVES;
+        objects = NO_OBJECTS;
+        for (int i = 0; i < old.size(); i++) {
+            if (i == dropped) {
+                continue;
+            }
+            int slot = slotFor(old.names[i], old.kinds[i]);
+            if (old.kinds[i] == FieldSchema.Kind.OBJECT) {
+                objects[slot] = oldObjects[old.slots[i]];
+            } else {
+                primitives[slot] = oldPrimitives[old.slots[i]];
+            }
+        }
+    }
+
+    private static int grow(int current, int needed) {
+        return Math.max(needed, Math.max(4, current + (current >> 1)));
+    }
+
+    private class View extends AbstractMap<String, Object> {
+        @Override
+        public int size() {
+            return FieldStore.this.size();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof String && FieldStore.this.containsKey((String) key);
+        }
+
+        @Override
+        public Object get(Object key) {
+            return key instanceof String ? FieldStore.this.get((String) key) : null;
+        }
+
+        @Override
+        public Object put(String key, Object value) {
+            Object previous = FieldStore.this.get(key);
+            FieldStore.this.put(key, value);
+            return previous;
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public int size() {
+                    return FieldStore.this.size();
+                }
+
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return new Iterator<>() {
+                        private int next;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < schema.size();
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            int i = next++;
+                            return new SimpleImmutableEntry<>(schema.names[i], valueAt(i));
+                        }
+                    };
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.logaggregator.core;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Fields that storage indexes and parsers therefore extract while parsing; everything else stays
+// in the raw line until it is read (see LazyLogEntry). "*" means every field.
+public class IndexedFields {
+    private static volatile Set<String> names = null;
+
+    public static void configure(String spec) {
+        if (spec == null || spec.isBlank() || spec.trim().equals("*")) {
+            names = null;
+        } else {
+            names = Arrays.stream(spec.split(","))
+                    .map(String::trim)
+                    .filter(name -> !name.isEmpty())
+                    .collect(Collectors.toUnmodifiableSet());
+        }
+    }
+
+    public static boolean isAll() {
+        return names == null;
+    }
+
+    public static boolean isIndexed(String name) {
+        Set<String> current = names;
+        return current == null || current.contains(name);
+    }
+
+    // Empty when every field is indexed
+    public static Set<String> getNames() {
+        Set<String> current = names;
+        return current != null ? current : Set.of();
+    }
+}
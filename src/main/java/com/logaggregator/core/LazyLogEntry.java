@@ -0,0 +1,105 @@
+package com.logaggregator.core;
+
+import java.util.Map;
+
+// Keeps the raw line and the offsets a parser found in it, and builds the message and the field map
+// only when they are asked for. Parsers hand over the fields storage indexes (IndexedFields) up
+// front, so indexing and alert conditions on those don't force the full decode.
+public class LazyLogEntry extends LogEntry {
+    public interface Decoder {
+        // Returned by field() when the value can't be read without a full decode
+        Object NEEDS_DECODE = new Object();
+
+        String message(String raw, int[] offsets);
+
+        void fields(String raw, int[] offsets, FieldStore into);
+
+        // A single field straight from the offsets, without building the store
+        default Object field(String raw, int[] offsets, String name) {
+            return NEEDS_DECODE;
+        }
+    }
+
+    private final int[] offsets;
+    private final Decoder decoder;
+    // Holds every indexed field present in the line, so missing ones need no decode to rule out
+    private final boolean indexedUpFront;
+    // Fields known before the decode (indexed ones, addField calls); merged into fields on decode.
+    // The decoded message and store live in LogEntry's own fields.
+    private FieldStore known;
+
+    public LazyLogEntry(String source, String raw, LogLevel level, long eventTimeMillis,
+            int[] offsets, Decoder decoder) {
+        this(source, raw, level, eventTimeMillis, null, offsets, decoder, null, false);
+    }
+
+    public LazyLogEntry(String source, String raw, LogLevel level, long eventTimeMillis, String message,
+            int[] offsets, Decoder decoder, FieldStore indexedFields, boolean indexedUpFront) {
+        super(source, raw, level, eventTimeMillis);
+        this.message = message;
+        this.offsets = offsets;
+        this.decoder = decoder;
+        this.known = indexedFields;
+        this.indexedUpFront = indexedUpFront;
+    }
+
+    @Override
+    public String getMessage() {
+        String decoded = message;
+        if (decoded == null) {
+            decoded = decoder.message(getRawMessage(), offsets);
+            message = decoded;
+        }
+        return decoded;
+    }
+
+    @Override
+    public synchronized Map<String, Object> getFields() {
+        return decode().asMap();
+    }
+
+    @Override
+    public synchronized Object getField(String name) {
+        if (fields != null) {
+            return fields.get(name);
+        }
+        if (known != null && known.containsKey(name)) {
+            return known.get(name);
+        }
+        if (indexedUpFront && IndexedFields.isIndexed(name)) {
+            return null;
+        }
+        Object value = decoder.field(getRawMessage(), offsets, name);
+        // A full decode is kept, so later lookups and getFields() don't parse the line again
+        return value != Decoder.NEEDS_DECODE ? value : decode().get(name);
+    }
+
+    private FieldStore decode() {
+        if (fields == null) {
+            FieldStore decoded = new FieldStore();
+            decoder.fields(getRawMessage(), offsets, decoded);
+            if (known != null) {
+                decoded.putAll(known);
+                known = null;
+            }
+            fields = decoded;
+        }
+        return fields;
+    }
+
+    @Override
+    public synchronized void addField(String key, Object value) {
+        if (fields != null) {
+            fields.put(key, value);
+            return;
+        }
+        if (known == null) {
+            known = new FieldStore();
+        }
+        known.put(key, value);
+    }
+
+    public synchronized boolean isDecoded() {
+        return fields != null;
+    }
+}
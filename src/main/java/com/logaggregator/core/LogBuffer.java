@@ -2,22 +2,93 @@ package com.logaggregator.core;
 
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
-public class LogBuffer {
+public class LogBuffer implements LogSink {
     private final BlockingQueue<LogEntry> buffer;
-    private final int batchSize;
-    private final long batchTimeoutMs;
+    private final int capacity;
+    private final int minBatchSize;
+    private final int maxBatchSize;
+    private final long lingerNanos;
+    private final AtomicInteger currentBatchSize;
+    private final AtomicLong batchCount;
+    private final AtomicLong batchedEntries;
+    private final OverflowPolicy overflowPolicy;
+    private final SpillQueue spillQueue;
+    private final AtomicLong droppedCount;
+    private final AtomicLong blockedCount;
+    private volatile int lastBatchSize;
 
     public LogBuffer(int capacity, int batchSize, long batchTimeoutMs) {
+        // Fixed batching: always aim for batchSize, wait at most batchTimeoutMs to fill it
+        this(capacity, batchSize, batchSize, batchTimeoutMs);
+    }
+
+    public LogBuffer(int capacity, int minBatchSize, int maxBatchSize, long targetLatencyMs) {
+        this(capacity, minBatchSize, maxBatchSize, targetLatencyMs, OverflowPolicy.DROP, null);
+    }
+
+    public LogBuffer(int capacity, int minBatchSize, int maxBatchSize, long targetLatencyMs,
+                     OverflowPolicy overflowPolicy, SpillQueue spillQueue) {
+        if (overflowPolicy == OverflowPolicy.SPILL && spillQueue == null) {
+            throw new IllegalArgumentException("SPILL overflow policy requires a spill queue");
+        }
         this.buffer = new LinkedBlockingQueue<>(capacity);
-        this.batchSize = batchSize;
-        this.batchTimeoutMs = batchTimeoutMs;
+        this.capacity = capacity;
+        this.minBatchSize = Math.max(1, minBatchSize);
+        this.maxBatchSize = Math.max(this.minBatchSize, maxBatchSize);
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(targetLatencyMs);
+        this.currentBatchSize = new AtomicInteger(this.minBatchSize);
+        this.batchCount = new AtomicLong(0);
+        this.batchedEntries = new AtomicLong(0);
+        this.overflowPolicy = overflowPolicy;
+        this.spillQueue = overflowPolicy == OverflowPolicy.SPILL ? spillQueue : null;
+        this.droppedCount = new AtomicLong(0);
+        this.blockedCount = new AtomicLong(0);
     }
 
+    @Override
     public boolean offer(LogEntry entry) {
-        return buffer.offer(entry);
+        // While older entries sit on disk, newer ones queue up behind them to keep order
+        if (spillQueue != null && spillQueue.hasPending()) {
+            return spill(entry);
+        }
+        if (buffer.offer(entry)) {
+            return true;
+        }
+
+        switch (overflowPolicy) {
+            case BLOCK:
+                // Backpressure: park the producer (file tailer) until processors catch up
+                blockedCount.incrementAndGet();
+                try {
+                    buffer.put(entry);
+                    return true;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    droppedCount.incrementAndGet();
+                    return false;
+                }
+            case SPILL:
+                return spill(entry);
+            default:
+                droppedCount.incrementAndGet();
+                return false;
+        }
+    }
+
+    private boolean spill(LogEntry entry) {
+        if (spillQueue.append(entry)) {
+            return true;
+        }
+        droppedCount.incrementAndGet();
+        return false;
     }
 
     public void put(LogEntry entry) throws InterruptedException {
@@ -25,36 +96,135 @@ public class LogBuffer {
     }
 
     public List<LogEntry> takeBatch() throws InterruptedException {
-        List<LogEntry> batch = new ArrayList<>(batchSize);
+        return nextBatch(-1);
+    }
+
+    // Like takeBatch, but gives up and returns an empty list if nothing arrives within timeoutMs
+    public List<LogEntry> pollBatch(long timeoutMs) throws InterruptedException {
+        return nextBatch(timeoutMs);
+    }
+
+    private List<LogEntry> nextBatch(long timeoutMs) throws InterruptedException {
+        int target = currentBatchSize.get();
+        List<LogEntry> batch = new ArrayList<>(target);
+
+        // Memory holds the oldest entries; only read back from disk once it has been emptied
+        if (spillQueue != null && spillQueue.hasPending() && buffer.isEmpty()
+                && spillQueue.poll(batch, target) > 0) {
+            adaptBatchSize(batch.size(), target);
+            return batch;
+        }
 
         // Wait for first element
-        LogEntry firstEntry = buffer.take();
-        batch.add(firstEntry);
-
-        // Try to gather more elements up to batchSize or timeout
-        long endTime = System.currentTimeMillis() + batchTimeoutMs;
-
-        while (batch.size() < batchSize && System.currentTimeMillis() < endTime) {
-            LogEntry entry = buffer.poll();
-            if (entry != null) {
-                batch.add(entry);
-            } else {
-                Thread.sleep(10); // Small sleep to prevent busy waiting
-            }
+        LogEntry first = timeoutMs < 0 ? buffer.take() : buffer.poll(timeoutMs, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return batch;
         }
+        batch.add(first);
 
+        fillBatch(batch, target);
         return batch;
     }
 
+    private void fillBatch(List<LogEntry> batch, int target) throws InterruptedException {
+        // Grab whatever is already queued without waiting
+        buffer.drainTo(batch, target - batch.size());
+
+        // Queue ran dry before the batch filled: linger briefly for stragglers, then flush
+        long deadline = System.nanoTime() + lingerNanos;
+        while (batch.size() < target) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            LogEntry entry = buffer.poll(remaining, TimeUnit.NANOSECONDS);
+            if (entry == null) {
+                break;
+            }
+            batch.add(entry);
+            buffer.drainTo(batch, target - batch.size());
+        }
+
+        adaptBatchSize(batch.size(), target);
+    }
+
+    private void adaptBatchSize(int taken, int target) {
+        lastBatchSize = taken;
+        batchCount.incrementAndGet();
+        batchedEntries.addAndGet(taken);
+
+        boolean backlog = !buffer.isEmpty() || (spillQueue != null && spillQueue.hasPending());
+        if (taken >= target && backlog) {
+            // Backlog is building up: take bigger bites
+            currentBatchSize.compareAndSet(target, Math.min(maxBatchSize, target * 2));
+        } else if (taken < target / 4) {
+            // Mostly idle: shrink so the next batch flushes sooner
+            currentBatchSize.compareAndSet(target, Math.max(minBatchSize, target / 2));
+        }
+    }
+
+    @Override
     public int size() {
         return buffer.size();
     }
 
+    @Override
+    public long getBacklog() {
+        return buffer.size() + (spillQueue != null && spillQueue.hasPending() ? spillQueue.getPendingCount() : 0);
+    }
+
+    @Override
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
     public boolean isEmpty() {
         return buffer.isEmpty();
     }
 
+    // True when entries are waiting in memory or on disk
+    public boolean hasBacklog() {
+        return !buffer.isEmpty() || (spillQueue != null && spillQueue.hasPending());
+    }
+
     public int remainingCapacity() {
         return buffer.remainingCapacity();
     }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getCurrentBatchSize() {
+        return currentBatchSize.get();
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        long batches = batchCount.get();
+        stats.put("size", buffer.size());
+        stats.put("capacity", capacity);
+        stats.put("currentBatchSize", currentBatchSize.get());
+        stats.put("lastBatchSize", lastBatchSize);
+        stats.put("minBatchSize", minBatchSize);
+        stats.put("maxBatchSize", maxBatchSize);
+        stats.put("batches", batches);
+        stats.put("avgBatchSize", batches > 0 ? (double) batchedEntries.get() / batches : 0.0);
+        stats.put("overflowPolicy", overflowPolicy.name());
+        stats.put("dropped", droppedCount.get());
+        stats.put("blocked", blockedCount.get());
+        if (spillQueue != null) {
+            stats.put("spill", spillQueue.getStats());
+        }
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        if (spillQueue != null) {
+            spillQueue.close();
+        }
+    }
 }
@@ -1,53 +1,105 @@
 package com.logaggregator.core;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
-import java.util.HashMap;
+import java.time.ZoneId;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
-
+// About 48 bytes before content: a sequence number instead of a random UUID string, event time as
+// epoch nanos instead of a LocalDateTime, the level as its ordinal and the source as an interned name.
+// The original getters remain and build the old types when called. Fields go in a FieldStore
+// (shared key schema, unboxed numbers); getFields() is a Map view over it.
 public class LogEntry {
-    private final String id;
+    private static final AtomicLong nextSequence = new AtomicLong(1);
+    private static final LogLevel[] LEVELS = LogLevel.values();
+    private static final long NANOS_PER_MILLI = 1_000_000;
+
+    private final long sequence;
+    private final long eventTimeNanos;
+    // Shared through SourceTable; a private copy only once the table is full
     private final String source;
+    private final byte level;
     private final String rawMessage;
-    private final LogLevel level;
-    private final LocalDateTime timestamp;
-    private final String message;
-    private final Map<String, Object> fields;
+    // Not final: LazyLogEntry fills these in when they are first read
+    String message;
+    // Allocated with the first field
+    FieldStore fields;
 
     public LogEntry(String source, String rawMessage, LogLevel level,
             LocalDateTime timestamp, String message) {
-        this.id = generateId();
-        this.source = source;
+        this(toEpochNanos(timestamp), source, rawMessage, level, message);
+    }
+
+    // For parsers that already have the event time as epoch millis
+    public LogEntry(String source, String rawMessage, LogLevel level,
+            long eventTimeMillis, String message) {
+        this(eventTimeMillis * NANOS_PER_MILLI, source, rawMessage, level, message);
+    }
+
+    // Message left null for subclasses that decode it on demand (see LazyLogEntry)
+    protected LogEntry(String source, String rawMessage, LogLevel level, long eventTimeMillis) {
+        this(eventTimeMillis * NANOS_PER_MILLI, source, rawMessage, level, null);
+    }
+
+    private LogEntry(long eventTimeNanos, String source, String rawMessage, LogLevel level, String message) {
+        this.sequence = nextSequence.getAndIncrement();
+        this.source = SourceTable.intern(source);
         this.rawMessage = rawMessage;
-        this.level = level;
-        this.timestamp = timestamp;
+        this.level = (byte) level.ordinal();
+        this.eventTimeNanos = eventTimeNanos;
         this.message = message;
-        this.fields = new HashMap<>();
     }
 
-    private String generateId() {
-        return java.util.UUID.randomUUID().toString();
+    public static LogEntry ofEpochNanos(String source, String rawMessage, LogLevel level,
+            long eventTimeNanos, String message) {
+        return new LogEntry(eventTimeNanos, source, rawMessage, level, message);
+    }
+
+    private static long toEpochNanos(LocalDateTime timestamp) {
+        Instant instant = timestamp.atZone(ZoneId.systemDefault()).toInstant();
+        return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
     }
 
     // Getters
+    // Increases with creation order across the process; not stable across restarts
+    public long getSequence() {
+        return sequence;
+    }
+
     public String getId() {
-        return id;
+        return Long.toString(sequence);
     }
 
     public String getSource() {
         return source;
     }
 
+    // -1 for sources that were not interned
+    public int getSourceId() {
+        return SourceTable.idOf(source);
+    }
+
     public String getRawMessage() {
         return rawMessage;
     }
 
     public LogLevel getLevel() {
-        return level;
+        return LEVELS[level];
     }
 
+    // Built on each call; comparisons should use getEventTimeNanos()
     public LocalDateTime getTimestamp() {
-        return timestamp;
+        return LocalDateTime.ofInstant(Instant.ofEpochSecond(0, eventTimeNanos), ZoneId.systemDefault());
+    }
+
+    public long getEventTimeNanos() {
+        return eventTimeNanos;
+    }
+
+    // Event time on the local clock, comparable with System.currentTimeMillis()
+    public long getEventTimeMillis() {
+        return Math.floorDiv(eventTimeNanos, NANOS_PER_MILLI);
     }
 
     public String getMessage() {
@@ -55,16 +107,32 @@ public class LogEntry {
     }
 
     public Map<String, Object> getFields() {
-        return fields;
+        if (fields == null) {
+            fields = new FieldStore();
+        }
+        return fields.asMap();
+    }
+
+    // One field; cheaper than getFields() for entries that decode lazily
+    public Object getField(String name) {
+        return fields != null ? fields.get(name) : null;
     }
 
     public void addField(String key, Object value) {
+        if (fields == null) {
+            fields = new FieldStore();
+        }
         fields.put(key, value);
     }
 
+    // For parsers that built the fields themselves; replaces any added so far
+    public void setFields(FieldStore fields) {
+        this.fields = fields;
+    }
+
     @Override
     public String toString() {
         return String.format("[%s] %s %s: %s",
-                timestamp, level, source, message);
+                getTimestamp(), getLevel(), getSource(), getMessage());
     }
 }
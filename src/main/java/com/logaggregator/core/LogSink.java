@@ -0,0 +1,15 @@
+package com.logaggregator.core;
+
+import java.util.Map;
+
+// Where collectors hand parsed entries: a single LogBuffer or a source-partitioned set of them
+public interface LogSink {
+    boolean offer(LogEntry entry);
+    long getDroppedCount();
+    int size();
+    // Entries waiting in memory plus those spilled to disk
+    long getBacklog();
+    int getCapacity();
+    Map<String, Object> getStats();
+    void close();
+}
@@ -0,0 +1,5 @@
+package com.logaggregator.core;
+
+public enum OverflowPolicy {
+    DROP, BLOCK, SPILL
+}
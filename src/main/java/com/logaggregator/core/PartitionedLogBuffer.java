@@ -0,0 +1,105 @@
+package com.logaggregator.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+// Routes each entry to one of N LogBuffers by source, so all entries of a source stay in one
+// FIFO and producers for different sources don't contend on the same queue.
+public class PartitionedLogBuffer implements LogSink {
+    private final LogBuffer[] partitions;
+
+    public PartitionedLogBuffer(int partitionCount, IntFunction<LogBuffer> factory) {
+        this.partitions = new LogBuffer[Math.max(1, partitionCount)];
+        for (int i = 0; i < partitions.length; i++) {
+            partitions[i] = factory.apply(i);
+        }
+    }
+
+    public int partitionFor(String source) {
+        int h = source != null ? source.hashCode() : 0;
+        // Spread the high bits, String hashes of similar file names differ mostly in the low ones
+        return Math.floorMod(h ^ (h >>> 16), partitions.length);
+    }
+
+    @Override
+    public boolean offer(LogEntry entry) {
+        return partitions[partitionFor(entry.getSource())].offer(entry);
+    }
+
+    public LogBuffer getPartition(int index) {
+        return partitions[index];
+    }
+
+    public int getPartitionCount() {
+        return partitions.length;
+    }
+
+    @Override
+    public long getDroppedCount() {
+        long dropped = 0;
+        for (LogBuffer partition : partitions) {
+            dropped += partition.getDroppedCount();
+        }
+        return dropped;
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (LogBuffer partition : partitions) {
+            size += partition.size();
+        }
+        return size;
+    }
+
+    @Override
+    public long getBacklog() {
+        long backlog = 0;
+        for (LogBuffer partition : partitions) {
+            backlog += partition.getBacklog();
+        }
+        return backlog;
+    }
+
+    @Override
+    public int getCapacity() {
+        int capacity = 0;
+        for (LogBuffer partition : partitions) {
+            capacity += partition.getCapacity();
+        }
+        return capacity;
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        List<Integer> sizes = new ArrayList<>(partitions.length);
+        int max = 0;
+        for (LogBuffer partition : partitions) {
+            int size = partition.size();
+            sizes.add(size);
+            max = Math.max(max, size);
+        }
+        int total = size();
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", total);
+        stats.put("capacity", getCapacity());
+        stats.put("dropped", getDroppedCount());
+        stats.put("partitions", partitions.length);
+        stats.put("partitionSizes", sizes);
+        // 1.0 is perfectly even; N means everything queued sits in one partition
+        stats.put("skew", total > 0 ? (double) max * partitions.length / total : 1.0);
+        stats.put("partition0", partitions[0].getStats());
+        return stats;
+    }
+
+    @Override
+    public void close() {
+        for (LogBuffer partition : partitions) {
+            partition.close();
+        }
+    }
+}
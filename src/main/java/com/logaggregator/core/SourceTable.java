@@ -0,0 +1,102 @@
+package com.logaggregator.core;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Interns source names so entries from one source share a single copy of the name, and gives each
+// interned name a small id. Ids are never reused. Source names come from clients (the ingest API,
+// syslog), so the table is capped: past MAX_SOURCES new names are not interned and entries keep
+// their own String, which costs memory but never merges distinct sources.
+public class SourceTable {
+    private static final int NO_SOURCE = -1;
+    static final int MAX_SOURCES = 10_000;
+
+    private static final SourceTable table = new SourceTable(MAX_SOURCES);
+
+    private final int maxSources;
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final AtomicLong uninternedLookups = new AtomicLong(0);
+    private volatile String[] names = new String[256];
+    private int size;
+
+    SourceTable(int maxSources) {
+        this.maxSources = maxSources;
+    }
+
+    // The shared instance of the name, or the name itself once the table is full
+    public static String intern(String source) {
+        return table.canonical(source);
+    }
+
+    // NO_SOURCE for null and for names that were not interned
+    public static int idOf(String source) {
+        return table.id(source);
+    }
+
+    public static String nameOf(int id) {
+        return table.name(id);
+    }
+
+    public static int size() {
+        return table.ids.size();
+    }
+
+    public static Map<String, Object> getStats() {
+        return table.stats();
+    }
+
+    String canonical(String source) {
+        int id = id(source);
+        return id != NO_SOURCE ? names[id] : source;
+    }
+
+    int id(String source) {
+        if (source == null) {
+            return NO_SOURCE;
+        }
+        Integer id = ids.get(source);
+        if (id != null) {
+            return id;
+        }
+        if (ids.size() >= maxSources) {
+            uninternedLookups.incrementAndGet();
+            return NO_SOURCE;
+        }
+        return register(source);
+    }
+
+    private synchronized int register(String source) {
+        Integer id = ids.get(source);
+        if (id != null) {
+            return id;
+        }
+        if (size >= maxSources) {
+            uninternedLookups.incrementAndGet();
+            return NO_SOURCE;
+        }
+        String[] current = names;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        current[size] = source;
+        // Publish the name before the id can be handed out
+        names = current;
+        ids.put(source, size);
+        return size++;
+    }
+
+    String name(int id) {
+        return id != NO_SOURCE ? names[id] : null;
+    }
+
+    Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("sources", ids.size());
+        stats.put("maxSources", maxSources);
+        stats.put("uninternedLookups", uninternedLookups.get());
+        return stats;
+    }
+}
@@ -0,0 +1,404 @@
+package com.logaggregator.core;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class SpillQueue {
+    private static final Logger logger = LoggerFactory.getLogger(SpillQueue.class);
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final String SEGMENT_PREFIX = "spill-";
+    private static final String SEGMENT_SUFFIX = ".jsonl";
+    // Unreadable segments are renamed with this suffix and left for inspection
+    private static final String QUARANTINE_SUFFIX = ".corrupt";
+
+    private final Path directory;
+    private final long maxBytes;
+    private final long segmentBytes;
+    private final ReentrantLock lock;
+
+    private final List<Long> segments;
+    private OutputStream writer;
+    private long writeSegment;
+    private long writeSegmentBytes;
+    private BufferedReader reader;
+    private long readSegment;
+    private long diskBytes;
+    private long pending;
+    private volatile boolean hasPending;
+
+    private final AtomicLong spilledCount;
+    private final AtomicLong drainedCount;
+    private final AtomicLong rejectedCount;
+    private final AtomicLong corruptCount;
+    private final AtomicLong quarantinedCount;
+
+    public SpillQueue(String directory, long maxBytes, long segmentBytes) throws IOException {
+        this.directory = Paths.get(directory);
+        this.maxBytes = maxBytes;
+        this.segmentBytes = segmentBytes;
+        this.lock = new ReentrantLock();
+        this.segments = new ArrayList<>();
+        this.readSegment = -1;
+        this.spilledCount = new AtomicLong(0);
+        this.drainedCount = new AtomicLong(0);
+        this.rejectedCount = new AtomicLong(0);
+        this.corruptCount = new AtomicLong(0);
+        this.quarantinedCount = new AtomicLong(0);
+
+        Files.createDirectories(this.directory);
+        recoverSegments();
+    }
+
+    private void recoverSegments() throws IOException {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+                SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path segment : stream) {
+                String name = segment.getFileName().toString();
+                segments.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                        name.length() - SEGMENT_SUFFIX.length())));
+            }
+        }
+        Collections.sort(segments);
+
+        for (long segment : segments) {
+            Path path = segmentPath(segment);
+            diskBytes += Files.size(path);
+            pending += countRecords(path);
+        }
+        writeSegment = segments.isEmpty() ? 0 : segments.get(segments.size() - 1);
+        hasPending = pending > 0;
+
+        if (hasPending) {
+            logger.info("Recovered {} spilled log entries from {} segment(s) in {}",
+                    pending, segments.size(), directory.toAbsolutePath());
+        }
+    }
+
+    public boolean hasPending() {
+        return hasPending;
+    }
+
+    public boolean append(LogEntry entry) {
+        byte[] line;
+        try {
+            line = mapper.writeValueAsBytes(toRecord(entry));
+        } catch (IOException e) {
+            rejectedCount.incrementAndGet();
+            return false;
+        }
+
+        lock.lock();
+        try {
+            if (diskBytes + line.length + 1 > maxBytes) {
+                rejectedCount.incrementAndGet();
+                return false;
+            }
+            if (writer == null || writeSegmentBytes >= segmentBytes) {
+                rollSegment();
+            }
+            writer.write(line);
+            writer.write('\n');
+            writeSegmentBytes += line.length + 1;
+            diskBytes += line.length + 1;
+            pending++;
+            hasPending = true;
+            spilledCount.incrementAndGet();
+            return true;
+        } catch (IOException e) {
+            logger.error("Failed to spill log entry to {}", directory, e);
+            rejectedCount.incrementAndGet();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Records that can't be decoded (a line cut short by a crash, garbage) are skipped and a segment
+    // that can't be read at all is moved aside, so a damaged spill never holds up ingestion
+    public int poll(List<LogEntry> batch, int maxEntries) {
+        lock.lock();
+        try {
+            int taken = 0;
+            while (taken < maxEntries && pending > 0) {
+                String line;
+                try {
+                    line = readLine();
+                } catch (IOException e) {
+                    quarantineReadSegment(e);
+                    continue;
+                }
+                if (line == null) {
+                    // Everything written has been read, so the count was off (lines lost in a crash)
+                    logger.warn("Spill queue expected {} more entries in {}, found none", pending, directory);
+                    pending = 0;
+                    break;
+                }
+                if (line.isEmpty()) {
+                    continue;
+                }
+                pending--;
+                try {
+                    batch.add(fromRecord(line));
+                    taken++;
+                } catch (IOException | RuntimeException e) {
+                    corruptCount.incrementAndGet();
+                    logger.warn("Skipping unreadable spilled log entry in {}: {}", segmentPath(readSegment), e.getMessage());
+                }
+            }
+            if (pending == 0) {
+                reset();
+            }
+            drainedCount.addAndGet(taken);
+            return taken;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private String readLine() throws IOException {
+        while (true) {
+            if (reader == null) {
+                if (segments.isEmpty()) {
+                    return null;
+                }
+                readSegment = segments.get(0);
+                reader = Files.newBufferedReader(segmentPath(readSegment), StandardCharsets.UTF_8);
+            }
+            if (writer != null && readSegment == writeSegment) {
+                // Make everything appended so far visible to the reader
+                writer.flush();
+            }
+
+            String line = reader.readLine();
+            if (line != null) {
+                return line;
+            }
+            if (readSegment == writeSegment && writer != null) {
+                return null;
+            }
+
+            // Segment fully consumed, move on to the next one
+            reader.close();
+            reader = null;
+            Path consumed = segmentPath(segments.remove(0));
+            try {
+                diskBytes -= Files.size(consumed);
+                Files.deleteIfExists(consumed);
+            } catch (IOException e) {
+                logger.warn("Failed to delete consumed spill segment {}", consumed, e);
+            }
+        }
+    }
+
+    private void quarantineReadSegment(IOException cause) {
+        Path path = segmentPath(segments.remove(0));
+        logger.error("Spill segment {} is unreadable, moving it aside", path, cause);
+        quarantinedCount.incrementAndGet();
+        try {
+            if (reader != null) {
+                reader.close();
+            }
+            if (writer != null && readSegment == writeSegment) {
+                // The next append starts a fresh segment
+                writer.close();
+                writer = null;
+            }
+        } catch (IOException e) {
+            logger.warn("Error closing spill segment {}", path, e);
+        }
+        reader = null;
+        try {
+            diskBytes -= Files.size(path);
+            Files.move(path, path.resolveSibling(path.getFileName() + QUARANTINE_SUFFIX),
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            logger.error("Failed to move spill segment {} aside", path, e);
+        }
+
+        // The entries left are whatever the remaining segments hold
+        pending = 0;
+        for (long segment : segments) {
+            try {
+                if (writer != null && segment == writeSegment) {
+                    writer.flush();
+                }
+                pending += countRecords(segmentPath(segment));
+            } catch (IOException e) {
+                logger.error("Failed to count entries in spill segment {}", segmentPath(segment), e);
+            }
+        }
+        hasPending = pending > 0;
+    }
+
+    // Non-empty lines, counted on bytes so a segment with undecodable content can still be counted
+    private static long countRecords(Path path) throws IOException {
+        long records = 0;
+        boolean inLine = false;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(path), 64 * 1024)) {
+            int b;
+            while ((b = in.read()) != -1) {
+                if (b == '\n') {
+                    if (inLine) {
+                        records++;
+                    }
+                    inLine = false;
+                } else {
+                    inLine = true;
+                }
+            }
+        }
+        return inLine ? records + 1 : records;
+    }
+
+    private void rollSegment() throws IOException {
+        if (writer != null) {
+            writer.flush();
+            writer.close();
+        }
+        writeSegment++;
+        segments.add(writeSegment);
+        writer = new BufferedOutputStream(Files.newOutputStream(segmentPath(writeSegment),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND), 64 * 1024);
+        writeSegmentBytes = 0;
+    }
+
+    private void reset() {
+        // Everything spilled has been handed back; start over with an empty directory
+        try {
+            if (reader != null) {
+                reader.close();
+            }
+            if (writer != null) {
+                writer.close();
+            }
+            for (long segment : segments) {
+                Files.deleteIfExists(segmentPath(segment));
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to clean up spill segments in {}", directory, e);
+        }
+        reader = null;
+        writer = null;
+        segments.clear();
+        diskBytes = 0;
+        hasPending = false;
+    }
+
+    private Path segmentPath(long segment) {
+        return directory.resolve(String.format("%s%012d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+    }
+
+    private Map<String, Object> toRecord(LogEntry entry) {
+        Map<String, Object> record = new LinkedHashMap<>();
+        record.put("source", entry.getSource());
+        record.put("level", entry.getLevel().name());
+        record.put("timestamp", entry.getTimestamp().toString());
+        record.put("timeNanos", entry.getEventTimeNanos());
+        record.put("message", entry.getMessage());
+        record.put("raw", entry.getRawMessage());
+        if (!entry.getFields().isEmpty()) {
+            record.put("fields", entry.getFields());
+        }
+        return record;
+    }
+
+    @SuppressWarnings("unchecked")
+    private LogEntry fromRecord(String line) throws IOException {
+        Map<String, Object> record = mapper.readValue(line, Map.class);
+        // Segments written before timeNanos existed only carry the local timestamp
+        Object timeNanos = record.get("timeNanos");
+        LogEntry entry = timeNanos instanceof Number
+                ? LogEntry.ofEpochNanos(
+                        (String) record.get("source"),
+                        (String) record.get("raw"),
+                        LogLevel.valueOf((String) record.get("level")),
+                        ((Number) timeNanos).longValue(),
+                        (String) record.get("message"))
+                : new LogEntry(
+                        (String) record.get("source"),
+                        (String) record.get("raw"),
+                        LogLevel.valueOf((String) record.get("level")),
+                        LocalDateTime.parse((String) record.get("timestamp")),
+                        (String) record.get("message"));
+        Object fields = record.get("fields");
+        if (fields instanceof Map) {
+            ((Map<String, Object>) fields).forEach(entry::addField);
+        }
+        return entry;
+    }
+
+    public long getPendingCount() {
+        lock.lock();
+        try {
+            return pending;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        lock.lock();
+        try {
+            stats.put("pending", pending);
+            stats.put("diskBytes", diskBytes);
+            stats.put("segments", segments.size());
+        } finally {
+            lock.unlock();
+        }
+        stats.put("maxBytes", maxBytes);
+        stats.put("spilled", spilledCount.get());
+        stats.put("drained", drainedCount.get());
+        stats.put("rejected", rejectedCount.get());
+        stats.put("corrupt", corruptCount.get());
+        stats.put("quarantinedSegments", quarantinedCount.get());
+        return stats;
+    }
+
+    public void close() {
+        lock.lock();
+        try {
+            if (writer != null) {
+                // Everything appended reaches the disk before shutdown
+                writer.flush();
+                writer.close();
+                writer = null;
+            }
+            if (reader != null) {
+                reader.close();
+                reader = null;
+            }
+        } catch (IOException e) {
+            logger.warn("Error closing spill queue", e);
+        } finally {
+            lock.unlock();
+        }
+        if (pending > 0) {
+            logger.info("Spill queue closed with {} entries pending in {}", pending, directory.toAbsolutePath());
+        }
+    }
+}
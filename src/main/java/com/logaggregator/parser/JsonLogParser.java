@@ -1,21 +1,41 @@
 package com.logaggregator.parser;
 
+import com.logaggregator.core.FieldStore;
+import com.logaggregator.core.IndexedFields;
+import com.logaggregator.core.LazyLogEntry;
 import com.logaggregator.core.LogEntry;
 import com.logaggregator.core.LogLevel;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.util.Map;
 import java.util.Optional;
 
 
+// Parses a line in one pass over Jackson's token stream instead of building a tree: known field
+// names are looked up once in a table, nested objects and arrays are skipped, and numbers and
+// booleans keep their type, unboxed in the entry's FieldStore. Anything not starting with '{' is
+// rejected before Jackson is involved.
 public class JsonLogParser implements LogParser{
-    private static final ObjectMapper mapper = new ObjectMapper();
-    private static final DateTimeFormatter[] DATE_FORMATTERS = {
-            DateTimeFormatter.ISO_LOCAL_DATE_TIME,
-            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"),
-            DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss")
-    };
+    private static final JsonFactory factory = new JsonFactory();
+
+    private enum Role { MESSAGE, TIMESTAMP, LEVEL }
+
+    // Alias -> role and rank; a lower rank wins when a line carries several aliases of one role
+    private record Alias(Role role, int rank) {}
+
+    private static final Map<String, Alias> ALIASES = Map.of(
+            "message", new Alias(Role.MESSAGE, 0),
+            "msg", new Alias(Role.MESSAGE, 1),
+            "log", new Alias(Role.MESSAGE, 2),
+            "timestamp", new Alias(Role.TIMESTAMP, 0),
+            "time", new Alias(Role.TIMESTAMP, 1),
+            "@timestamp", new Alias(Role.TIMESTAMP, 2),
+            "level", new Alias(Role.LEVEL, 0),
+            "loglevel", new Alias(Role.LEVEL, 1),
+            "severity", new Alias(Role.LEVEL, 2)
+    );
 
     @Override
     public boolean supports(String logFormat) {
@@ -23,70 +43,181 @@ public class JsonLogParser implements LogParser{
     }
 
     @Override
-    public Optional<LogEntry> parse(String source, String rawLine) {
-        try {
-            JsonNode jsonNode = mapper.readTree(rawLine.trim());
-
-            // Extract basic fields
-            String timestampStr = getField(jsonNode, "timestamp", "time", "@timestamp");
-            String levelStr = getField(jsonNode, "level", "loglevel", "severity");
-            String message = getField(jsonNode, "message", "msg", "log");
+    public Sniff sniff(String rawLine) {
+        return startsWithObject(rawLine) ? Sniff.YES : Sniff.NO;
+    }
 
-            if (message == null) {
-                return Optional.empty();
+    // The line was validated by the first pass, so decoding it again cannot fail
+    private static final LazyLogEntry.Decoder DECODER = new LazyLogEntry.Decoder() {
+        @Override
+        public String message(String raw, int[] offsets) {
+            String[] values = new String[Role.values().length];
+            try {
+                read(raw, values, new int[]{Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE}, false, null);
+            } catch (IOException e) {
+                return raw;
             }
+            return values[Role.MESSAGE.ordinal()];
+        }
 
-            // Parse timestamp
-            LocalDateTime timestamp = parseTimestamp(timestampStr);
-            if (timestamp == null) {
-                timestamp = LocalDateTime.now();
+        @Override
+        public void fields(String raw, int[] offsets, FieldStore into) {
+            try {
+                read(raw, null, null, true, into);
+            } catch (IOException e) {
+                // Keeps whatever was known up front
             }
+        }
+    };
 
-            // Parse log level
-            LogLevel level = parseLogLevel(levelStr);
+    @Override
+    public Optional<LogEntry> parse(String source, String rawLine) {
+        if (!startsWithObject(rawLine)) {
+            return Optional.empty();
+        }
 
-            // Create log entry
-            LogEntry entry = new LogEntry(source, rawLine, level, timestamp, message);
+        String[] values = new String[Role.values().length];
+        int[] ranks = {Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE};
+        boolean allFields = IndexedFields.isAll();
+        FieldStore fields;
+        try {
+            fields = read(rawLine, values, ranks, allFields, null);
+        } catch (IOException e) {
+            // Starts like JSON but isn't
+            return Optional.empty();
+        }
 
-            // Add all JSON fields as additional fields
-            jsonNode.fields().forEachRemaining(field -> {
-                if (!field.getKey().equals("message") && !field.getKey().equals("timestamp")) {
-                    entry.addField(field.getKey(), field.getValue().asText());
-                }
-            });
+        String message = values[Role.MESSAGE.ordinal()];
+        if (message == null) {
+            return Optional.empty();
+        }
 
+        long timestamp = TimestampParser.parseOrNow(source, values[Role.TIMESTAMP.ordinal()]);
+        LogLevel level = parseLogLevel(values[Role.LEVEL.ordinal()]);
+        if (allFields) {
+            LogEntry entry = new LogEntry(source, rawLine, level, timestamp, message);
+            if (fields != null) {
+                entry.setFields(fields);
+            }
             return Optional.of(entry);
-
-        } catch (Exception e) {
-            // Not a valid JSON line
-            return Optional.empty();
         }
+        // Only indexed fields were taken; the rest are decoded from the line if someone asks
+        return Optional.of(new LazyLogEntry(source, rawLine, level, timestamp, message, null, DECODER, fields, true));
     }
 
-    private String getField(JsonNode node, String... fieldNames) {
-        for (String fieldName : fieldNames) {
-            JsonNode field = node.get(fieldName);
-            if (field != null && !field.isNull()) {
-                return field.asText();
+    // For callers streaming many objects from one parser (the ingest API): reads the object the
+    // parser is positioned at with the same aliases, field rules and value types as a tailed line.
+    // A string "source" or "service" field overrides the default source. Null without a message.
+    public static LogEntry readObject(JsonParser parser, String defaultSource) throws IOException {
+        String[] values = new String[Role.values().length];
+        int[] ranks = {Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE};
+        FieldStore fields = readFields(parser, values, ranks, true, null);
+
+        String message = values[Role.MESSAGE.ordinal()];
+        if (message == null) {
+            return null;
+        }
+        String source = defaultSource;
+        if (fields != null) {
+            Object named = fields.get("source");
+            if (!(named instanceof String)) {
+                named = fields.get("service");
+            }
+            if (named instanceof String) {
+                source = (String) named;
             }
         }
-        return null;
+        // There is no line to keep, so the message doubles as the raw text
+        LogEntry entry = new LogEntry(source, message, parseLogLevel(values[Role.LEVEL.ordinal()]),
+                TimestampParser.parseOrNow(source, values[Role.TIMESTAMP.ordinal()]), message);
+        if (fields != null) {
+            entry.setFields(fields);
+        }
+        return entry;
+    }
+
+    // One pass over the line. values and ranks (null when only decoding fields) receive the
+    // message, timestamp and level; fields (allocated on the first one when null, and returned) the
+    // other scalars, or only the indexed ones.
+    private static FieldStore read(String rawLine, String[] values, int[] ranks, boolean allFields,
+            FieldStore fields) throws IOException {
+        try (JsonParser parser = factory.createParser(rawLine)) {
+            parser.nextToken();
+            return readFields(parser, values, ranks, allFields, fields);
+        }
     }
 
-    private LocalDateTime parseTimestamp(String timestampStr) {
-        if (timestampStr == null) return null;
+    private static FieldStore readFields(JsonParser parser, String[] values, int[] ranks, boolean allFields,
+            FieldStore fields) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                continue;
+            }
 
-        for (DateTimeFormatter formatter : DATE_FORMATTERS) {
-            try {
-                return LocalDateTime.parse(timestampStr, formatter);
-            } catch (Exception e) {
-                // Try next formatter
+            Alias alias = values != null ? ALIASES.get(name) : null;
+            if (alias != null && alias.rank() < ranks[alias.role().ordinal()] && token != JsonToken.VALUE_NULL) {
+                ranks[alias.role().ordinal()] = alias.rank();
+                values[alias.role().ordinal()] = parser.getText();
             }
+            // Everything except the message and timestamp themselves is kept as a field
+            if (!name.equals("message") && !name.equals("timestamp")
+                    && token != JsonToken.VALUE_NULL && (allFields || IndexedFields.isIndexed(name))) {
+                if (fields == null) {
+                    fields = new FieldStore();
+                }
+                putScalar(fields, name, parser, token);
+            }
+        }
+        return fields;
+    }
+
+    private static boolean startsWithObject(String line) {
+        if (line == null) {
+            return false;
+        }
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                return c == '{';
+            }
+        }
+        return false;
+    }
+
+    private static void putScalar(FieldStore fields, String name, JsonParser parser, JsonToken token)
+            throws IOException {
+        switch (token) {
+            case VALUE_STRING:
+                fields.put(name, parser.getText());
+                break;
+            case VALUE_NUMBER_INT:
+                switch (parser.getNumberType()) {
+                    case INT:
+                        fields.putInt(name, parser.getIntValue());
+                        break;
+                    case LONG:
+                        fields.putLong(name, parser.getLongValue());
+                        break;
+                    default:
+                        fields.put(name, parser.getNumberValue());
+                }
+                break;
+            case VALUE_NUMBER_FLOAT:
+                fields.putDouble(name, parser.getDoubleValue());
+                break;
+            case VALUE_TRUE:
+            case VALUE_FALSE:
+                fields.putBoolean(name, token == JsonToken.VALUE_TRUE);
+                break;
+            default:
+                break;
         }
-        return null;
     }
 
-    private LogLevel parseLogLevel(String levelStr) {
+    public static LogLevel parseLogLevel(String levelStr) {
         if (levelStr == null) return LogLevel.INFO;
 
         try {
@@ -3,6 +3,15 @@ import com.logaggregator.core.LogEntry;
 import java.util.Optional;
 
 public interface LogParser {
+    // Result of a cheap look at a line (first bytes, no full parse) before parse() is attempted
+    enum Sniff { NO, MAYBE, YES }
+
     boolean supports(String logFormat);
     Optional<LogEntry> parse(String source, String rawLine);
-}
\ No newline at end of file
+
+    // NO: parse() would certainly fail. YES: the line clearly is this format. MAYBE: can't tell cheaply,
+    // which is also the answer for parsers that accept anything.
+    default Sniff sniff(String rawLine) {
+        return Sniff.MAYBE;
+    }
+}
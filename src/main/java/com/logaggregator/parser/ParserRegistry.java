@@ -1,50 +1,222 @@
 package com.logaggregator.parser;
 
+import com.logaggregator.core.FieldSchema;
 import com.logaggregator.core.LogEntry;
+import com.logaggregator.core.SourceTable;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class ParserRegistry {
+    private static final int DEFAULT_REPROBE_INTERVAL = 1000;
+    private static final int DEFAULT_MAX_SOURCES = 10_000;
+
     private final List<LogParser> parsers;
+    private final int reprobeInterval;
+    private final int maxSources;
+    // Which parser last succeeded for each source; lines from that source go straight to it
+    private final Map<String, SourceState> sources;
+    private final AtomicLong uncachedLines;
+
+    private static class SourceState {
+        volatile LogParser preferred;
+        final AtomicLong lines = new AtomicLong();
+        final AtomicLong hits = new AtomicLong();
+        final AtomicLong misses = new AtomicLong();
+        final AtomicLong probes = new AtomicLong();
+        final AtomicLong switches = new AtomicLong();
+    }
 
     public ParserRegistry() {
+        this(DEFAULT_REPROBE_INTERVAL, DEFAULT_MAX_SOURCES);
+    }
+
+    public ParserRegistry(int reprobeInterval, int maxSources) {
         this.parsers = new CopyOnWriteArrayList<>();
+        this.reprobeInterval = Math.max(1, reprobeInterval);
+        this.maxSources = maxSources;
+        this.sources = new ConcurrentHashMap<>();
+        this.uncachedLines = new AtomicLong(0);
         registerDefaultParsers();
     }
 
     private void registerDefaultParsers() {
         registerParser(new JsonLogParser());
+        // Before text, which accepts anything: syslog only claims lines starting with <PRI>
+        registerParser(new SyslogParser());
         registerParser(new TextLogParser());
     }
 
     public void registerParser(LogParser parser) {
-        parsers.add(parser);
+        // The text parser accepts any line, so it stays last
+        int fallback = -1;
+        for (int i = 0; i < parsers.size(); i++) {
+            if (parsers.get(i) instanceof TextLogParser) {
+                fallback = i;
+            }
+        }
+        if (fallback >= 0 && !(parser instanceof TextLogParser)) {
+            parsers.add(fallback, parser);
+        } else {
+            parsers.add(parser);
+        }
+        // Learned choices were made without this parser
+        sources.clear();
     }
 
     public Optional<LogEntry> parseLine(String source, String line, String formatHint) {
-        // First try format-specific parser
-        for (LogParser parser : parsers) {
-            if (parser.supports(formatHint)) {
-                Optional<LogEntry> result = parser.parse(source, line);
+        SourceState state = stateFor(source);
+        if (state == null) {
+            uncachedLines.incrementAndGet();
+            return probe(null, source, line, formatHint);
+        }
+
+        // Every reprobeInterval lines the full probe runs anyway, so a source whose format
+        // changed is noticed even while the old parser keeps succeeding
+        LogParser preferred = state.preferred;
+        long lines = state.lines.incrementAndGet();
+        if (preferred != null && lines % reprobeInterval != 0) {
+            if (canTake(preferred, line)) {
+                Optional<LogEntry> result = preferred.parse(source, line);
                 if (result.isPresent()) {
+                    state.hits.incrementAndGet();
                     return result;
                 }
             }
+            state.misses.incrementAndGet();
         }
+        return probe(state, source, line, formatHint);
+    }
 
-        // Then try all parsers
+    // A parser that is sure of a line always takes it; an unsure one only when no other parser is sure
+    // and none ranked ahead of it is unsure too. The text parser never misses, so after one line a
+    // pattern didn't match it would otherwise keep every later line from the configured patterns.
+    private boolean canTake(LogParser preferred, String line) {
+        LogParser.Sniff sniff = preferred.sniff(line);
+        if (sniff != LogParser.Sniff.MAYBE) {
+            return sniff == LogParser.Sniff.YES;
+        }
+        boolean ahead = true;
         for (LogParser parser : parsers) {
-            Optional<LogEntry> result = parser.parse(source, line);
-            if (result.isPresent()) {
-                return result;
+            if (parser == preferred) {
+                ahead = false;
+                continue;
+            }
+            LogParser.Sniff other = parser.sniff(line);
+            if (other == LogParser.Sniff.YES || (ahead && other == LogParser.Sniff.MAYBE)) {
+                return false;
             }
         }
+        return true;
+    }
 
+    // Order: parsers sure of the line, then unsure ones supporting the hint, then the other unsure ones.
+    // Parsers that rule the line out are never run.
+    private Optional<LogEntry> probe(SourceState state, String source, String line, String formatHint) {
+        if (state != null) {
+            state.probes.incrementAndGet();
+        }
+        List<LogParser> unsure = new ArrayList<>(parsers.size());
+        for (LogParser parser : parsers) {
+            LogParser.Sniff sniff = parser.sniff(line);
+            if (sniff == LogParser.Sniff.YES) {
+                Optional<LogEntry> result = tryParser(state, parser, source, line);
+                if (result.isPresent()) {
+                    return result;
+                }
+            } else if (sniff == LogParser.Sniff.MAYBE) {
+                unsure.add(parser);
+            }
+        }
+        for (LogParser parser : unsure) {
+            if (parser.supports(formatHint)) {
+                Optional<LogEntry> result = tryParser(state, parser, source, line);
+                if (result.isPresent()) {
+                    return result;
+                }
+            }
+        }
+        for (LogParser parser : unsure) {
+            if (!parser.supports(formatHint)) {
+                Optional<LogEntry> result = tryParser(state, parser, source, line);
+                if (result.isPresent()) {
+                    return result;
+                }
+            }
+        }
         return Optional.empty();
     }
 
+    private Optional<LogEntry> tryParser(SourceState state, LogParser parser, String source, String line) {
+        Optional<LogEntry> result = parser.parse(source, line);
+        if (result.isPresent() && state != null && state.preferred != parser) {
+            if (state.preferred != null) {
+                state.switches.incrementAndGet();
+            }
+            state.preferred = parser;
+        }
+        return result;
+    }
+
+    private SourceState stateFor(String source) {
+        SourceState state = sources.get(source);
+        if (state == null && sources.size() < maxSources) {
+            state = sources.computeIfAbsent(source, s -> new SourceState());
+        }
+        return state;
+    }
+
     public List<LogParser> getParsers() {
         return new ArrayList<>(parsers);
     }
 
+    public Map<String, Object> getStats() {
+        long hits = 0;
+        long misses = 0;
+        long probes = 0;
+        long switches = 0;
+        List<Map.Entry<String, SourceState>> busiest = new ArrayList<>(sources.entrySet());
+        for (Map.Entry<String, SourceState> e : busiest) {
+            hits += e.getValue().hits.get();
+            misses += e.getValue().misses.get();
+            probes += e.getValue().probes.get();
+            switches += e.getValue().switches.get();
+        }
+        busiest.sort(Comparator.comparingLong((Map.Entry<String, SourceState> e) -> e.getValue().lines.get()).reversed());
+
+        Map<String, Object> perSource = new LinkedHashMap<>();
+        busiest.stream().limit(20).forEach(e -> {
+            SourceState state = e.getValue();
+            Map<String, Object> s = new HashMap<>();
+            LogParser preferred = state.preferred;
+            s.put("parser", preferred != null ? preferred.getClass().getSimpleName() : null);
+            s.put("hits", state.hits.get());
+            s.put("misses", state.misses.get());
+            s.put("probes", state.probes.get());
+            s.put("switches", state.switches.get());
+            perSource.put(e.getKey(), s);
+        });
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("parsers", parsers.stream().map(p -> p.getClass().getSimpleName()).toList());
+        stats.put("trackedSources", sources.size());
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("probes", probes);
+        stats.put("switches", switches);
+        stats.put("hitRate", hits + probes > 0 ? (double) hits / (hits + probes) : 0.0);
+        stats.put("uncachedLines", uncachedLines.get());
+        stats.put("reprobeInterval", reprobeInterval);
+        stats.put("sources", perSource);
+        stats.put("timestamps", TimestampParser.getStats());
+        stats.put("fieldSchemas", FieldSchema.getStats());
+        stats.put("sourceTable", SourceTable.getStats());
+        for (LogParser parser : parsers) {
+            if (parser instanceof PatternLogParser patternParser) {
+                stats.put("patterns", patternParser.getStats());
+            }
+        }
+        return stats;
+    }
 }
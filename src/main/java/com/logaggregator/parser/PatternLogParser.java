@@ -0,0 +1,601 @@
+package com.logaggregator.parser;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.logaggregator.core.FieldStore;
+import com.logaggregator.core.LazyLogEntry;
+import com.logaggregator.core.LogEntry;
+import com.logaggregator.core.LogLevel;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+// Grok-style parser: patterns are written with %{NAME:field:type} references to named sub-patterns
+// (built in or from the config file) and compiled once at load time. A pattern made only of literal
+// text and built-in tokens becomes a scanner that walks the line and checks the literals in place;
+// anything else becomes one anchored regex whose built-in pieces are possessive. The fields
+// "timestamp", "level" and "message" fill the entry itself, the rest are added with their type.
+public class PatternLogParser implements LogParser {
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final Pattern REFERENCE = Pattern.compile("%\\{(\\w+)(?::([\\w.@-]+))?(?::(int|long|double|string))?\\}");
+    private static final String REGEX_META = ".[]{}()*+?^$|";
+    private static final int MAX_SOURCES = 10_000;
+
+    // Numbers and words are possessive, so a failing line fails without backtracking (a literal
+    // right after them can't start with a digit or word character). NOTSPACE stays greedy because
+    // it is often closed by a bracket or comma.
+    static final Map<String, String> BUILTIN = Map.ofEntries(
+            Map.entry("INT", "[+-]?+\\d++"),
+            Map.entry("NUMBER", "[+-]?+\\d++(?:\\.\\d++)?+"),
+            Map.entry("WORD", "\\w++"),
+            Map.entry("NOTSPACE", "\\S+"),
+            Map.entry("SPACE", "\\s*+"),
+            Map.entry("DATA", ".*?"),
+            Map.entry("GREEDYDATA", ".*"),
+            Map.entry("QUOTEDSTRING", "\"(?:[^\"\\\\]++|\\\\.)*+\""),
+            Map.entry("IP", "\\d{1,3}+(?:\\.\\d{1,3}+){3}+"),
+            Map.entry("IPORHOST", "[\\w.-]++"),
+            Map.entry("UUID", "[0-9a-fA-F]{8}+(?:-[0-9a-fA-F]{4}+){3}+-[0-9a-fA-F]{12}+"),
+            Map.entry("LOGLEVEL", "(?i:TRACE|DEBUG|INFO|NOTICE|WARNING|WARN|ERROR|ERR|SEVERE|CRITICAL|CRIT|FATAL|PANIC|LOG)"),
+            Map.entry("TIMESTAMP_ISO8601", "\\d{4}+-\\d{2}+-\\d{2}+[T ]\\d{2}+:\\d{2}+:\\d{2}+(?:[.,]\\d{1,9}+)?+(?:Z|[+-]\\d{2}+:?+\\d{2}+)?+"),
+            Map.entry("HTTPDATE", "\\d{2}+/[A-Za-z]{3}+/\\d{4}+:\\d{2}+:\\d{2}+:\\d{2}+ [+-]\\d{4}+"),
+            Map.entry("SYSLOGTIMESTAMP", "[A-Z][a-z]{2}+ [ \\d]\\d \\d{2}+:\\d{2}+:\\d{2}+")
+    );
+
+    enum Type { STRING, INT, LONG, DOUBLE }
+
+    private record Capture(String field, Type type, String group) {}
+
+    // One piece of a scanned pattern: a literal, or a token of a built-in kind (capture < 0: not kept).
+    // backOff: a NOTSPACE closed by a non-space literal ends at that literal's last occurrence in the run.
+    private record Step(String literal, Token token, int capture, boolean backOff) {}
+
+    // Built-in sub-patterns the scanner understands; each scan matches exactly what the regex above would
+    enum Token {
+        INT, NUMBER, WORD, NOTSPACE, LOGLEVEL, TIMESTAMP_ISO8601, DATA, GREEDYDATA;
+
+        // End of the token starting at from, or -1; DATA and GREEDYDATA are bounded by the next literal
+        int scan(CharSequence s, int from, int to) {
+            int i = from;
+            switch (this) {
+                case INT:
+                    if (i < to && (s.charAt(i) == '+' || s.charAt(i) == '-')) {
+                        i++;
+                    }
+                    return endOfDigits(s, i, to);
+                case NUMBER:
+                    if (i < to && (s.charAt(i) == '+' || s.charAt(i) == '-')) {
+                        i++;
+                    }
+                    i = endOfDigits(s, i, to);
+                    if (i >= 0 && i + 1 < to && s.charAt(i) == '.' && isDigit(s.charAt(i + 1))) {
+                        i = endOfDigits(s, i + 1, to);
+                    }
+                    return i;
+                case WORD:
+                case LOGLEVEL:
+                    while (i < to && isWordChar(s.charAt(i))) {
+                        i++;
+                    }
+                    if (i == from || (this == LOGLEVEL && levelOf(s, from, i) == null)) {
+                        return -1;
+                    }
+                    return i;
+                case NOTSPACE:
+                    while (i < to && !isRegexSpace(s.charAt(i))) {
+                        i++;
+                    }
+                    return i > from ? i : -1;
+                case TIMESTAMP_ISO8601:
+                    return scanIsoTimestamp(s, from, to);
+                default:
+                    return -1;
+            }
+        }
+
+        // A literal after the token must not start with a character the token would have consumed
+        boolean canPrecede(char next) {
+            switch (this) {
+                case INT:
+                    return !isDigit(next);
+                case NUMBER:
+                    return !isDigit(next) && next != '.';
+                case WORD:
+                case LOGLEVEL:
+                    return !isWordChar(next);
+                case NOTSPACE:
+                    return isRegexSpace(next);
+                case TIMESTAMP_ISO8601:
+                    return !isDigit(next) && next != '.' && next != ',' && next != 'Z' && next != '+' && next != '-';
+                default:
+                    return true;
+            }
+        }
+    }
+
+    static class CompiledPattern implements LazyLogEntry.Decoder {
+        final String name;
+        final Pattern regex;
+        final List<Capture> captures;
+        // Null when the pattern needs the regex
+        final List<Step> steps;
+        // DATA and backed-off NOTSPACE settle on one occurrence of the next literal; when the rest
+        // then fails to match, only the regex can try the other occurrences
+        final boolean scanNeedsFallback;
+
+        final LongAdder attempts = new LongAdder();
+        final LongAdder matches = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final LongAdder fallbacks = new LongAdder();
+
+        CompiledPattern(String name, Pattern regex, List<Capture> captures, List<Step> steps) {
+            this.name = name;
+            this.regex = regex;
+            this.captures = captures;
+            this.steps = steps;
+            this.scanNeedsFallback = steps != null && steps.stream().anyMatch(step -> step.token() == Token.DATA || step.backOff());
+        }
+
+        // Start and end of each capture, -1 for optional groups that did not take part
+        boolean extract(String line, int[] bounds) {
+            if (steps != null) {
+                if (scan(line, bounds)) {
+                    return true;
+                }
+                if (!scanNeedsFallback) {
+                    return false;
+                }
+                fallbacks.increment();
+            }
+            Matcher matcher = regex.matcher(line);
+            if (!matcher.matches()) {
+                return false;
+            }
+            for (int i = 0; i < captures.size(); i++) {
+                bounds[2 * i] = matcher.start(captures.get(i).group());
+                bounds[2 * i + 1] = matcher.end(captures.get(i).group());
+            }
+            return true;
+        }
+
+        private boolean scan(String line, int[] bounds) {
+            int pos = 0;
+            int length = line.length();
+            for (int i = 0; i < steps.size(); i++) {
+                Step step = steps.get(i);
+                if (step.literal() != null) {
+                    if (!line.startsWith(step.literal(), pos)) {
+                        return false;
+                    }
+                    pos += step.literal().length();
+                    continue;
+                }
+
+                int end;
+                String next = i + 1 < steps.size() ? steps.get(i + 1).literal() : null;
+                if (step.token() == Token.GREEDYDATA) {
+                    end = next != null ? length - next.length() : length;
+                } else if (step.token() == Token.DATA) {
+                    end = next != null ? line.indexOf(next, pos) : length;
+                } else {
+                    end = step.token().scan(line, pos, length);
+                    if (step.backOff() && end > pos) {
+                        end = line.lastIndexOf(next, end - 1);
+                        end = end > pos ? end : -1;
+                    }
+                }
+                if (end < pos) {
+                    return false;
+                }
+                if (step.capture() >= 0) {
+                    bounds[2 * step.capture()] = pos;
+                    bounds[2 * step.capture() + 1] = end;
+                }
+                pos = end;
+            }
+            return pos == length;
+        }
+
+        @Override
+        public String message(String raw, int[] bounds) {
+            for (int i = captures.size() - 1; i >= 0; i--) {
+                if (captures.get(i).field().equals("message") && bounds[2 * i] >= 0) {
+                    return raw.substring(bounds[2 * i], bounds[2 * i + 1]);
+                }
+            }
+            return raw;
+        }
+
+        @Override
+        public void fields(String raw, int[] bounds, FieldStore into) {
+            for (int i = 0; i < captures.size(); i++) {
+                Capture capture = captures.get(i);
+                if (bounds[2 * i] >= 0 && !capture.field().equals("timestamp") && !capture.field().equals("message")) {
+                    into.put(capture.field(), typed(capture.type(), raw, bounds[2 * i], bounds[2 * i + 1]));
+                }
+            }
+            into.put("pattern", name);
+        }
+
+        @Override
+        public Object field(String raw, int[] bounds, String field) {
+            if (field.equals("pattern")) {
+                return name;
+            }
+            if (field.equals("timestamp") || field.equals("message")) {
+                return null;
+            }
+            // The last capture of a name wins, as in the store
+            for (int i = captures.size() - 1; i >= 0; i--) {
+                if (captures.get(i).field().equals(field) && bounds[2 * i] >= 0) {
+                    return typed(captures.get(i).type(), raw, bounds[2 * i], bounds[2 * i + 1]);
+                }
+            }
+            return null;
+        }
+
+        Map<String, Object> getStats() {
+            long matched = matches.sum();
+            long spent = nanos.sum();
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("mode", steps != null ? "scan" : "regex");
+            stats.put("attempts", attempts.sum());
+            stats.put("matches", matched);
+            stats.put("scanFallbacks", fallbacks.sum());
+            stats.put("avgNanosPerAttempt", attempts.sum() > 0 ? spent / attempts.sum() : 0);
+            stats.put("linesPerSecond", spent > 0 ? (long) (matched * 1e9 / spent) : 0);
+            return stats;
+        }
+    }
+
+    private final List<CompiledPattern> patterns;
+    // Pattern that matched the previous line of each source, tried first for the next one
+    private final Map<String, CompiledPattern> lastMatched;
+
+    public PatternLogParser(Map<String, String> definitions, Map<String, String> patterns) {
+        Map<String, String> library = new HashMap<>(BUILTIN);
+        library.putAll(definitions);
+        this.patterns = new ArrayList<>();
+        patterns.forEach((name, pattern) -> this.patterns.add(compile(name, pattern, library, definitions)));
+        this.lastMatched = new ConcurrentHashMap<>();
+    }
+
+    // {"definitions": {"NAME": "regex", ...}, "patterns": [{"name": "...", "pattern": "..."}, ...]}
+    public static PatternLogParser load(Path file) throws IOException {
+        JsonNode root = mapper.readTree(file.toFile());
+        Map<String, String> definitions = new LinkedHashMap<>();
+        root.path("definitions").fields().forEachRemaining(e -> definitions.put(e.getKey(), e.getValue().asText()));
+        Map<String, String> patterns = new LinkedHashMap<>();
+        for (JsonNode node : root.path("patterns")) {
+            String name = node.path("name").asText("pattern" + patterns.size());
+            if (!node.hasNonNull("pattern")) {
+                throw new IllegalArgumentException("Pattern '" + name + "' in " + file + " has no \"pattern\"");
+            }
+            patterns.put(name, node.get("pattern").asText());
+        }
+        return new PatternLogParser(definitions, patterns);
+    }
+
+    @Override
+    public boolean supports(String logFormat) {
+        // Also claims text files, so configured formats are tried before the catch-all text parser
+        return "pattern".equalsIgnoreCase(logFormat) || "text".equalsIgnoreCase(logFormat)
+                || "plain".equalsIgnoreCase(logFormat);
+    }
+
+    @Override
+    public Optional<LogEntry> parse(String source, String rawLine) {
+        if (rawLine == null || rawLine.isEmpty()) {
+            return Optional.empty();
+        }
+        CompiledPattern last = lastMatched.get(source);
+        if (last != null) {
+            Optional<LogEntry> entry = tryPattern(last, source, rawLine);
+            if (entry.isPresent()) {
+                return entry;
+            }
+        }
+        for (CompiledPattern pattern : patterns) {
+            if (pattern != last) {
+                Optional<LogEntry> entry = tryPattern(pattern, source, rawLine);
+                if (entry.isPresent()) {
+                    if (lastMatched.size() < MAX_SOURCES || lastMatched.containsKey(source)) {
+                        lastMatched.put(source, pattern);
+                    }
+                    return entry;
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    private Optional<LogEntry> tryPattern(CompiledPattern pattern, String source, String line) {
+        long start = System.nanoTime();
+        int[] bounds = new int[pattern.captures.size() * 2];
+        boolean matched = pattern.extract(line, bounds);
+        pattern.nanos.add(System.nanoTime() - start);
+        pattern.attempts.increment();
+        if (!matched) {
+            return Optional.empty();
+        }
+        pattern.matches.increment();
+        return Optional.of(toEntry(pattern, source, line, bounds));
+    }
+
+    // Timestamp and level are needed by every consumer; message and fields stay as bounds until read
+    private static LogEntry toEntry(CompiledPattern pattern, String source, String line, int[] bounds) {
+        long timestamp = TimestampParser.UNPARSED;
+        LogLevel level = null;
+        List<Capture> captures = pattern.captures;
+        for (int i = 0; i < captures.size(); i++) {
+            int start = bounds[2 * i];
+            if (start < 0) {
+                continue;
+            }
+            switch (captures.get(i).field()) {
+                case "timestamp" -> timestamp = TimestampParser.forSource(source).parse(line, start, bounds[2 * i + 1]);
+                case "level" -> level = levelOf(line, start, bounds[2 * i + 1]);
+                default -> {
+                }
+            }
+        }
+
+        return new LazyLogEntry(source, line, level != null ? level : LogLevel.INFO,
+                timestamp != TimestampParser.UNPARSED ? timestamp : System.currentTimeMillis(), bounds, pattern);
+    }
+
+    // Values that don't fit the declared type are kept as text
+    private static Object typed(Type type, String line, int start, int end) {
+        try {
+            switch (type) {
+                case INT:
+                    return Integer.parseInt(line, start, end, 10);
+                case LONG:
+                    return Long.parseLong(line, start, end, 10);
+                case DOUBLE:
+                    return Double.parseDouble(line.substring(start, end));
+                default:
+                    return line.substring(start, end);
+            }
+        } catch (NumberFormatException e) {
+            return line.substring(start, end);
+        }
+    }
+
+    static LogLevel levelOf(CharSequence s, int from, int to) {
+        switch (to - from) {
+            case 3:
+                if (matchesIgnoreCase(s, from, "ERR")) return LogLevel.ERROR;
+                if (matchesIgnoreCase(s, from, "LOG")) return LogLevel.INFO;
+                return null;
+            case 4:
+                if (matchesIgnoreCase(s, from, "INFO")) return LogLevel.INFO;
+                if (matchesIgnoreCase(s, from, "WARN")) return LogLevel.WARN;
+                if (matchesIgnoreCase(s, from, "CRIT")) return LogLevel.ERROR;
+                return null;
+            case 5:
+                if (matchesIgnoreCase(s, from, "ERROR")) return LogLevel.ERROR;
+                if (matchesIgnoreCase(s, from, "DEBUG")) return LogLevel.DEBUG;
+                if (matchesIgnoreCase(s, from, "TRACE")) return LogLevel.TRACE;
+                if (matchesIgnoreCase(s, from, "FATAL")) return LogLevel.FATAL;
+                if (matchesIgnoreCase(s, from, "PANIC")) return LogLevel.FATAL;
+                return null;
+            case 6:
+                if (matchesIgnoreCase(s, from, "NOTICE")) return LogLevel.INFO;
+                if (matchesIgnoreCase(s, from, "SEVERE")) return LogLevel.ERROR;
+                return null;
+            case 7:
+                return matchesIgnoreCase(s, from, "WARNING") ? LogLevel.WARN : null;
+            case 8:
+                return matchesIgnoreCase(s, from, "CRITICAL") ? LogLevel.ERROR : null;
+            default:
+                return null;
+        }
+    }
+
+    private static boolean matchesIgnoreCase(CharSequence s, int from, String upper) {
+        for (int i = 0; i < upper.length(); i++) {
+            if (Character.toUpperCase(s.charAt(from + i)) != upper.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static CompiledPattern compile(String name, String pattern, Map<String, String> library, Map<String, String> overrides) {
+        List<Capture> captures = new ArrayList<>();
+        String expanded = expand(name, pattern, library, captures, new ArrayDeque<>(), true);
+        Pattern regex;
+        try {
+            regex = Pattern.compile(expanded, Pattern.DOTALL);
+        } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException("Pattern '" + name + "' does not compile: " + e.getDescription(), e);
+        }
+        return new CompiledPattern(name, regex, captures, scanSteps(pattern, overrides));
+    }
+
+    // Replaces references recursively; only the pattern's own references capture, not those in definitions
+    private static String expand(String name, String pattern, Map<String, String> library, List<Capture> captures,
+            Deque<String> stack, boolean capturing) {
+        Matcher m = REFERENCE.matcher(pattern);
+        StringBuilder out = new StringBuilder();
+        while (m.find()) {
+            String ref = m.group(1);
+            String definition = library.get(ref);
+            if (definition == null) {
+                throw new IllegalArgumentException("Pattern '" + name + "' references unknown %{" + ref + "}");
+            }
+            if (stack.contains(ref)) {
+                throw new IllegalArgumentException("Pattern '" + name + "' has a cycle through %{" + ref + "}");
+            }
+            stack.push(ref);
+            String inner = expand(name, definition, library, captures, stack, false);
+            stack.pop();
+
+            String replacement;
+            if (capturing && m.group(2) != null) {
+                String group = "g" + captures.size();
+                Type type = m.group(3) != null ? Type.valueOf(m.group(3).toUpperCase()) : Type.STRING;
+                captures.add(new Capture(m.group(2), type, group));
+                replacement = "(?<" + group + ">" + inner + ")";
+            } else {
+                replacement = "(?:" + inner + ")";
+            }
+            m.appendReplacement(out, Matcher.quoteReplacement(replacement));
+        }
+        m.appendTail(out);
+        return out.toString();
+    }
+
+    // Steps for the scanner, or null if the pattern uses regex syntax or sub-patterns it doesn't know
+    private static List<Step> scanSteps(String pattern, Map<String, String> overrides) {
+        List<Step> steps = new ArrayList<>();
+        Matcher m = REFERENCE.matcher(pattern);
+        int captures = 0;
+        int pos = 0;
+        while (true) {
+            boolean found = m.find();
+            String literal = unescapeLiteral(pattern.substring(pos, found ? m.start() : pattern.length()));
+            if (literal == null) {
+                return null;
+            }
+            if (!literal.isEmpty()) {
+                if (!steps.isEmpty()) {
+                    Step previous = steps.get(steps.size() - 1);
+                    if (previous.token() == Token.GREEDYDATA && found) {
+                        return null;
+                    }
+                    if (previous.token() == Token.NOTSPACE && !isRegexSpace(literal.charAt(0))) {
+                        steps.set(steps.size() - 1, new Step(null, Token.NOTSPACE, previous.capture(), true));
+                    } else if (previous.token() != null && !previous.token().canPrecede(literal.charAt(0))) {
+                        return null;
+                    }
+                }
+                steps.add(new Step(literal, null, -1, false));
+            }
+            if (!found) {
+                break;
+            }
+
+            Token token;
+            try {
+                token = Token.valueOf(m.group(1));
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+            if (overrides.containsKey(m.group(1))) {
+                return null;
+            }
+            // Two tokens in a row, or DATA/GREEDYDATA without a literal to stop at
+            if (!steps.isEmpty() && steps.get(steps.size() - 1).token() != null) {
+                return null;
+            }
+            steps.add(new Step(null, token, m.group(2) != null ? captures++ : -1, false));
+            pos = m.end();
+        }
+        return steps.isEmpty() ? null : steps;
+    }
+
+    // Literal text with \-escapes resolved, or null if it contains regex syntax
+    private static String unescapeLiteral(String text) {
+        StringBuilder literal = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\\') {
+                if (i + 1 == text.length() || Character.isLetterOrDigit(text.charAt(i + 1))) {
+                    return null;
+                }
+                literal.append(text.charAt(++i));
+            } else if (REGEX_META.indexOf(c) >= 0) {
+                return null;
+            } else {
+                literal.append(c);
+            }
+        }
+        return literal.toString();
+    }
+
+    private static int scanIsoTimestamp(CharSequence s, int from, int to) {
+        int i = from;
+        if (to - i < 19 || !digitsAt(s, i, 4) || s.charAt(i + 4) != '-' || !digitsAt(s, i + 5, 2)
+                || s.charAt(i + 7) != '-' || !digitsAt(s, i + 8, 2)
+                || (s.charAt(i + 10) != 'T' && s.charAt(i + 10) != ' ') || !digitsAt(s, i + 11, 2)
+                || s.charAt(i + 13) != ':' || !digitsAt(s, i + 14, 2) || s.charAt(i + 16) != ':'
+                || !digitsAt(s, i + 17, 2)) {
+            return -1;
+        }
+        i += 19;
+        if (i + 1 < to && (s.charAt(i) == '.' || s.charAt(i) == ',') && isDigit(s.charAt(i + 1))) {
+            int end = i + 1;
+            while (end < to && end < i + 10 && isDigit(s.charAt(end))) {
+                end++;
+            }
+            i = end;
+        }
+        if (i < to && s.charAt(i) == 'Z') {
+            return i + 1;
+        }
+        if (i + 5 <= to && (s.charAt(i) == '+' || s.charAt(i) == '-') && digitsAt(s, i + 1, 2)) {
+            int minutes = s.charAt(i + 3) == ':' ? i + 4 : i + 3;
+            if (minutes + 2 <= to && digitsAt(s, minutes, 2)) {
+                return minutes + 2;
+            }
+        }
+        return i;
+    }
+
+    private static boolean digitsAt(CharSequence s, int at, int count) {
+        for (int i = at; i < at + count; i++) {
+            if (!isDigit(s.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int endOfDigits(CharSequence s, int from, int to) {
+        int i = from;
+        while (i < to && isDigit(s.charAt(i))) {
+            i++;
+        }
+        return i > from ? i : -1;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    // What \s matches; Character.isWhitespace also takes a few control characters
+    private static boolean isRegexSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || isDigit(c) || c == '_';
+    }
+
+    public List<String> getPatternNames() {
+        return patterns.stream().map(p -> p.name).toList();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (CompiledPattern pattern : patterns) {
+            stats.put(pattern.name, pattern.getStats());
+        }
+        return stats;
+    }
+}
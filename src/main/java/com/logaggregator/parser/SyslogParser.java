@@ -0,0 +1,105 @@
+package com.logaggregator.parser;
+
+import com.logaggregator.core.LogEntry;
+import com.logaggregator.core.LogLevel;
+
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// RFC 5424 ("<34>1 2024-01-01T10:00:00Z host app 123 ID47 [sd] msg") and the older BSD
+// RFC 3164 ("<34>Jan  1 10:00:00 host app[123]: msg"). The application name, when present,
+// becomes the entry's source so syslog traffic partitions and filters like file sources.
+public class SyslogParser implements LogParser {
+    private static final Pattern RFC5424 = Pattern.compile(
+            "^<(\\d{1,3})>(\\d{1,2}) (\\S+) (\\S+) (\\S+) (\\S+) (\\S+) (-|(?:\\[(?:[^\\]\\\\]|\\\\.)*\\])+)(?: (.*))?$",
+            Pattern.DOTALL);
+    private static final Pattern RFC3164 = Pattern.compile(
+            "^<(\\d{1,3})>([A-Z][a-z]{2} [ \\d]\\d \\d{2}:\\d{2}:\\d{2}) (\\S+) (?:([^:\\[\\s]+)(?:\\[([^\\]]*)\\])?: )?(.*)$",
+            Pattern.DOTALL);
+    private static final String NIL = "-";
+
+    @Override
+    public boolean supports(String logFormat) {
+        return "syslog".equalsIgnoreCase(logFormat);
+    }
+
+    @Override
+    public Sniff sniff(String rawLine) {
+        return rawLine != null && rawLine.length() > 2 && rawLine.charAt(0) == '<'
+                && Character.isDigit(rawLine.charAt(1)) ? Sniff.YES : Sniff.NO;
+    }
+
+    @Override
+    public Optional<LogEntry> parse(String source, String rawLine) {
+        if (rawLine == null || rawLine.isEmpty() || rawLine.charAt(0) != '<') {
+            return Optional.empty();
+        }
+
+        Matcher m = RFC5424.matcher(rawLine);
+        if (m.matches()) {
+            int pri = Integer.parseInt(m.group(1));
+            String host = m.group(4);
+            String app = m.group(5);
+            String message = m.group(9) != null ? stripBom(m.group(9)) : "";
+            LogEntry entry = new LogEntry(!NIL.equals(app) ? app : !NIL.equals(host) ? host : source,
+                    rawLine, levelOf(pri), TimestampParser.parseOrNow(source, m.group(3)), message);
+            addPriority(entry, pri);
+            addIfPresent(entry, "hostname", host);
+            addIfPresent(entry, "appname", app);
+            addIfPresent(entry, "procid", m.group(6));
+            addIfPresent(entry, "msgid", m.group(7));
+            addIfPresent(entry, "structured_data", m.group(8));
+            return Optional.of(entry);
+        }
+
+        m = RFC3164.matcher(rawLine);
+        if (m.matches()) {
+            int pri = Integer.parseInt(m.group(1));
+            String host = m.group(3);
+            String tag = m.group(4);
+            LogEntry entry = new LogEntry(tag != null ? tag : host, rawLine, levelOf(pri),
+                    TimestampParser.parseOrNow(source, m.group(2)), m.group(6));
+            addPriority(entry, pri);
+            addIfPresent(entry, "hostname", host);
+            addIfPresent(entry, "appname", tag);
+            addIfPresent(entry, "procid", m.group(5));
+            return Optional.of(entry);
+        }
+
+        return Optional.empty();
+    }
+
+    // Severity is the low three bits of PRI: 0 emergency ... 7 debug
+    static LogLevel levelOf(int pri) {
+        switch (pri & 7) {
+            case 0:
+            case 1:
+            case 2:
+                return LogLevel.FATAL;
+            case 3:
+                return LogLevel.ERROR;
+            case 4:
+                return LogLevel.WARN;
+            case 7:
+                return LogLevel.DEBUG;
+            default:
+                return LogLevel.INFO;
+        }
+    }
+
+    private static void addPriority(LogEntry entry, int pri) {
+        entry.addField("facility", pri >> 3);
+        entry.addField("severity", pri & 7);
+    }
+
+    private static void addIfPresent(LogEntry entry, String field, String value) {
+        if (value != null && !value.isEmpty() && !NIL.equals(value)) {
+            entry.addField(field, value);
+        }
+    }
+
+    private static String stripBom(String message) {
+        return message.startsWith("\uFEFF") ? message.substring(1) : message;
+    }
+}
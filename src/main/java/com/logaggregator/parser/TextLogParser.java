@@ -1,8 +1,9 @@
 package com.logaggregator.parser;
 
+import com.logaggregator.core.FieldStore;
+import com.logaggregator.core.LazyLogEntry;
 import com.logaggregator.core.LogEntry;
 import com.logaggregator.core.LogLevel;
-import java.time.LocalDateTime;
 import java.util.Optional;
 import java.util.regex.Pattern;
 import java.util.regex.Matcher;
@@ -10,7 +11,7 @@ import java.util.regex.Matcher;
 
 public class TextLogParser implements LogParser{
     private static final Pattern LOG_PATTERN = Pattern.compile(
-            "^(\\d{4}-\\d{2}-\\d{2}[T ]\\d{2}:\\d{2}:\\d{2})?\\s*\\[?(\\w+)?\\]?\\s*(.*)$",
+            "^(\\d{4}-\\d{2}-\\d{2}[T ]\\d{2}:\\d{2}:\\d{2}(?:[.,]\\d{1,9})?(?:Z|[+-]\\d{2}:?\\d{2})?)?\\s*\\[?(\\w+)?\\]?\\s*(.*)$",
             Pattern.DOTALL
     );
 
@@ -19,70 +20,138 @@ public class TextLogParser implements LogParser{
         return "text".equalsIgnoreCase(logFormat) || "plain".equalsIgnoreCase(logFormat);
     }
 
+    // Message bounds are offsets into the raw line; raw_length is derived from it
+    private static final LazyLogEntry.Decoder DECODER = new LazyLogEntry.Decoder() {
+        @Override
+        public String message(String raw, int[] offsets) {
+            return raw.substring(offsets[0], offsets[1]);
+        }
+
+        @Override
+        public void fields(String raw, int[] offsets, FieldStore into) {
+            into.putInt("raw_length", raw.length());
+        }
+
+        @Override
+        public Object field(String raw, int[] offsets, String name) {
+            return "raw_length".equals(name) ? raw.length() : null;
+        }
+    };
+
     @Override
     public Optional<LogEntry> parse(String source, String rawLine) {
-        if (rawLine == null || rawLine.trim().isEmpty()) {
+        if (rawLine == null) {
+            return Optional.empty();
+        }
+        // Same bounds as trim(), without copying the line
+        int start = 0;
+        int end = rawLine.length();
+        while (start < end && rawLine.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && rawLine.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (start == end) {
             return Optional.empty();
         }
 
-        Matcher matcher = LOG_PATTERN.matcher(rawLine.trim());
+        Matcher matcher = LOG_PATTERN.matcher(rawLine).region(start, end);
 
-        LocalDateTime timestamp = LocalDateTime.now();
+        long timestamp = TimestampParser.UNPARSED;
         LogLevel level = LogLevel.INFO;
-        String message = rawLine;
+        int messageStart = 0;
+        int messageEnd = rawLine.length();
 
         if (matcher.matches()) {
             // Try to extract timestamp and level from structured logs
-            String timestampStr = matcher.group(1);
-            String levelStr = matcher.group(2);
-            String content = matcher.group(3);
-
-            if (content != null && !content.isEmpty()) {
-                message = content;
+            if (matcher.start(1) >= 0) {
+                timestamp = TimestampParser.forSource(source).parse(rawLine, matcher.start(1), matcher.end(1));
+            }
+            if (matcher.end(3) > matcher.start(3)) {
+                messageStart = matcher.start(3);
+                messageEnd = matcher.end(3);
             }
 
             // Parse level if found
-            if (levelStr != null) {
-                level = parseLogLevelFromText(levelStr);
+            if (matcher.start(2) >= 0) {
+                level = parseLogLevelFromText(rawLine, matcher.start(2), matcher.end(2));
             }
         }
 
         // Detect common log patterns
-        level = detectLogLevel(message, level);
+        level = detectLogLevel(rawLine, messageStart, messageEnd, level);
 
-        LogEntry entry = new LogEntry(source, rawLine, level, timestamp, message);
-        entry.addField("raw_length", rawLine.length());
-
-        return Optional.of(entry);
+        return Optional.of(new LazyLogEntry(source, rawLine, level,
+                timestamp != TimestampParser.UNPARSED ? timestamp : System.currentTimeMillis(),
+                new int[]{messageStart, messageEnd}, DECODER));
     }
 
-    private LogLevel parseLogLevelFromText(String text) {
-        String upperText = text.toUpperCase();
-        if (upperText.contains("ERROR") || upperText.contains("ERR")) {
+    private LogLevel parseLogLevelFromText(String text, int from, int to) {
+        if (contains(text, from, to, "ERR")) {
             return LogLevel.ERROR;
-        } else if (upperText.contains("WARN") || upperText.contains("WARNING")) {
+        } else if (contains(text, from, to, "WARN")) {
             return LogLevel.WARN;
-        } else if (upperText.contains("DEBUG")) {
+        } else if (contains(text, from, to, "DEBUG")) {
             return LogLevel.DEBUG;
-        } else if (upperText.contains("TRACE")) {
+        } else if (contains(text, from, to, "TRACE")) {
             return LogLevel.TRACE;
-        } else if (upperText.contains("FATAL")) {
+        } else if (contains(text, from, to, "FATAL")) {
             return LogLevel.FATAL;
         } else {
             return LogLevel.INFO;
         }
     }
 
-    private LogLevel detectLogLevel(String message, LogLevel defaultLevel) {
-        String upperMessage = message.toUpperCase();
-        if (upperMessage.contains("EXCEPTION") || upperMessage.contains("ERROR") ||
-                upperMessage.contains("FAILED") || upperMessage.contains("CRITICAL")) {
-            return LogLevel.ERROR;
-        } else if (upperMessage.contains("WARN") || upperMessage.contains("CAUTION")) {
-            return LogLevel.WARN;
-        } else if (upperMessage.contains("DEBUG")) {
-            return LogLevel.DEBUG;
+    // One pass over the message: each position is only compared with the keywords sharing its first letter
+    private LogLevel detectLogLevel(String text, int from, int to, LogLevel defaultLevel) {
+        boolean warn = false;
+        boolean debug = false;
+        for (int i = from; i < to; i++) {
+            switch (text.charAt(i) | 0x20) {
+                case 'e':
+                    if (at(text, i, to, "EXCEPTION") || at(text, i, to, "ERROR")) {
+                        return LogLevel.ERROR;
+                    }
+                    break;
+                case 'f':
+                    if (at(text, i, to, "FAILED")) {
+                        return LogLevel.ERROR;
+                    }
+                    break;
+                case 'c':
+                    if (at(text, i, to, "CRITICAL")) {
+                        return LogLevel.ERROR;
+                    }
+                    warn |= at(text, i, to, "CAUTION");
+                    break;
+                case 'w':
+                    warn |= at(text, i, to, "WARN");
+                    break;
+                case 'd':
+                    debug |= at(text, i, to, "DEBUG");
+                    break;
+                default:
+                    break;
+            }
+        }
+        return warn ? LogLevel.WARN : debug ? LogLevel.DEBUG : defaultLevel;
+    }
+
+    private static boolean at(String text, int i, int to, String word) {
+        return i + word.length() <= to && text.regionMatches(true, i, word, 0, word.length());
+    }
+
+    // Case-insensitive search for an upper-case ASCII word within text[from, to), without copying
+    static boolean contains(String text, int from, int to, String word) {
+        char first = word.charAt(0);
+        int last = to - word.length();
+        for (int i = from; i <= last; i++) {
+            char c = text.charAt(i);
+            if ((c == first || c == first + 32) && text.regionMatches(true, i, word, 0, word.length())) {
+                return true;
+            }
         }
-        return defaultLevel;
+        return false;
     }
 }
@@ -0,0 +1,422 @@
+package com.logaggregator.parser;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Turns log timestamps into epoch milliseconds without DateTimeFormatter, exceptions or allocation
+// on the common path. Each source learns its layout on the first line and tries that one first.
+// Lines from one source mostly share the date, hour and minute, so that prefix is compared with
+// the previous one and, when equal, only the seconds and fraction are parsed; the system zone
+// offset for local times is also looked up only when the minute changes.
+public class TimestampParser {
+    public static final long UNPARSED = Long.MIN_VALUE;
+    private static final int MAX_SOURCES = 10_000;
+    private static final long MILLIS_PER_MINUTE = 60_000;
+    private static final long MILLIS_PER_DAY = 86_400_000;
+
+    private static final Map<String, TimestampParser> bySource = new ConcurrentHashMap<>();
+    private static final TimestampParser shared = new TimestampParser();
+    private static final LongAdder prefixHits = new LongAdder();
+    private static final LongAdder prefixMisses = new LongAdder();
+    private static final LongAdder unparsed = new LongAdder();
+    private static final LongAdder relearned = new LongAdder();
+
+    private volatile Layout learned;
+    // Replaced as a whole, so readers on other threads see a consistent prefix and base
+    private volatile MinuteCache cache;
+
+    private record MinuteCache(Layout layout, char[] prefix, long wallMinuteMillis, long zoneOffsetMillis) {}
+
+    enum Layout {
+        // 2024-01-01T10:00:00[.123456][Z|+01:00|+0100], also with ' ' for 'T' and '/' or ',' variants
+        ISO(16, 19) {
+            @Override
+            long wallMinute(CharSequence s, int from, int to) {
+                if (to - from < 19) {
+                    return UNPARSED;
+                }
+                char dateSep = s.charAt(from + 4);
+                char timeSep = s.charAt(from + 10);
+                if ((dateSep != '-' && dateSep != '/') || s.charAt(from + 7) != dateSep
+                        || (timeSep != 'T' && timeSep != ' ') || s.charAt(from + 13) != ':') {
+                    return UNPARSED;
+                }
+                return wallMillis(digits(s, from, 4), digits(s, from + 5, 2), digits(s, from + 8, 2),
+                        digits(s, from + 11, 2), digits(s, from + 14, 2));
+            }
+
+            @Override
+            long rest(CharSequence s, int from, int to, long wallMinute, long zoneOffset) {
+                if (s.charAt(from + 16) != ':') {
+                    return UNPARSED;
+                }
+                return secondsFractionZone(s, from + 17, to, wallMinute, zoneOffset);
+            }
+        },
+        // Jan  1 10:00:00 (BSD syslog; no year, so the most recent such date is assumed)
+        BSD(12, 15) {
+            @Override
+            long wallMinute(CharSequence s, int from, int to) {
+                if (to - from != 15 || s.charAt(from + 3) != ' ' || s.charAt(from + 6) != ' '
+                        || s.charAt(from + 9) != ':') {
+                    return UNPARSED;
+                }
+                int month = month(s, from);
+                int day = s.charAt(from + 4) == ' ' ? digits(s, from + 5, 1) : digits(s, from + 4, 2);
+                int year = LocalDate.now().getYear();
+                long wall = wallMillis(year, month, day, digits(s, from + 7, 2), digits(s, from + 10, 2));
+                if (wall != UNPARSED && wall > System.currentTimeMillis() + MILLIS_PER_DAY) {
+                    // December lines read in January
+                    wall = wallMillis(year - 1, month, day, digits(s, from + 7, 2), digits(s, from + 10, 2));
+                }
+                return wall;
+            }
+
+            @Override
+            long rest(CharSequence s, int from, int to, long wallMinute, long zoneOffset) {
+                if (s.charAt(from + 12) != ':') {
+                    return UNPARSED;
+                }
+                return secondsFractionZone(s, from + 13, to, wallMinute, zoneOffset);
+            }
+        },
+        // 10/Oct/2000:13:55:36 -0700 (common log format)
+        CLF(17, 20) {
+            @Override
+            long wallMinute(CharSequence s, int from, int to) {
+                if (to - from < 20 || s.charAt(from + 2) != '/' || s.charAt(from + 6) != '/'
+                        || s.charAt(from + 11) != ':' || s.charAt(from + 14) != ':') {
+                    return UNPARSED;
+                }
+                return wallMillis(digits(s, from + 7, 4), month(s, from + 3), digits(s, from, 2),
+                        digits(s, from + 12, 2), digits(s, from + 15, 2));
+            }
+
+            @Override
+            long rest(CharSequence s, int from, int to, long wallMinute, long zoneOffset) {
+                if (s.charAt(from + 17) != ':') {
+                    return UNPARSED;
+                }
+                return secondsFractionZone(s, from + 18, to, wallMinute, zoneOffset);
+            }
+        },
+        // 1704103200 (seconds), 1704103200123 (millis) or 1704103200.123
+        EPOCH(0, 10) {
+            @Override
+            long wallMinute(CharSequence s, int from, int to) {
+                return 0;
+            }
+
+            @Override
+            long rest(CharSequence s, int from, int to, long wallMinute, long zoneOffset) {
+                int len = to - from;
+                if (len == 13) {
+                    return longDigits(s, from, 13);
+                }
+                if (len < 10 || (len > 10 && s.charAt(from + 10) != '.')) {
+                    return UNPARSED;
+                }
+                long seconds = longDigits(s, from, 10);
+                if (seconds == UNPARSED) {
+                    return UNPARSED;
+                }
+                int millis = len > 11 ? fractionMillis(s, from + 11, to) : 0;
+                return millis < 0 ? UNPARSED : seconds * 1000 + millis;
+            }
+        };
+
+        final int prefixLength;
+        final int minLength;
+
+        Layout(int prefixLength, int minLength) {
+            this.prefixLength = prefixLength;
+            this.minLength = minLength;
+        }
+
+        // Wall-clock millis (as if UTC) of the minute named by the first prefixLength characters
+        abstract long wallMinute(CharSequence s, int from, int to);
+
+        abstract long rest(CharSequence s, int from, int to, long wallMinute, long zoneOffset);
+    }
+
+    public static TimestampParser forSource(String source) {
+        TimestampParser parser = bySource.get(source);
+        if (parser == null) {
+            parser = bySource.size() < MAX_SOURCES ? bySource.computeIfAbsent(source, s -> new TimestampParser()) : shared;
+        }
+        return parser;
+    }
+
+    public static long parse(String source, CharSequence text) {
+        return text == null ? UNPARSED : forSource(source).parse(text, 0, text.length());
+    }
+
+    // Lines without a usable timestamp are stamped with the time they were read
+    public static long parseOrNow(String source, CharSequence text) {
+        long millis = parse(source, text);
+        return millis != UNPARSED ? millis : System.currentTimeMillis();
+    }
+
+    public long parse(CharSequence s, int from, int to) {
+        while (from < to && (Character.isWhitespace(s.charAt(from)) || s.charAt(from) == '"')) {
+            from++;
+        }
+        while (to > from && (Character.isWhitespace(s.charAt(to - 1)) || s.charAt(to - 1) == '"')) {
+            to--;
+        }
+        if (from == to) {
+            return UNPARSED;
+        }
+
+        Layout layout = learned;
+        if (layout != null) {
+            long millis = parseWith(layout, s, from, to);
+            if (millis != UNPARSED) {
+                return millis;
+            }
+        }
+        for (Layout candidate : Layout.values()) {
+            if (candidate != layout) {
+                long millis = parseWith(candidate, s, from, to);
+                if (millis != UNPARSED) {
+                    if (layout != null) {
+                        relearned.increment();
+                    }
+                    learned = candidate;
+                    return millis;
+                }
+            }
+        }
+        unparsed.increment();
+        return UNPARSED;
+    }
+
+    private long parseWith(Layout layout, CharSequence s, int from, int to) {
+        if (to - from < layout.minLength) {
+            return UNPARSED;
+        }
+        if (layout.prefixLength == 0) {
+            return layout.rest(s, from, to, 0, 0);
+        }
+        MinuteCache current = cache;
+        if (current != null && current.layout == layout && samePrefix(current.prefix, s, from)) {
+            prefixHits.increment();
+            return layout.rest(s, from, to, current.wallMinuteMillis, current.zoneOffsetMillis);
+        }
+
+        long wallMinute = layout.wallMinute(s, from, to);
+        if (wallMinute == UNPARSED) {
+            return UNPARSED;
+        }
+        long millis = layout.rest(s, from, to, wallMinute, 0);
+        if (millis == UNPARSED) {
+            return UNPARSED;
+        }
+        prefixMisses.increment();
+        long zoneOffset = zoneOffsetMillis(wallMinute);
+        char[] prefix = new char[layout.prefixLength];
+        for (int i = 0; i < prefix.length; i++) {
+            prefix[i] = s.charAt(from + i);
+        }
+        cache = new MinuteCache(layout, prefix, wallMinute, zoneOffset);
+        return layout.rest(s, from, to, wallMinute, zoneOffset);
+    }
+
+    private static boolean samePrefix(char[] prefix, CharSequence s, int from) {
+        for (int i = 0; i < prefix.length; i++) {
+            if (prefix[i] != s.charAt(from + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Offset of the system zone at that local time; only computed when the cached minute changes
+    private static long zoneOffsetMillis(long wallMillis) {
+        LocalDateTime local = LocalDateTime.ofEpochSecond(Math.floorDiv(wallMillis, 1000), 0, ZoneOffset.UTC);
+        return ZoneId.systemDefault().getRules().getOffset(local).getTotalSeconds() * 1000L;
+    }
+
+    // ss[.fraction][Z|+hh:mm|+hhmm]; without a zone the time is local and zoneOffset applies
+    static long secondsFractionZone(CharSequence s, int pos, int to, long wallMinute, long zoneOffset) {
+        if (to - pos < 2) {
+            return UNPARSED;
+        }
+        int seconds = digits(s, pos, 2);
+        if (seconds < 0 || seconds > 60) {
+            return UNPARSED;
+        }
+        pos += 2;
+
+        int millis = 0;
+        if (pos < to && (s.charAt(pos) == '.' || s.charAt(pos) == ',')) {
+            int end = pos + 1;
+            while (end < to && isDigit(s.charAt(end))) {
+                end++;
+            }
+            millis = fractionMillis(s, pos + 1, end);
+            if (millis < 0) {
+                return UNPARSED;
+            }
+            pos = end;
+        }
+
+        long wall = wallMinute + Math.min(seconds, 59) * 1000L + millis;
+        if (pos == to) {
+            return wall - zoneOffset;
+        }
+        if (s.charAt(pos) == ' ' && pos + 1 < to) {
+            pos++;
+        }
+        char zone = s.charAt(pos);
+        if (zone == 'Z' && pos + 1 == to) {
+            return wall;
+        }
+        if (zone != '+' && zone != '-') {
+            return UNPARSED;
+        }
+        int hours = digits(s, pos + 1, 2);
+        int minutesAt = pos + 3 < to && s.charAt(pos + 3) == ':' ? pos + 4 : pos + 3;
+        int minutes = minutesAt + 2 == to ? digits(s, minutesAt, 2) : -1;
+        if (hours < 0 || minutes < 0) {
+            return UNPARSED;
+        }
+        long offset = (hours * 60L + minutes) * MILLIS_PER_MINUTE;
+        return zone == '+' ? wall - offset : wall + offset;
+    }
+
+    // First three digits of a fraction of a second, scaled to milliseconds
+    static int fractionMillis(CharSequence s, int from, int to) {
+        if (to <= from || to - from > 9) {
+            return -1;
+        }
+        int millis = 0;
+        for (int i = 0; i < 3; i++) {
+            int digit = 0;
+            if (from + i < to) {
+                char c = s.charAt(from + i);
+                if (!isDigit(c)) {
+                    return -1;
+                }
+                digit = c - '0';
+            }
+            millis = millis * 10 + digit;
+        }
+        for (int i = from + 3; i < to; i++) {
+            if (!isDigit(s.charAt(i))) {
+                return -1;
+            }
+        }
+        return millis;
+    }
+
+    static long wallMillis(int year, int month, int day, int hour, int minute) {
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59) {
+            return UNPARSED;
+        }
+        return daysFromCivil(year, month, day) * MILLIS_PER_DAY + (hour * 60L + minute) * MILLIS_PER_MINUTE;
+    }
+
+    // Days since 1970-01-01 in the proleptic Gregorian calendar
+    static long daysFromCivil(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153L * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146_097 + dayOfEra - 719_468;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0 ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static int month(CharSequence s, int at) {
+        int key = (Character.toLowerCase(s.charAt(at)) << 16) | (Character.toLowerCase(s.charAt(at + 1)) << 8)
+                | Character.toLowerCase(s.charAt(at + 2));
+        switch (key) {
+            case ('j' << 16) | ('a' << 8) | 'n': return 1;
+            case ('f' << 16) | ('e' << 8) | 'b': return 2;
+            case ('m' << 16) | ('a' << 8) | 'r': return 3;
+            case ('a' << 16) | ('p' << 8) | 'r': return 4;
+            case ('m' << 16) | ('a' << 8) | 'y': return 5;
+            case ('j' << 16) | ('u' << 8) | 'n': return 6;
+            case ('j' << 16) | ('u' << 8) | 'l': return 7;
+            case ('a' << 16) | ('u' << 8) | 'g': return 8;
+            case ('s' << 16) | ('e' << 8) | 'p': return 9;
+            case ('o' << 16) | ('c' << 8) | 't': return 10;
+            case ('n' << 16) | ('o' << 8) | 'v': return 11;
+            case ('d' << 16) | ('e' << 8) | 'c': return 12;
+            default: return -1;
+        }
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    // Value of count digits at position at, or -1 if any of them is not a digit
+    static int digits(CharSequence s, int at, int count) {
+        if (at + count > s.length()) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = at; i < at + count; i++) {
+            char c = s.charAt(i);
+            if (!isDigit(c)) {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static long longDigits(CharSequence s, int at, int count) {
+        long value = 0;
+        for (int i = at; i < at + count; i++) {
+            char c = s.charAt(i);
+            if (!isDigit(c)) {
+                return UNPARSED;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    Layout getLearnedLayout() {
+        return learned;
+    }
+
+    public static Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        Map<String, Integer> layouts = new HashMap<>();
+        for (TimestampParser parser : bySource.values()) {
+            Layout layout = parser.learned;
+            layouts.merge(layout != null ? layout.name() : "NONE", 1, Integer::sum);
+        }
+        stats.put("sources", bySource.size());
+        stats.put("layouts", layouts);
+        stats.put("prefixHits", prefixHits.sum());
+        stats.put("prefixMisses", prefixMisses.sum());
+        stats.put("unparsed", unparsed.sum());
+        stats.put("relearned", relearned.sum());
+        return stats;
+    }
+}
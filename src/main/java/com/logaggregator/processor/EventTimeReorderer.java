@@ -0,0 +1,133 @@
+package com.logaggregator.processor;
+
+import com.logaggregator.core.LogEntry;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+// Holds entries for a short reorder window and releases them in timestamp order once the
+// watermark passes them. Each source's watermark is its newest timestamp minus the allowed
+// lateness; the overall watermark is the slowest active source's, and never moves backwards.
+// Sources that stop sending are ignored after idleTimeout so they don't stall everyone else.
+public class EventTimeReorderer {
+    private final long allowedLatenessMillis;
+    private final long idleTimeoutMillis;
+    private final int maxPending;
+    private final Map<String, SourceState> sources;
+    private final PriorityQueue<Held> pending;
+    private long watermark;
+    private long sequence;
+
+    private long releasedCount;
+    private long lateCount;
+    private long forcedCount;
+
+    private static class SourceState {
+        long maxEventMillis = Long.MIN_VALUE;
+        long lastArrivalMillis;
+    }
+
+    // Sequence keeps entries with equal timestamps in arrival order
+    private record Held(LogEntry entry, long eventMillis, long sequence) {}
+
+    public record Result(List<LogEntry> released, List<LogEntry> late, long watermark) {
+        public boolean isEmpty() {
+            return released.isEmpty() && late.isEmpty();
+        }
+    }
+
+    public EventTimeReorderer(long allowedLatenessMillis, long idleTimeoutMillis, int maxPending) {
+        this.allowedLatenessMillis = allowedLatenessMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxPending = maxPending;
+        this.sources = new HashMap<>();
+        this.pending = new PriorityQueue<>(Comparator.comparingLong(Held::eventMillis)
+                .thenComparingLong(Held::sequence));
+        this.watermark = Long.MIN_VALUE;
+    }
+
+    public synchronized Result add(List<LogEntry> batch, long nowMillis) {
+        List<LogEntry> late = new ArrayList<>();
+        for (LogEntry entry : batch) {
+            long eventMillis = entry.getEventTimeMillis();
+            if (eventMillis < watermark) {
+                late.add(entry);
+                continue;
+            }
+            SourceState state = sources.computeIfAbsent(entry.getSource(), k -> new SourceState());
+            state.maxEventMillis = Math.max(state.maxEventMillis, eventMillis);
+            state.lastArrivalMillis = nowMillis;
+            pending.add(new Held(entry, eventMillis, sequence++));
+        }
+        lateCount += late.size();
+        return new Result(release(nowMillis), late, watermark);
+    }
+
+    // Called on a timer so entries still get released when sources go quiet
+    public synchronized Result advance(long nowMillis) {
+        return new Result(release(nowMillis), List.of(), watermark);
+    }
+
+    private List<LogEntry> release(long nowMillis) {
+        long candidate = Long.MAX_VALUE;
+        long newest = Long.MIN_VALUE;
+        Iterator<SourceState> it = sources.values().iterator();
+        while (it.hasNext()) {
+            SourceState state = it.next();
+            newest = Math.max(newest, state.maxEventMillis);
+            long idle = nowMillis - state.lastArrivalMillis;
+            if (idle >= idleTimeoutMillis) {
+                if (idle >= idleTimeoutMillis * 10) {
+                    it.remove();
+                }
+                continue;
+            }
+            candidate = Math.min(candidate, state.maxEventMillis - allowedLatenessMillis);
+        }
+        if (candidate == Long.MAX_VALUE && newest != Long.MIN_VALUE) {
+            // Everyone is idle: nothing else is coming soon, so flush what is held
+            candidate = newest;
+        }
+        if (candidate != Long.MAX_VALUE) {
+            watermark = Math.max(watermark, candidate);
+        }
+
+        List<LogEntry> released = new ArrayList<>();
+        while (!pending.isEmpty()) {
+            Held head = pending.peek();
+            if (head.eventMillis() > watermark) {
+                if (pending.size() <= maxPending) {
+                    break;
+                }
+                // Memory bound reached: give up on waiting for stragglers of the oldest entry
+                watermark = head.eventMillis();
+                forcedCount++;
+            }
+            released.add(pending.poll().entry());
+        }
+        releasedCount += released.size();
+        return released;
+    }
+
+    public synchronized long getWatermark() {
+        return watermark;
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("watermark", watermark == Long.MIN_VALUE ? null : watermark);
+        stats.put("allowedLatenessMs", allowedLatenessMillis);
+        stats.put("held", pending.size());
+        stats.put("maxHeld", maxPending);
+        stats.put("trackedSources", sources.size());
+        stats.put("released", releasedCount);
+        stats.put("late", lateCount);
+        stats.put("forcedReleases", forcedCount);
+        return stats;
+    }
+}
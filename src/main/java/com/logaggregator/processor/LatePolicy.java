@@ -0,0 +1,6 @@
+package com.logaggregator.processor;
+
+// What happens to an entry whose timestamp is already behind the watermark
+public enum LatePolicy {
+    DROP, SIDE
+}
@@ -0,0 +1,8 @@
+package com.logaggregator.processor;
+
+import com.logaggregator.core.LogEntry;
+
+@FunctionalInterface
+public interface LogEnricher {
+    void enrich(LogEntry entry);
+}
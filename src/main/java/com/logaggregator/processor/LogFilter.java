@@ -24,7 +24,7 @@ public class LogFilter {
 
     public static Predicate<LogEntry> createFieldFilter(String fieldName, String fieldValue) {
         return entry -> {
-            Object value = entry.getFields().get(fieldName);
+            Object value = entry.getField(fieldName);
             return value != null && value.toString().equals(fieldValue);
         };
     }
@@ -1,95 +1,520 @@
 package com.logaggregator.processor;
 
+import com.logaggregator.alert.AlertManager;
+import com.logaggregator.core.Config;
 import com.logaggregator.core.LogBuffer;
 import com.logaggregator.core.LogEntry;
+import com.logaggregator.core.PartitionedLogBuffer;
 import com.logaggregator.storage.LogStorage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 
 public class LogProcessor {
     private static final Logger logger = LoggerFactory.getLogger(LogProcessor.class);
 
+    private static final long WORKER_POLL_MS = 500;
+    private static final long STOP_TIMEOUT_MS = 5_000;
+    private static final long PARTITION_IDLE_POLL_MS = 20;
+    private static final int HAND_OFF_MAX_QUEUED = 16;
+
     private final LogBuffer logBuffer;
+    private final PartitionedLogBuffer partitionedBuffer;
+    private final ReentrantLock[] partitionLocks;
+    // Per partition: batches taken under the lock are handed to the store in that order, after it is released
+    private final OrderedHandOff[] partitionHandOffs;
+    private final AtomicLong stolenBatches;
     private final LogStorage logStorage;
     private final ExecutorService processorPool;
+    private final AtomicInteger activeWorkers;
+    private volatile int targetWorkers;
+    private final WorkerScaler scaler;
+    private final ScheduledExecutorService scheduler;
+    private final EventTimeReorderer reorderer;
+    // Released and late batches in watermark order, queued under the reorderer lock and submitted outside it
+    private final OrderedHandOff emitQueue;
+    private final LatePolicy latePolicy;
+    private final AtomicLong droppedLate;
+    private final AlertManager alertManager;
+    private final AtomicLong intervalBatches;
+    private final AtomicLong intervalBatchNanos;
     private final AtomicLong processedCount;
+    private final List<LogEnricher> enrichers;
+    private final PipelineStage.StageMetrics enrichMetrics;
+    private final PipelineStage storeStage;
+    private final PipelineStage alertStage;
+    private final PipelineStage broadcastStage;
+    private final PipelineStage lateStage;
     private volatile boolean running;
 
     public LogProcessor(LogBuffer logBuffer, LogStorage logStorage, int threadCount) {
+        this(logBuffer, logStorage, null, null, threadCount);
+    }
+
+    public LogProcessor(LogBuffer logBuffer, LogStorage logStorage, AlertManager alertManager,
+                        Consumer<List<LogEntry>> broadcaster, int threadCount) {
+        this(logBuffer, null, logStorage, alertManager, broadcaster, threadCount);
+    }
+
+    // Partitioned mode: threadCount workers each own a share of the partitions and steal when idle
+    public LogProcessor(PartitionedLogBuffer partitionedBuffer, LogStorage logStorage, AlertManager alertManager,
+                        Consumer<List<LogEntry>> broadcaster, int threadCount) {
+        this(null, partitionedBuffer, logStorage, alertManager, broadcaster, threadCount);
+    }
+
+    private LogProcessor(LogBuffer logBuffer, PartitionedLogBuffer partitionedBuffer, LogStorage logStorage,
+                         AlertManager alertManager, Consumer<List<LogEntry>> broadcaster, int threadCount) {
         this.logBuffer = logBuffer;
+        this.partitionedBuffer = partitionedBuffer;
+        this.partitionLocks = new ReentrantLock[partitionedBuffer != null ? partitionedBuffer.getPartitionCount() : 0];
+        this.partitionHandOffs = new OrderedHandOff[partitionLocks.length];
+        for (int i = 0; i < partitionLocks.length; i++) {
+            partitionLocks[i] = new ReentrantLock();
+            partitionHandOffs[i] = new OrderedHandOff(HAND_OFF_MAX_QUEUED);
+        }
+        this.stolenBatches = new AtomicLong(0);
         this.logStorage = logStorage;
-        this.processorPool = Executors.newFixedThreadPool(threadCount);
+        this.processorPool = Executors.newCachedThreadPool();
+        this.activeWorkers = new AtomicInteger(0);
+        this.targetWorkers = Math.max(1, threadCount);
+        this.intervalBatches = new AtomicLong(0);
+        this.intervalBatchNanos = new AtomicLong(0);
         this.processedCount = new AtomicLong(0);
+
+        // Autoscaling only applies to the shared buffer; partitions each need their owner
+        if (logBuffer != null && "auto".equalsIgnoreCase(Config.get("log.processor.scaling", "fixed"))) {
+            this.scaler = new WorkerScaler(
+                    Config.getInt("log.processor.threads.min", 1),
+                    Config.getInt("log.processor.threads.max", Runtime.getRuntime().availableProcessors() * 2),
+                    logBuffer.getCapacity(),
+                    Config.getInt("log.processor.scale.up.fill.percent", 10) / 100.0,
+                    Config.getLong("log.processor.scale.max.batch.latency.ms", 250),
+                    Config.getInt("log.processor.scale.idle.intervals", 5));
+            this.targetWorkers = Math.max(scaler.getMinWorkers(), Math.min(scaler.getMaxWorkers(), targetWorkers));
+        } else {
+            this.scaler = null;
+        }
+
+        if (Config.getBoolean("log.eventtime.enabled", false)) {
+            this.reorderer = new EventTimeReorderer(
+                    Config.getLong("log.eventtime.reorder.window.ms", 100),
+                    Config.getLong("log.eventtime.idle.timeout.ms", 5000),
+                    Config.getInt("log.eventtime.max.held", 100_000));
+        } else {
+            this.reorderer = null;
+        }
+        this.emitQueue = new OrderedHandOff(HAND_OFF_MAX_QUEUED);
+        this.latePolicy = LatePolicy.valueOf(Config.get("log.eventtime.late.policy", "side").trim().toUpperCase());
+        this.droppedLate = new AtomicLong(0);
+        this.alertManager = alertManager;
+        this.scheduler = scaler != null || reorderer != null ? Executors.newSingleThreadScheduledExecutor() : null;
+        this.enrichers = new CopyOnWriteArrayList<>();
+        this.enrichMetrics = new PipelineStage.StageMetrics();
         this.running = false;
+
+        // Storage and alerting must see every batch and push back when saturated; only the live tail
+        // broadcast sheds load.
+        // Keyed so that batches of one partition, or the event-time ordered stream, are stored in order
+        this.storeStage = createStage("store", 2, 64, partitionedBuffer != null || reorderer != null,
+                this::storeBatch);
+        this.alertStage = alertManager != null
+                ? createStage("alert", 1, 64, false, alertManager::processBatch) : null;
+        this.broadcastStage = broadcaster != null
+                ? createStage("broadcast", 1, 16, false, broadcaster) : null;
+        this.lateStage = reorderer != null && latePolicy == LatePolicy.SIDE
+                ? createStage("late", 1, 16, false, this::handleLate) : null;
+    }
+
+    private static PipelineStage createStage(String name, int defaultWorkers, int defaultQueue, boolean keyed,
+                                             Consumer<List<LogEntry>> handler) {
+        return new PipelineStage(name,
+                Config.getInt("log.pipeline." + name + ".workers", defaultWorkers),
+                Config.getInt("log.pipeline." + name + ".queue", defaultQueue),
+                keyed,
+                handler);
+    }
+
+    public void addEnricher(LogEnricher enricher) {
+        enrichers.add(enricher);
     }
 
     public void start() {
         running = true;
-        int processorThreads = Runtime.getRuntime().availableProcessors();
+        for (PipelineStage stage : getStages()) {
+            stage.start();
+        }
 
-        for (int i = 0; i < processorThreads; i++) {
-            processorPool.submit(this::processLogs);
+        if (partitionedBuffer != null) {
+            startPartitionWorkers();
+        } else {
+            adjustWorkers(targetWorkers);
+        }
+
+        if (scaler != null) {
+            long interval = Config.getLong("log.processor.scale.interval.ms", 1000);
+            scheduler.scheduleAtFixedRate(this::rescale, interval, interval, TimeUnit.MILLISECONDS);
         }
+        if (reorderer != null) {
+            long tick = Config.getLong("log.eventtime.tick.ms", 200);
+            scheduler.scheduleAtFixedRate(this::advanceWatermark, tick, tick, TimeUnit.MILLISECONDS);
+        }
+
+        String mode = partitionedBuffer != null ? partitionedBuffer.getPartitionCount() + " partitions"
+                : scaler != null ? "autoscaling " + scaler.getMinWorkers() + "-" + scaler.getMaxWorkers() : "fixed";
+        logger.info("Log processor started with {} threads ({}), pipeline stages: enrich -> {}",
+                targetWorkers, mode, getStages().stream().map(PipelineStage::getName).toList());
+    }
 
-        logger.info("Log processor started with {} threads", processorThreads);
+    void rescale() {
+        try {
+            long batches = intervalBatches.getAndSet(0);
+            long nanos = intervalBatchNanos.getAndSet(0);
+            double avgBatchLatencyMs = batches > 0 ? nanos / 1e6 / batches : 0.0;
+            // Spilled entries count: under SPILL the memory queue stays short while the disk backlog grows
+            int target = scaler.decide(System.currentTimeMillis(), logBuffer.getBacklog(), avgBatchLatencyMs,
+                    activeWorkers.get());
+            if (target != targetWorkers) {
+                logger.info("Scaling log processor workers {} -> {}", targetWorkers, target);
+                adjustWorkers(target);
+            }
+        } catch (Exception e) {
+            logger.error("Error rescaling log processor workers", e);
+        }
+    }
+
+    // Growing starts workers right away; shrinking lets surplus workers retire after their current batch
+    private synchronized void adjustWorkers(int target) {
+        targetWorkers = target;
+        while (running && activeWorkers.get() < targetWorkers) {
+            activeWorkers.incrementAndGet();
+            processorPool.submit(this::processLogs);
+        }
     }
 
     public void stop() {
         running = false;
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
         processorPool.shutdown();
+        try {
+            // Workers still finishing a batch hand it to the stages, which must not be stopped yet
+            if (!processorPool.awaitTermination(STOP_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                logger.warn("Processor workers still busy after {} ms, stopping stages anyway", STOP_TIMEOUT_MS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (reorderer != null) {
+            try {
+                // Treat every source as idle so whatever is still held in the reorder window is released
+                synchronized (reorderer) {
+                    EventTimeReorderer.Result result = reorderer.advance(Long.MAX_VALUE);
+                    emitQueue.add(() -> emit(result));
+                }
+                emitQueue.drain();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (OrderedHandOff handOff : partitionHandOffs) {
+            try {
+                handOff.drain();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // Downstream stages finish what is already queued before their workers exit
+        for (PipelineStage stage : getStages()) {
+            stage.stop();
+        }
         logger.info("Log processor stopped. Total processed: {}", processedCount.get());
     }
 
     private void processLogs() {
-        while (running) {
-            try {
-                List<LogEntry> batch = logBuffer.takeBatch();
-                if (!batch.isEmpty()) {
-                    processBatch(batch);
+        boolean retired = false;
+        try {
+            while (running) {
+                if (retireIfSurplus()) {
+                    retired = true;
+                    return;
+                }
+                try {
+                    // Timed poll so an idle worker notices it is surplus and can retire
+                    List<LogEntry> batch = logBuffer.pollBatch(WORKER_POLL_MS);
+                    if (!batch.isEmpty()) {
+                        long started = System.nanoTime();
+                        OrderedHandOff handOff = processBatch(batch, -1);
+                        if (handOff != null) {
+                            handOff.drain();
+                        }
+                        intervalBatches.incrementAndGet();
+                        intervalBatchNanos.addAndGet(System.nanoTime() - started);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (Exception e) {
+                    logger.error("Error processing log batch", e);
+                }
+            }
+        } finally {
+            if (!retired) {
+                activeWorkers.decrementAndGet();
+            }
+        }
+    }
+
+    private void startPartitionWorkers() {
+        int workers = Math.min(targetWorkers, partitionedBuffer.getPartitionCount());
+        targetWorkers = workers;
+        for (int w = 0; w < workers; w++) {
+            List<Integer> home = new ArrayList<>();
+            for (int p = w; p < partitionedBuffer.getPartitionCount(); p += workers) {
+                home.add(p);
+            }
+            activeWorkers.incrementAndGet();
+            processorPool.submit(() -> runPartitionWorker(home));
+        }
+    }
+
+    private void runPartitionWorker(List<Integer> home) {
+        try {
+            while (running) {
+                try {
+                    boolean worked = false;
+                    for (int partition : home) {
+                        if (partitionedBuffer.getPartition(partition).hasBacklog()) {
+                            worked |= drainPartition(partition, 0);
+                        }
+                    }
+                    if (!worked) {
+                        // Own partitions are empty: help with whichever partition is furthest behind
+                        int victim = busiestUnclaimedPartition();
+                        if (victim >= 0 && drainPartition(victim, 0)) {
+                            stolenBatches.incrementAndGet();
+                            worked = true;
+                        }
+                    }
+                    if (!worked) {
+                        drainPartition(home.get(0), PARTITION_IDLE_POLL_MS);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (Exception e) {
+                    logger.error("Error processing log batch", e);
                 }
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
-            } catch (Exception e) {
-                logger.error("Error processing log batch", e);
             }
+        } finally {
+            activeWorkers.decrementAndGet();
         }
     }
 
-    private void processBatch(List<LogEntry> batch) {
+    // The partition lock covers taking the batch, enriching it and queueing it for hand-off, which keeps
+    // each source's batches in order even when a worker other than the owner drains the partition. The
+    // possibly blocking submit to the store happens after the lock is released, so a slow store doesn't
+    // keep other workers from the partition. An idle poll waits for the lock instead of spinning.
+    private boolean drainPartition(int partition, long timeoutMs) throws InterruptedException {
+        ReentrantLock lock = partitionLocks[partition];
+        if (!(timeoutMs > 0 ? lock.tryLock(timeoutMs, TimeUnit.MILLISECONDS) : lock.tryLock())) {
+            return false;
+        }
+        long started;
+        OrderedHandOff handOff;
         try {
-            // Store logs
-            logStorage.storeBatch(batch);
+            List<LogEntry> batch = partitionedBuffer.getPartition(partition).pollBatch(timeoutMs);
+            if (batch.isEmpty()) {
+                return false;
+            }
+            started = System.nanoTime();
+            handOff = processBatch(batch, partition);
+        } finally {
+            lock.unlock();
+        }
+        if (handOff != null) {
+            handOff.drain();
+        }
+        intervalBatches.incrementAndGet();
+        intervalBatchNanos.addAndGet(System.nanoTime() - started);
+        return true;
+    }
 
-            // Update metrics
-            long count = processedCount.addAndGet(batch.size());
+    // Backlog includes spilled entries, which a partition under SPILL mostly holds on disk
+    private int busiestUnclaimedPartition() {
+        int busiest = -1;
+        long busiestBacklog = 0;
+        for (int p = 0; p < partitionLocks.length; p++) {
+            long backlog = partitionedBuffer.getPartition(p).getBacklog();
+            if (backlog > busiestBacklog && !partitionLocks[p].isLocked()) {
+                busiest = p;
+                busiestBacklog = backlog;
+            }
+        }
+        return busiest;
+    }
 
-            if (count % 100 == 0) {
-                logger.debug("Processed {} log entries total", count);
+    private boolean retireIfSurplus() {
+        int current = activeWorkers.get();
+        return current > targetWorkers && activeWorkers.compareAndSet(current, current - 1);
+    }
+
+    // Enrich stage: runs on the processor threads, fed directly by the LogBuffer. A partition's batch is
+    // queued rather than submitted; the returned hand-off is drained by the caller outside its lock.
+    private OrderedHandOff processBatch(List<LogEntry> batch, int partition) throws InterruptedException {
+        long started = System.nanoTime();
+        if (!enrichers.isEmpty()) {
+            for (LogEntry entry : batch) {
+                for (LogEnricher enricher : enrichers) {
+                    enricher.enrich(entry);
+                }
             }
+        }
+        enrichMetrics.record(batch.size(), 0, System.nanoTime() - started);
 
-            // Log batch statistics
-            if (logger.isDebugEnabled()) {
-                batch.stream()
-                        .collect(java.util.stream.Collectors.groupingBy(
-                                LogEntry::getLevel,
-                                java.util.stream.Collectors.counting()
-                        ))
-                        .forEach((level, cnt) -> {
-                            if (cnt > 0) {
-                                logger.debug("Batch stats - {}: {}", level, cnt);
-                            }
-                        });
+        if (reorderer != null) {
+            // Queued under the reorderer lock so released batches reach the store in watermark order;
+            // the blocking submit happens when the caller drains, after the lock is released
+            synchronized (reorderer) {
+                EventTimeReorderer.Result result = reorderer.add(batch, System.currentTimeMillis());
+                emitQueue.add(() -> emit(result));
             }
+            return emitQueue;
+        }
+        if (partition >= 0) {
+            partitionHandOffs[partition].add(() -> fanOut(batch, partition));
+            return partitionHandOffs[partition];
+        }
+        fanOut(batch, partition);
+        return null;
+    }
 
+    private void fanOut(List<LogEntry> batch, int partition) throws InterruptedException {
+        if (partition >= 0) {
+            storeStage.submit(partition, batch);
+        } else {
+            storeStage.submit(batch);
+        }
+        if (alertStage != null) {
+            // Blocking like the store: a shed batch would silently skip rule evaluation
+            alertStage.submit(batch);
+        }
+        if (broadcastStage != null) {
+            broadcastStage.offer(batch);
+        }
+    }
+
+    private void emit(EventTimeReorderer.Result result) throws InterruptedException {
+        if (!result.released().isEmpty()) {
+            fanOut(result.released(), 0);
+        }
+        if (!result.late().isEmpty()) {
+            if (lateStage != null) {
+                lateStage.submit(result.late());
+            } else {
+                droppedLate.addAndGet(result.late().size());
+            }
+        }
+        if (alertManager != null) {
+            alertManager.onWatermark(result.watermark());
+        }
+    }
+
+    private void advanceWatermark() {
+        try {
+            synchronized (reorderer) {
+                EventTimeReorderer.Result result = reorderer.advance(System.currentTimeMillis());
+                emitQueue.add(() -> emit(result));
+            }
+            emitQueue.drain();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (Exception e) {
-            logger.error("Failed to process batch of {} entries", batch.size(), e);
+            logger.error("Error advancing event-time watermark", e);
+        }
+    }
+
+    // Late side path: storage inserts them at their place in time, alerts still see them
+    private void handleLate(List<LogEntry> late) {
+        storeBatch(late);
+        if (alertManager != null) {
+            alertManager.processBatch(late);
+        }
+    }
+
+    private void storeBatch(List<LogEntry> batch) {
+        // Store logs
+        logStorage.storeBatch(batch);
+
+        // Update metrics
+        long count = processedCount.addAndGet(batch.size());
+
+        if (count % 100 == 0) {
+            logger.debug("Processed {} log entries total", count);
+        }
+
+        // Log batch statistics
+        if (logger.isDebugEnabled()) {
+            batch.stream()
+                    .collect(java.util.stream.Collectors.groupingBy(
+                            LogEntry::getLevel,
+                            java.util.stream.Collectors.counting()
+                    ))
+                    .forEach((level, cnt) -> {
+                        if (cnt > 0) {
+                            logger.debug("Batch stats - {}: {}", level, cnt);
+                        }
+                    });
+        }
+    }
+
+    private List<PipelineStage> getStages() {
+        return java.util.stream.Stream.of(storeStage, alertStage, broadcastStage, lateStage)
+                .filter(java.util.Objects::nonNull)
+                .toList();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stages = new LinkedHashMap<>();
+        Map<String, Object> enrich = new LinkedHashMap<>(enrichMetrics.snapshot());
+        enrich.put("queueDepth", logBuffer != null ? logBuffer.size() : partitionedBuffer.size());
+        enrich.put("enrichers", enrichers.size());
+        stages.put("enrich", enrich);
+        for (PipelineStage stage : getStages()) {
+            stages.put(stage.getName(), stage.getStats());
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("running", running);
+        stats.put("processedCount", processedCount.get());
+        stats.put("workers", activeWorkers.get());
+        stats.put("targetWorkers", targetWorkers);
+        stats.put("scaling", scaler != null ? scaler.getStats() : "fixed");
+        if (reorderer != null) {
+            Map<String, Object> eventTime = new LinkedHashMap<>(reorderer.getStats());
+            eventTime.put("latePolicy", latePolicy.name());
+            eventTime.put("droppedLate", droppedLate.get());
+            stats.put("eventTime", eventTime);
+        }
+        if (partitionedBuffer != null) {
+            stats.put("partitions", partitionedBuffer.getPartitionCount());
+            stats.put("stolenBatches", stolenBatches.get());
         }
+        stats.put("stages", stages);
+        return stats;
     }
 
     public long getProcessedCount() {
@@ -99,4 +524,4 @@ public class LogProcessor {
     public boolean isRunning() {
         return running;
     }
-}
\ No newline at end of file
+}
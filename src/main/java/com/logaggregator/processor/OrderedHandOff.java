@@ -0,0 +1,56 @@
+package com.logaggregator.processor;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Passes work to the next stage in the order it was queued, without making every producer wait on
+// a blocking submit. Producers queue under their own ordering lock and drain after releasing it:
+// whichever thread gets the drain lock runs everything queued so far, the others return at once.
+// Past maxQueued outstanding steps producers wait for the drain lock, which keeps backpressure.
+public class OrderedHandOff {
+    public interface Step {
+        void run() throws InterruptedException;
+    }
+
+    private final ConcurrentLinkedQueue<Step> queued;
+    private final AtomicInteger size;
+    private final ReentrantLock drainLock;
+    private final int maxQueued;
+
+    public OrderedHandOff(int maxQueued) {
+        this.queued = new ConcurrentLinkedQueue<>();
+        this.size = new AtomicInteger(0);
+        this.drainLock = new ReentrantLock();
+        this.maxQueued = Math.max(1, maxQueued);
+    }
+
+    public void add(Step step) {
+        queued.add(step);
+        size.incrementAndGet();
+    }
+
+    public void drain() throws InterruptedException {
+        // Re-checked after unlocking: a step added while the drainer was finishing isn't stranded
+        while (!queued.isEmpty()) {
+            if (size.get() > maxQueued) {
+                drainLock.lockInterruptibly();
+            } else if (!drainLock.tryLock()) {
+                return;
+            }
+            try {
+                Step step;
+                while ((step = queued.poll()) != null) {
+                    size.decrementAndGet();
+                    step.run();
+                }
+            } finally {
+                drainLock.unlock();
+            }
+        }
+    }
+
+    public int size() {
+        return size.get();
+    }
+}
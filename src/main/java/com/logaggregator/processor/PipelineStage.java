@@ -0,0 +1,182 @@
+package com.logaggregator.processor;
+
+import com.logaggregator.core.LogEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+public class PipelineStage {
+    private static final Logger logger = LoggerFactory.getLogger(PipelineStage.class);
+
+    private final String name;
+    private final Consumer<List<LogEntry>> handler;
+    // One shared queue, or in keyed mode one queue per worker so a key's batches stay in order
+    private final List<BlockingQueue<Work>> queues;
+    private final int queueCapacity;
+    private final AtomicLong roundRobin;
+    private final int workerCount;
+    private final ExecutorService workers;
+    private final StageMetrics metrics;
+    private final AtomicLong droppedBatches;
+    private volatile boolean running;
+
+    private record Work(List<LogEntry> batch, long enqueuedNanos) {
+    }
+
+    public PipelineStage(String name, int workerCount, int queueCapacity, Consumer<List<LogEntry>> handler) {
+        this(name, workerCount, queueCapacity, false, handler);
+    }
+
+    public PipelineStage(String name, int workerCount, int queueCapacity, boolean keyed,
+                         Consumer<List<LogEntry>> handler) {
+        this.name = name;
+        this.handler = handler;
+        this.queueCapacity = queueCapacity;
+        this.queues = new ArrayList<>();
+        int queueCount = keyed ? workerCount : 1;
+        for (int i = 0; i < queueCount; i++) {
+            queues.add(new ArrayBlockingQueue<>(Math.max(1, queueCapacity / queueCount)));
+        }
+        this.roundRobin = new AtomicLong(0);
+        this.workerCount = workerCount;
+        AtomicInteger workerIndex = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "pipeline-" + name + "-" + workerIndex.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.metrics = new StageMetrics();
+        this.droppedBatches = new AtomicLong(0);
+    }
+
+    public void start() {
+        running = true;
+        for (int i = 0; i < workerCount; i++) {
+            BlockingQueue<Work> queue = queues.get(i % queues.size());
+            workers.submit(() -> runWorker(queue));
+        }
+    }
+
+    // Blocks when the stage is saturated, pushing back on the stage feeding it
+    public void submit(List<LogEntry> batch) throws InterruptedException {
+        nextQueue().put(new Work(batch, System.nanoTime()));
+    }
+
+    // Batches with the same key are handled by the same worker in submission order
+    public void submit(int key, List<LogEntry> batch) throws InterruptedException {
+        queues.get(Math.floorMod(key, queues.size())).put(new Work(batch, System.nanoTime()));
+    }
+
+    // Never blocks: a saturated side stage sheds batches instead of slowing its producer
+    public boolean offer(List<LogEntry> batch) {
+        if (nextQueue().offer(new Work(batch, System.nanoTime()))) {
+            return true;
+        }
+        droppedBatches.incrementAndGet();
+        return false;
+    }
+
+    private BlockingQueue<Work> nextQueue() {
+        return queues.size() == 1 ? queues.get(0)
+                : queues.get((int) (roundRobin.getAndIncrement() % queues.size()));
+    }
+
+    private void runWorker(BlockingQueue<Work> queue) {
+        while (running || !queue.isEmpty()) {
+            try {
+                Work work = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (work == null) {
+                    continue;
+                }
+                long started = System.nanoTime();
+                try {
+                    handler.accept(work.batch());
+                } catch (Exception e) {
+                    logger.error("Stage '{}' failed to process batch of {} entries", name, work.batch().size(), e);
+                }
+                metrics.record(work.batch().size(), started - work.enqueuedNanos(), System.nanoTime() - started);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+    }
+
+    public void stop() {
+        running = false;
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(5, TimeUnit.SECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getQueueDepth() {
+        int depth = 0;
+        for (BlockingQueue<Work> queue : queues) {
+            depth += queue.size();
+        }
+        return depth;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>(metrics.snapshot());
+        stats.put("workers", workerCount);
+        stats.put("queueDepth", getQueueDepth());
+        stats.put("keyed", queues.size() > 1);
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("droppedBatches", droppedBatches.get());
+        return stats;
+    }
+
+    static class StageMetrics {
+        private final AtomicLong batches = new AtomicLong();
+        private final AtomicLong entries = new AtomicLong();
+        private final AtomicLong waitNanos = new AtomicLong();
+        private final AtomicLong processNanos = new AtomicLong();
+        private final AtomicLong maxProcessNanos = new AtomicLong();
+
+        void record(int batchSize, long queuedNanos, long processedNanos) {
+            batches.incrementAndGet();
+            entries.addAndGet(batchSize);
+            waitNanos.addAndGet(queuedNanos);
+            processNanos.addAndGet(processedNanos);
+            maxProcessNanos.accumulateAndGet(processedNanos, Math::max);
+        }
+
+        long getEntries() {
+            return entries.get();
+        }
+
+        Map<String, Object> snapshot() {
+            Map<String, Object> stats = new HashMap<>();
+            long count = batches.get();
+            stats.put("batches", count);
+            stats.put("entries", entries.get());
+            stats.put("avgQueueWaitMs", count > 0 ? waitNanos.get() / 1e6 / count : 0.0);
+            stats.put("avgLatencyMs", count > 0 ? processNanos.get() / 1e6 / count : 0.0);
+            stats.put("maxLatencyMs", maxProcessNanos.get() / 1e6);
+            return stats;
+        }
+    }
+}
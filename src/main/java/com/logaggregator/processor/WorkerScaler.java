@@ -0,0 +1,105 @@
+package com.logaggregator.processor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+// Decides how many processor workers should be running, from one sample per interval of
+// buffer depth, how fast the depth is changing and how long workers take per batch.
+public class WorkerScaler {
+    private static final int HISTORY_SIZE = 20;
+
+    private final int minWorkers;
+    private final int maxWorkers;
+    private final int bufferCapacity;
+    private final double scaleUpFill;
+    private final double maxBatchLatencyMs;
+    private final int idleIntervalsBeforeShrink;
+
+    private long lastDepth = -1;
+    private long lastSampleMillis;
+    private int idleIntervals;
+    private final Deque<Map<String, Object>> history = new ArrayDeque<>();
+
+    public WorkerScaler(int minWorkers, int maxWorkers, int bufferCapacity, double scaleUpFill,
+                        double maxBatchLatencyMs, int idleIntervalsBeforeShrink) {
+        this.minWorkers = Math.max(1, minWorkers);
+        this.maxWorkers = Math.max(this.minWorkers, maxWorkers);
+        this.bufferCapacity = Math.max(1, bufferCapacity);
+        this.scaleUpFill = scaleUpFill;
+        this.maxBatchLatencyMs = maxBatchLatencyMs;
+        this.idleIntervalsBeforeShrink = Math.max(1, idleIntervalsBeforeShrink);
+    }
+
+    public synchronized int decide(long nowMillis, long depth, double avgBatchLatencyMs, int currentWorkers) {
+        double fill = (double) depth / bufferCapacity;
+        double growthPerSec = 0;
+        if (lastDepth >= 0 && nowMillis > lastSampleMillis) {
+            growthPerSec = (depth - lastDepth) * 1000.0 / (nowMillis - lastSampleMillis);
+        }
+        lastDepth = depth;
+        lastSampleMillis = nowMillis;
+
+        int target = currentWorkers;
+        String reason;
+        boolean backlog = fill >= scaleUpFill || (growthPerSec > 0 && depth > 0);
+
+        if (currentWorkers < minWorkers) {
+            target = minWorkers;
+            reason = "below minimum";
+        } else if (backlog && avgBatchLatencyMs > maxBatchLatencyMs) {
+            // Workers are already slow per batch, typically blocked on a downstream stage;
+            // more of them would only add contention
+            reason = "backlog but batch latency high, holding";
+            idleIntervals = 0;
+        } else if (backlog) {
+            // Grow by half again so a sustained surge reaches max in a few intervals
+            target = Math.min(maxWorkers, currentWorkers + Math.max(1, currentWorkers / 2));
+            reason = target > currentWorkers ? "backlog" : "backlog, at maximum";
+            idleIntervals = 0;
+        } else if (depth == 0 || (fill < scaleUpFill / 10 && growthPerSec <= 0)) {
+            idleIntervals++;
+            if (idleIntervals >= idleIntervalsBeforeShrink && currentWorkers > minWorkers) {
+                target = currentWorkers - 1;
+                idleIntervals = 0;
+                reason = "idle";
+            } else {
+                reason = "steady";
+            }
+        } else {
+            idleIntervals = 0;
+            reason = "steady";
+        }
+
+        if (target != currentWorkers) {
+            Map<String, Object> decision = new HashMap<>();
+            decision.put("time", nowMillis);
+            decision.put("from", currentWorkers);
+            decision.put("to", target);
+            decision.put("reason", reason);
+            decision.put("depth", depth);
+            decision.put("growthPerSec", Math.round(growthPerSec));
+            decision.put("avgBatchLatencyMs", avgBatchLatencyMs);
+            history.addFirst(decision);
+            if (history.size() > HISTORY_SIZE) {
+                history.removeLast();
+            }
+        }
+        return target;
+    }
+
+    public int getMinWorkers() { return minWorkers; }
+    public int getMaxWorkers() { return maxWorkers; }
+
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("minWorkers", minWorkers);
+        stats.put("maxWorkers", maxWorkers);
+        stats.put("scaleUpFill", scaleUpFill);
+        stats.put("maxBatchLatencyMs", maxBatchLatencyMs);
+        stats.put("recentDecisions", new ArrayList<>(history));
+        return stats;
+    }
+}
@@ -1,5 +1,6 @@
 package com.logaggregator.storage;
 
+import com.logaggregator.core.IndexedFields;
 import com.logaggregator.core.LogEntry;
 import com.logaggregator.core.LogLevel;
 import org.slf4j.Logger;
@@ -14,12 +15,14 @@ import java.util.stream.Collectors;
 
 public class InMemoryStorage implements LogStorage {
     private static final Logger logger = LoggerFactory.getLogger(InMemoryStorage.class);
+    private static final int MERGE_THRESHOLD = 64;
 
     private final List<LogEntry> logEntries;
     private final Map<String, List<LogEntry>> invertedIndex;
     private final ReadWriteLock lock;
     private final long maxCapacity;
     private long totalCount;
+    private long outOfOrderInserts;
 
     public InMemoryStorage(long maxCapacity) {
         this.logEntries = new CopyOnWriteArrayList<>();
@@ -40,18 +43,26 @@ public class InMemoryStorage implements LogStorage {
 
         lock.writeLock().lock();
         try {
-            // Check capacity and evict if necessary
-            while (logEntries.size() + entries.size() > maxCapacity && !logEntries.isEmpty()) {
-                LogEntry removed = logEntries.remove(0);
-                removeFromIndex(removed);
-            }
+            // Add to storage, keeping the list in timestamp order
+            insertInOrder(entries);
 
-            // Add to storage
-            logEntries.addAll(entries);
+            // Then evict the oldest over capacity: a historical (backfill) batch older than everything
+            // stored is what gets trimmed, instead of pushing out newer real-time entries
+            Set<LogEntry> evicted = Collections.newSetFromMap(new IdentityHashMap<>());
+            int overflow = (int) (logEntries.size() - maxCapacity);
+            if (overflow > 0) {
+                // One block: backfill batches would otherwise copy the list per entry
+                List<LogEntry> oldest = logEntries.subList(0, overflow);
+                evicted.addAll(oldest);
+                oldest.clear();
+                removeFromIndex(evicted);
+            }
 
             // Add to inverted index
             for (LogEntry entry : entries) {
-                addToIndex(entry);
+                if (!evicted.contains(entry)) {
+                    addToIndex(entry);
+                }
             }
 
             totalCount += entries.size();
@@ -66,16 +77,85 @@ public class InMemoryStorage implements LogStorage {
         }
     }
 
+    // Entries normally arrive in order (event-time pipeline) and are appended in one step;
+    // stragglers are placed by binary search so readers never have to sort
+    private void insertInOrder(List<LogEntry> entries) {
+        List<LogEntry> batch = entries;
+        if (!isSorted(batch)) {
+            batch = new ArrayList<>(entries);
+            batch.sort(Comparator.comparingLong(LogEntry::getEventTimeNanos));
+        }
+        if (logEntries.isEmpty()
+                || batch.get(0).getEventTimeNanos() >= logEntries.get(logEntries.size() - 1).getEventTimeNanos()) {
+            logEntries.addAll(batch);
+            return;
+        }
+        outOfOrderInserts += batch.size();
+        if (batch.size() < MERGE_THRESHOLD) {
+            for (LogEntry entry : batch) {
+                logEntries.add(upperBound(entry.getEventTimeNanos()), entry);
+            }
+            return;
+        }
+        // Large historical batches (backfill): one merge pass instead of an array copy per entry
+        int from = upperBound(batch.get(0).getEventTimeNanos());
+        List<LogEntry> tail = new ArrayList<>(logEntries.subList(from, logEntries.size()));
+        List<LogEntry> merged = new ArrayList<>(tail.size() + batch.size());
+        int i = 0;
+        int j = 0;
+        while (i < tail.size() && j < batch.size()) {
+            // Existing entries go first on equal timestamps
+            if (batch.get(j).getEventTimeNanos() < tail.get(i).getEventTimeNanos()) {
+                merged.add(batch.get(j++));
+            } else {
+                merged.add(tail.get(i++));
+            }
+        }
+        merged.addAll(tail.subList(i, tail.size()));
+        merged.addAll(batch.subList(j, batch.size()));
+        logEntries.subList(from, logEntries.size()).clear();
+        logEntries.addAll(merged);
+    }
+
+    private static boolean isSorted(List<LogEntry> entries) {
+        for (int i = 1; i < entries.size(); i++) {
+            if (entries.get(i).getEventTimeNanos() < entries.get(i - 1).getEventTimeNanos()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // First index whose timestamp is after the given one, so equal timestamps keep arrival order
+    private int upperBound(long eventTimeNanos) {
+        int low = 0;
+        int high = logEntries.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (logEntries.get(mid).getEventTimeNanos() > eventTimeNanos) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    private List<LogEntry> newestFirst(int limit) {
+        List<LogEntry> result = new ArrayList<>(Math.min(limit, logEntries.size()));
+        for (int i = logEntries.size() - 1; i >= 0 && result.size() < limit; i--) {
+            result.add(logEntries.get(i));
+        }
+        return result;
+    }
+
     @Override
     public List<LogEntry> search(String query, int limit) {
         lock.readLock().lock();
         try {
             if (query == null || query.trim().isEmpty()) {
                 // Return recent entries
-                return logEntries.stream()
-                        .sorted((a, b) -> b.getTimestamp().compareTo(a.getTimestamp()))
-                        .limit(limit)
-                        .collect(Collectors.toList());
+                return newestFirst(limit);
             }
 
             // Simple keyword search using inverted index
@@ -94,7 +174,7 @@ public class InMemoryStorage implements LogStorage {
                     .sorted((a, b) -> {
                         int scoreCompare = b.getValue().compareTo(a.getValue());
                         if (scoreCompare != 0) return scoreCompare;
-                        return b.getKey().getTimestamp().compareTo(a.getKey().getTimestamp());
+                        return Long.compare(b.getKey().getEventTimeNanos(), a.getKey().getEventTimeNanos());
                     })
                     .map(Map.Entry::getKey)
                     .limit(limit)
@@ -110,6 +190,10 @@ public class InMemoryStorage implements LogStorage {
         return totalCount;
     }
 
+    public long getOutOfOrderInserts() {
+        return outOfOrderInserts;
+    }
+
     @Override
     public void close() {
         logger.info("In-memory storage closed. Total entries processed: {}", totalCount);
@@ -125,12 +209,21 @@ public class InMemoryStorage implements LogStorage {
         // Index level
         indexText(entry.getLevel().name(), entry);
 
-        // Index additional fields
-        entry.getFields().forEach((key, value) -> {
-            if (value != null) {
-                indexText(value.toString(), entry);
+        // Index additional fields; with a declared list only those, so lazy entries stay undecoded
+        if (IndexedFields.isAll()) {
+            entry.getFields().forEach((key, value) -> {
+                if (value != null) {
+                    indexText(value.toString(), entry);
+                }
+            });
+        } else {
+            for (String name : IndexedFields.getNames()) {
+                Object value = entry.getField(name);
+                if (value != null) {
+                    indexText(value.toString(), entry);
+                }
             }
-        });
+        }
     }
 
     private void indexText(String text, LogEntry entry) {
@@ -148,10 +241,10 @@ public class InMemoryStorage implements LogStorage {
         }
     }
 
-    private void removeFromIndex(LogEntry entry) {
+    private void removeFromIndex(Set<LogEntry> entries) {
         // This is a simplified implementation
         // In a real system, we'd track which words were indexed for each entry
-        invertedIndex.values().forEach(list -> list.remove(entry));
+        invertedIndex.values().forEach(list -> list.removeIf(entries::contains));
         invertedIndex.entrySet().removeIf(entryList -> entryList.getValue().isEmpty());
     }
 
@@ -159,10 +252,7 @@ public class InMemoryStorage implements LogStorage {
     public List<LogEntry> getRecentEntries(int count) {
         lock.readLock().lock();
         try {
-            return logEntries.stream()
-                    .sorted((a, b) -> b.getTimestamp().compareTo(a.getTimestamp()))
-                    .limit(count)
-                    .collect(Collectors.toList());
+            return newestFirst(count);
         } finally {
             lock.readLock().unlock();
         }
@@ -0,0 +1,146 @@
+package com.logaggregator.tools;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.logaggregator.core.LogEntry;
+import com.logaggregator.core.LogLevel;
+import com.logaggregator.parser.JsonLogParser;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+// Usage: EntryFootprint [entries=1000000] [threads=4]
+// Heap retained per entry and creation rate for the compact LogEntry and for the previous layout
+// (UUID string id, LocalDateTime, eager HashMap). Content strings are shared, so only the
+// per-entry overhead is counted. The json rows parse a field-heavy line each time, so field values
+// are counted too: boxed into a HashMap as before, or in a FieldStore through JsonLogParser.
+public class EntryFootprint {
+    private static final JsonFactory factory = new JsonFactory();
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        String raw = "2024-01-01 10:00:00 INFO request handled";
+        String message = "request handled";
+        long millis = System.currentTimeMillis();
+        String json = "{\"timestamp\":\"2024-01-01T10:00:00.123Z\",\"level\":\"info\",\"message\":\"request handled\","
+                + "\"service\":\"orders\",\"hostname\":\"web-3\",\"requestId\":\"9f1c2a7e\",\"method\":\"GET\","
+                + "\"status\":200,\"bytes\":5120,\"latency_ms\":12.5,\"user_id\":4211,\"retries\":0,\"cached\":true}";
+        JsonLogParser parser = new JsonLogParser();
+
+        System.out.printf("Entry footprint: %d entries, %d threads%n", count, threads);
+        System.out.printf("%-10s %16s %16s%n", "layout", "bytes/entry", "entries/s");
+        for (int round = 0; round < 3; round++) {
+            // Results from the first rounds include JIT warm-up
+            boolean report = round == 2;
+            measure("previous", count, threads, report,
+                    () -> new LegacyLogEntry("app", raw, LogLevel.INFO, LocalDateTime.now(), message));
+            measure("compact", count, threads, report,
+                    () -> new LogEntry("app", raw, LogLevel.INFO, millis, message));
+            measure("json/prev", count, threads, report, () -> legacyJson(json));
+            measure("json/now", count, threads, report, () -> parser.parse("app", json).orElseThrow());
+        }
+    }
+
+    // The previous JsonLogParser's field handling: every scalar boxed into the entry's HashMap
+    private static LegacyLogEntry legacyJson(String line) {
+        LegacyLogEntry entry = new LegacyLogEntry("app", line, LogLevel.INFO, LocalDateTime.now(), null);
+        try (JsonParser parser = factory.createParser(line)) {
+            parser.nextToken();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken token = parser.nextToken();
+                if (name.equals("timestamp")) {
+                    continue;
+                }
+                if (name.equals("message")) {
+                    entry.message = parser.getText();
+                } else if (token == JsonToken.VALUE_STRING) {
+                    entry.fields.put(name, parser.getText());
+                } else if (token == JsonToken.VALUE_NUMBER_INT) {
+                    entry.fields.put(name, parser.getNumberValue());
+                } else if (token == JsonToken.VALUE_NUMBER_FLOAT) {
+                    entry.fields.put(name, parser.getDoubleValue());
+                } else if (token.isBoolean()) {
+                    entry.fields.put(name, token == JsonToken.VALUE_TRUE);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return entry;
+    }
+
+    private static void measure(String name, int count, int threads, boolean report, Supplier<Object> factory)
+            throws Exception {
+        long before = usedHeap();
+        List<Object> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            entries.add(factory.get());
+        }
+        long bytes = usedHeap() - before;
+        entries.clear();
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                for (int i = 0; i < count / threads; i++) {
+                    factory.get();
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long nanos = System.nanoTime() - start;
+        pool.shutdown();
+
+        if (report) {
+            // The list holding the entries costs 4 bytes per slot with compressed references
+            System.out.printf("%-10s %16d %16.0f%n", name, bytes / count - 4, count / (nanos / 1e9));
+        }
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // The entry as it was before the compact layout, kept here as the baseline
+    private static class LegacyLogEntry {
+        private final String id;
+        private final String source;
+        private final String rawMessage;
+        private final LogLevel level;
+        private final LocalDateTime timestamp;
+        private String message;
+        private final Map<String, Object> fields;
+
+        LegacyLogEntry(String source, String rawMessage, LogLevel level, LocalDateTime timestamp, String message) {
+            this.id = UUID.randomUUID().toString();
+            this.source = source;
+            this.rawMessage = rawMessage;
+            this.level = level;
+            this.timestamp = timestamp;
+            this.message = message;
+            this.fields = new HashMap<>();
+        }
+    }
+}
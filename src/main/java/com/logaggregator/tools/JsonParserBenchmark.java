@@ -0,0 +1,130 @@
+package com.logaggregator.tools;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.logaggregator.core.LogEntry;
+import com.logaggregator.parser.JsonLogParser;
+import com.logaggregator.parser.LogParser;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Usage: JsonParserBenchmark [lines=200000] [rounds=5]
+// Compares the streaming JsonLogParser with the previous tree-based implementation on JSON lines
+// (with nested context) and on plain-text lines probed by the registry's fallback pass.
+public class JsonParserBenchmark {
+    public static void main(String[] args) {
+        int lineCount = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        List<String> jsonLines = new ArrayList<>(lineCount);
+        List<String> textLines = new ArrayList<>(lineCount);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < lineCount; i++) {
+            jsonLines.add(String.format(
+                    "{\"timestamp\":\"2024-01-01T10:00:%02d\",\"level\":\"%s\",\"service\":\"api-%d\","
+                            + "\"message\":\"request %d handled\",\"status\":%d,\"latency_ms\":%.2f,\"cached\":%b,"
+                            + "\"request\":{\"method\":\"GET\",\"path\":\"/orders/%d\",\"headers\":{\"accept\":\"*/*\"}},"
+                            + "\"tags\":[\"a\",\"b\",\"c\"]}",
+                    i % 60, random.nextBoolean() ? "INFO" : "ERROR", i % 8, i, 200 + random.nextInt(4) * 100,
+                    random.nextDouble(500), random.nextBoolean(), i));
+            textLines.add("2024-01-01 10:00:00 INFO request " + i + " handled in " + random.nextInt(500) + " ms");
+        }
+
+        LogParser streaming = new JsonLogParser();
+        LogParser tree = new TreeJsonLogParser();
+
+        System.out.printf("JSON parser benchmark: %d lines, %d rounds%n", lineCount, rounds);
+        System.out.printf("%-10s %-6s %14s %12s%n", "parser", "input", "lines/s", "parsed");
+        for (int round = 0; round < rounds; round++) {
+            // Results from the first round include JIT warm-up
+            boolean report = round == rounds - 1;
+            run("tree", "json", tree, jsonLines, report);
+            run("streaming", "json", streaming, jsonLines, report);
+            run("tree", "text", tree, textLines, report);
+            run("streaming", "text", streaming, textLines, report);
+        }
+    }
+
+    private static void run(String name, String input, LogParser parser, List<String> lines, boolean report) {
+        long start = System.nanoTime();
+        long parsed = 0;
+        for (String line : lines) {
+            if (parser.parse("bench", line).isPresent()) {
+                parsed++;
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        if (report) {
+            System.out.printf("%-10s %-6s %14.0f %12d%n", name, input, lines.size() / (nanos / 1e9), parsed);
+        }
+    }
+
+    // The parser as it was before the streaming rewrite, kept here as the baseline
+    private static class TreeJsonLogParser implements LogParser {
+        private static final ObjectMapper mapper = new ObjectMapper();
+        private static final DateTimeFormatter[] DATE_FORMATTERS = {
+                DateTimeFormatter.ISO_LOCAL_DATE_TIME,
+                DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"),
+                DateTimeFormatter.ofPattern("yyyy/MM/dd HH:mm:ss")
+        };
+
+        @Override
+        public boolean supports(String logFormat) {
+            return "json".equalsIgnoreCase(logFormat);
+        }
+
+        @Override
+        public Optional<LogEntry> parse(String source, String rawLine) {
+            try {
+                JsonNode jsonNode = mapper.readTree(rawLine.trim());
+                String timestampStr = getField(jsonNode, "timestamp", "time", "@timestamp");
+                String levelStr = getField(jsonNode, "level", "loglevel", "severity");
+                String message = getField(jsonNode, "message", "msg", "log");
+                if (message == null) {
+                    return Optional.empty();
+                }
+                LocalDateTime timestamp = parseTimestamp(timestampStr);
+                if (timestamp == null) {
+                    timestamp = LocalDateTime.now();
+                }
+                LogEntry entry = new LogEntry(source, rawLine, JsonLogParser.parseLogLevel(levelStr), timestamp, message);
+                jsonNode.fields().forEachRemaining(field -> {
+                    if (!field.getKey().equals("message") && !field.getKey().equals("timestamp")) {
+                        entry.addField(field.getKey(), field.getValue().asText());
+                    }
+                });
+                return Optional.of(entry);
+            } catch (Exception e) {
+                return Optional.empty();
+            }
+        }
+
+        private static LocalDateTime parseTimestamp(String timestampStr) {
+            if (timestampStr == null) return null;
+
+            for (DateTimeFormatter formatter : DATE_FORMATTERS) {
+                try {
+                    return LocalDateTime.parse(timestampStr, formatter);
+                } catch (Exception e) {
+                    // Try next formatter
+                }
+            }
+            return null;
+        }
+
+        private String getField(JsonNode node, String... fieldNames) {
+            for (String fieldName : fieldNames) {
+                JsonNode field = node.get(fieldName);
+                if (field != null && !field.isNull()) {
+                    return field.asText();
+                }
+            }
+            return null;
+        }
+    }
+}
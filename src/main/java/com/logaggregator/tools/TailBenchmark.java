@@ -0,0 +1,107 @@
+package com.logaggregator.tools;
+
+import com.logaggregator.collector.LogFileWatcher;
+import com.logaggregator.collector.TailMode;
+import com.logaggregator.core.LogBuffer;
+import com.logaggregator.parser.ParserRegistry;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Usage: TailBenchmark [files=5000] [seconds=20] [writesPerSecond=500]
+public class TailBenchmark {
+    public static void main(String[] args) throws Exception {
+        int fileCount = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int writesPerSecond = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+
+        System.out.printf("Tail benchmark: %d files, %d s, %d appends/s%n", fileCount, seconds, writesPerSecond);
+        System.out.printf("%-10s %12s %12s %14s %12s%n", "mode", "peakThreads", "cpuMs", "cpu% (1 core)", "ingested");
+
+        for (TailMode mode : TailMode.values()) {
+            Path dir = Files.createTempDirectory("tail-bench");
+            try {
+                run(mode, dir, fileCount, seconds, writesPerSecond);
+            } finally {
+                deleteRecursively(dir);
+            }
+        }
+    }
+
+    private static void run(TailMode mode, Path dir, int fileCount, int seconds, int writesPerSecond)
+            throws Exception {
+        for (int i = 0; i < fileCount; i++) {
+            Files.writeString(dir.resolve("app-" + i + ".log"), "2024-01-01 00:00:00 INFO started\n");
+        }
+
+        LogBuffer buffer = new LogBuffer(1_000_000, 1000, 10_000, 10);
+        AtomicLong ingested = new AtomicLong();
+        Thread drainer = new Thread(() -> {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    ingested.addAndGet(buffer.takeBatch().size());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        drainer.setDaemon(true);
+        drainer.start();
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        var os = (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+
+        LogFileWatcher watcher = new LogFileWatcher(dir.toString(), "*.log", buffer, new ParserRegistry(), mode, null);
+        watcher.start();
+        Thread.sleep(2000); // let the initial reads settle
+
+        threads.resetPeakThreadCount();
+        long cpuStart = os.getProcessCpuTime();
+        long wallStart = System.nanoTime();
+        byte[] line = "2024-01-01 00:00:01 INFO request handled\n".getBytes(StandardCharsets.UTF_8);
+
+        for (int s = 0; s < seconds; s++) {
+            long tickEnd = System.nanoTime() + 1_000_000_000L;
+            for (int w = 0; w < writesPerSecond; w++) {
+                Path file = dir.resolve("app-" + ThreadLocalRandom.current().nextInt(fileCount) + ".log");
+                Files.write(file, line, StandardOpenOption.APPEND);
+            }
+            long remaining = tickEnd - System.nanoTime();
+            if (remaining > 0) {
+                Thread.sleep(remaining / 1_000_000);
+            }
+        }
+
+        long cpuMs = (os.getProcessCpuTime() - cpuStart) / 1_000_000;
+        long wallMs = (System.nanoTime() - wallStart) / 1_000_000;
+        int peakThreads = threads.getPeakThreadCount();
+
+        // Outside the measured window: give the last appends time to arrive so "ingested" shows
+        // lines lost or still pending rather than lines written a moment before the cut-off
+        long expected = fileCount + (long) seconds * writesPerSecond;
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (ingested.get() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+
+        watcher.stop();
+        drainer.interrupt();
+
+        System.out.printf("%-10s %12d %12d %13.1f%% %12d%n",
+                mode.name().toLowerCase(), peakThreads, cpuMs, 100.0 * cpuMs / wallMs, ingested.get());
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (var paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
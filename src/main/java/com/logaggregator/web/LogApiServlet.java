@@ -1,6 +1,15 @@
 package com.logaggregator.web;
 
+import com.logaggregator.collector.BackfillJob;
+import com.logaggregator.collector.BackfillService;
+import com.logaggregator.collector.LogFileWatcher;
+import com.logaggregator.collector.NdjsonIngester;
+import com.logaggregator.collector.NetworkCollector;
+import com.logaggregator.core.Config;
+import com.logaggregator.core.LogSink;
 import com.logaggregator.core.LogEntry;
+import com.logaggregator.parser.ParserRegistry;
+import com.logaggregator.processor.LogProcessor;
 import com.logaggregator.storage.InMemoryStorage;
 import com.logaggregator.storage.LogStorage;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -10,15 +19,24 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipException;
 
 public class LogApiServlet extends HttpServlet {
     private static final Logger logger = LoggerFactory.getLogger(LogApiServlet.class);
     private static final ObjectMapper mapper = new ObjectMapper();
+    private static final int SC_TOO_MANY_REQUESTS = 429;
 
     // This would be injected in a real application
     private LogStorage getStorage() {
@@ -47,6 +65,9 @@ public class LogApiServlet extends HttpServlet {
                 case "/health":
                     handleHealth(req, resp);
                     break;
+                case "/backfill":
+                    handleBackfillStatus(req, resp);
+                    break;
                 default:
                     handleDefault(req, resp);
                     break;
@@ -57,6 +78,32 @@ public class LogApiServlet extends HttpServlet {
         }
     }
 
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        resp.setContentType("application/json");
+        resp.setCharacterEncoding("UTF-8");
+
+        String pathInfo = req.getPathInfo();
+        if (pathInfo == null) pathInfo = "";
+
+        try {
+            switch (pathInfo) {
+                case "/backfill":
+                    handleBackfillSubmit(req, resp);
+                    break;
+                case "/ingest":
+                    handleIngest(req, resp);
+                    break;
+                default:
+                    sendError(resp, HttpServletResponse.SC_NOT_FOUND, "Unknown endpoint");
+                    break;
+            }
+        } catch (Exception e) {
+            logger.error("API error", e);
+            sendError(resp, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Internal server error");
+        }
+    }
+
     private void handleSearch(HttpServletRequest req, HttpServletResponse resp) throws IOException {
         String query = req.getParameter("q");
         String limitStr = req.getParameter("limit");
@@ -95,11 +142,43 @@ public class LogApiServlet extends HttpServlet {
             InMemoryStorage memStorage = (InMemoryStorage) storage;
             stats.put("totalEntries", storage.getTotalCount());
             stats.put("levelDistribution", memStorage.getLevelStatistics());
+            stats.put("outOfOrderInserts", memStorage.getOutOfOrderInserts());
             stats.put("connectedClients", LogWebSocket.getConnectedClients());
+            stats.put("droppedWebSocketMessages", LogWebSocket.getDroppedMessages());
         } else {
             stats.put("totalEntries", storage.getTotalCount());
         }
 
+        LogSink buffer = com.logaggregator.Main.getLogBuffer();
+        if (buffer != null) {
+            stats.put("buffer", buffer.getStats());
+        }
+
+        LogFileWatcher watcher = com.logaggregator.Main.getFileWatcher();
+        if (watcher != null) {
+            stats.put("collector", watcher.getStats());
+        }
+
+        ParserRegistry parsers = com.logaggregator.Main.getParserRegistry();
+        if (parsers != null) {
+            stats.put("parsers", parsers.getStats());
+        }
+
+        NdjsonIngester ingester = com.logaggregator.Main.getNdjsonIngester();
+        if (ingester != null) {
+            stats.put("ingest", ingester.getStats());
+        }
+
+        NetworkCollector network = com.logaggregator.Main.getNetworkCollector();
+        if (network != null) {
+            stats.put("network", network.getStats());
+        }
+
+        LogProcessor processor = com.logaggregator.Main.getLogProcessor();
+        if (processor != null) {
+            stats.put("pipeline", processor.getStats());
+        }
+
         stats.put("timestamp", java.time.LocalDateTime.now().toString());
 
         mapper.writeValue(resp.getWriter(), stats);
@@ -137,6 +216,129 @@ public class LogApiServlet extends HttpServlet {
         mapper.writeValue(resp.getWriter(), health);
     }
 
+    private void handleIngest(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        NdjsonIngester ingester = com.logaggregator.Main.getNdjsonIngester();
+        if (ingester == null) {
+            sendError(resp, HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Ingestion not available");
+            return;
+        }
+
+        // Refuse before reading the body when there is no room at all
+        if (ingester.isSaturated(1)) {
+            resp.setHeader("Retry-After", "1");
+            sendError(resp, SC_TOO_MANY_REQUESTS, "Log buffer is saturated, retry later");
+            return;
+        }
+
+        String source = req.getParameter("source");
+        NdjsonIngester.Result result;
+        try {
+            InputStream body = req.getInputStream();
+            if ("gzip".equalsIgnoreCase(req.getHeader("Content-Encoding"))) {
+                // Reads the gzip header here, so a body that isn't gzip fails inside the try
+                body = new GZIPInputStream(body, 64 * 1024);
+            }
+            result = ingester.ingest(body, source != null ? source : "http");
+        } catch (ZipException | EOFException e) {
+            // Not gzip at all: nothing was read, which the count says too
+            result = new NdjsonIngester.Result(0, 0, 0, false, "Invalid gzip body: " + e.getMessage());
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("accepted", result.accepted());
+        response.put("skipped", result.skipped());
+        // Records up to here are taken; a client retrying after 429 or 400 resends the rest
+        response.put("committedRecords", result.committedRecords());
+        if (result.saturated()) {
+            resp.setStatus(SC_TOO_MANY_REQUESTS);
+            resp.setHeader("Retry-After", "1");
+            response.put("error", "Log buffer is saturated, retry the remaining records later");
+        } else if (result.error() != null) {
+            resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            response.put("error", result.error());
+        }
+        mapper.writeValue(resp.getWriter(), response);
+    }
+
+    private void handleBackfillSubmit(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        BackfillService service = com.logaggregator.Main.getBackfillService();
+        if (service == null) {
+            sendError(resp, HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Backfill not available");
+            return;
+        }
+
+        String[] params = req.getParameterValues("path");
+        if (params == null || params.length == 0) {
+            sendError(resp, HttpServletResponse.SC_BAD_REQUEST, "At least one 'path' parameter is required");
+            return;
+        }
+
+        // Only archives under the configured roots may be read; with no roots configured the
+        // endpoint is disabled and backfill is available from the command line only
+        List<Path> allowedRoots = allowedBackfillRoots();
+        if (allowedRoots.isEmpty()) {
+            sendError(resp, HttpServletResponse.SC_FORBIDDEN, "No backfill roots configured (log.backfill.allowed.roots)");
+            return;
+        }
+
+        List<Path> paths = new ArrayList<>();
+        for (String param : params) {
+            Path path = Paths.get(param).toAbsolutePath().normalize();
+            if (!Files.exists(path)) {
+                sendError(resp, HttpServletResponse.SC_BAD_REQUEST, "Path does not exist: " + param);
+                return;
+            }
+            Path real = path.toRealPath();
+            if (allowedRoots.stream().noneMatch(real::startsWith)) {
+                sendError(resp, HttpServletResponse.SC_FORBIDDEN, "Path is outside the allowed backfill roots: " + param);
+                return;
+            }
+            paths.add(real);
+        }
+
+        BackfillJob job = service.submit(paths);
+        resp.setStatus(HttpServletResponse.SC_ACCEPTED);
+        mapper.writeValue(resp.getWriter(), job.getStatus());
+    }
+
+    private void handleBackfillStatus(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        BackfillService service = com.logaggregator.Main.getBackfillService();
+        if (service == null) {
+            sendError(resp, HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Backfill not available");
+            return;
+        }
+
+        String id = req.getParameter("id");
+        if (id != null) {
+            BackfillJob job = service.getJob(id);
+            if (job == null) {
+                sendError(resp, HttpServletResponse.SC_NOT_FOUND, "Unknown backfill job: " + id);
+                return;
+            }
+            mapper.writeValue(resp.getWriter(), job.getStatus());
+            return;
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("jobs", service.getJobs().stream().map(BackfillJob::getStatus).collect(Collectors.toList()));
+        mapper.writeValue(resp.getWriter(), response);
+    }
+
+    private List<Path> allowedBackfillRoots() {
+        List<Path> roots = new ArrayList<>();
+        for (String root : Config.get("log.backfill.allowed.roots", "").split(",")) {
+            if (root.isBlank()) {
+                continue;
+            }
+            try {
+                roots.add(Paths.get(root.trim()).toRealPath());
+            } catch (IOException e) {
+                logger.warn("Ignoring backfill root {}: {}", root, e.getMessage());
+            }
+        }
+        return roots;
+    }
+
     private void handleDefault(HttpServletRequest req, HttpServletResponse resp) throws IOException {
         Map<String, Object> info = new HashMap<>();
         info.put("name", "Log Aggregator API");
@@ -145,7 +347,10 @@ public class LogApiServlet extends HttpServlet {
                 "/api/search?q=query&limit=50",
                 "/api/stats",
                 "/api/recent?limit=20",
-                "/api/health"
+                "/api/health",
+                "/api/backfill?id=jobId",
+                "POST /api/backfill?path=/var/log/archive",
+                "POST /api/ingest?source=name (NDJSON body, optionally Content-Encoding: gzip)"
         ));
 
         mapper.writeValue(resp.getWriter(), info);
@@ -3,23 +3,34 @@ package com.logaggregator.web;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.logaggregator.alert.AlertEvent;
 import com.logaggregator.alert.AlertListener;
+import com.logaggregator.core.Config;
 import com.logaggregator.core.LogEntry;
 import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
 import org.eclipse.jetty.websocket.api.annotations.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 @WebSocket
 public class LogWebSocket implements AlertListener {
     private static final Logger logger = LoggerFactory.getLogger(LogWebSocket.class);
     private static final Map<Session, LogWebSocket> clients = new ConcurrentHashMap<>();
     private static final ObjectMapper mapper = new ObjectMapper();
+    // Sends are asynchronous so a slow client can't stall the broadcasting thread; past this many
+    // unfinished sends to one client its messages are dropped instead of queued without bound
+    private static final int MAX_PENDING_SENDS = Config.getInt("web.socket.max.pending.sends", 256);
+    private static final AtomicLong droppedMessages = new AtomicLong(0);
 
     private Session session;
+    private final AtomicInteger pendingSends = new AtomicInteger(0);
 
     @OnWebSocketConnect
     public void onConnect(Session session) {
@@ -56,35 +67,86 @@ public class LogWebSocket implements AlertListener {
     private void sendMessage(Object message) {
         if (session != null && session.isOpen()) {
             try {
-                String json = mapper.writeValueAsString(message);
-                session.getRemote().sendString(json);
+                send(mapper.writeValueAsString(message));
             } catch (IOException e) {
                 logger.error("Error sending WebSocket message", e);
             }
         }
     }
 
+    private void send(String json) {
+        if (!session.isOpen()) {
+            return;
+        }
+        if (pendingSends.incrementAndGet() > MAX_PENDING_SENDS) {
+            pendingSends.decrementAndGet();
+            droppedMessages.incrementAndGet();
+            return;
+        }
+        session.getRemote().sendString(json, new WriteCallback() {
+            @Override
+            public void writeSuccess() {
+                pendingSends.decrementAndGet();
+            }
+
+            @Override
+            public void writeFailed(Throwable error) {
+                pendingSends.decrementAndGet();
+                logger.debug("Error sending WebSocket message", error);
+            }
+        });
+    }
+
     @Override
     public void onAlert(AlertEvent event) {
-        Map<String, Object> alertMessage = Map.of(
-                "type", "alert",
-                "alert", Map.of(
-                        "rule", event.getRule().getName(),
-                        "severity", event.getRule().getSeverity().name(),
-                        "message", event.getMessage(),
-                        "timestamp", event.getTimestamp().toString(),
-                        "logEntry", Map.of(
-                                "source", event.getTriggeringEntry().getSource(),
-                                "level", event.getTriggeringEntry().getLevel().name(),
-                                "message", event.getTriggeringEntry().getMessage()
-                        )
-                )
+        broadcast(alertMessage(event));
+    }
+
+    @Override
+    public void onAlerts(List<AlertEvent> events) {
+        if (clients.isEmpty()) {
+            return;
+        }
+        broadcast(alertsMessage(events));
+    }
+
+    // One message per batch rather than one send per alert per client; a batch of one keeps the
+    // "alert" message existing clients understand
+    static Map<String, Object> alertsMessage(List<AlertEvent> events) {
+        if (events.size() == 1) {
+            return alertMessage(events.get(0));
+        }
+        List<Map<String, Object>> alerts = new ArrayList<>(events.size());
+        for (AlertEvent event : events) {
+            alerts.add(alertFields(event));
+        }
+        return Map.of(
+                "type", "alerts",
+                "alerts", alerts
         );
+    }
 
-        sendMessage(alertMessage);
+    static Map<String, Object> alertMessage(AlertEvent event) {
+        return Map.of(
+                "type", "alert",
+                "alert", alertFields(event)
+        );
+    }
 
-        // Broadcast to all clients
-        broadcast(alertMessage);
+    private static Map<String, Object> alertFields(AlertEvent event) {
+        return Map.of(
+                "rule", event.getRule().getName(),
+                "severity", event.getRule().getSeverity().name(),
+                "message", event.getMessage(),
+                "timestamp", event.getTimestamp().toString(),
+                "occurrences", event.getOccurrences(),
+                "firstOccurrence", event.getFirstOccurrence().toString(),
+                "logEntry", Map.of(
+                        "source", event.getTriggeringEntry().getSource(),
+                        "level", event.getTriggeringEntry().getLevel().name(),
+                        "message", event.getTriggeringEntry().getMessage()
+                )
+        );
     }
 
     public void sendLogEntry(LogEntry entry) {
@@ -114,29 +176,63 @@ public class LogWebSocket implements AlertListener {
     }
 
     private static void broadcast(Object message) {
-        clients.values().forEach(client -> {
-            try {
-                String json = mapper.writeValueAsString(message);
-                client.session.getRemote().sendString(json);
-            } catch (IOException e) {
-                logger.error("Error broadcasting message", e);
-            }
-        });
+        if (clients.isEmpty()) {
+            return;
+        }
+
+        String json;
+        try {
+            json = mapper.writeValueAsString(message);
+        } catch (IOException e) {
+            logger.error("Error serializing broadcast message", e);
+            return;
+        }
+
+        clients.values().forEach(client -> client.send(json));
     }
 
     public static void broadcastLogEntry(LogEntry entry) {
-        Map<String, Object> logMessage = Map.of(
+        broadcast(logMessage(entry));
+    }
+
+    public static void broadcastLogEntries(List<LogEntry> entries) {
+        // Live tail is best effort: skip building messages nobody will receive
+        if (clients.isEmpty() || entries.isEmpty()) {
+            return;
+        }
+        broadcast(logsMessage(entries));
+    }
+
+    static Map<String, Object> logMessage(LogEntry entry) {
+        return Map.of(
                 "type", "log",
-                "log", Map.of(
-                        "id", entry.getId(),
-                        "timestamp", entry.getTimestamp().toString(),
-                        "source", entry.getSource(),
-                        "level", entry.getLevel().name(),
-                        "message", entry.getMessage()
-                )
+                "log", logFields(entry)
         );
+    }
 
-        broadcast(logMessage);
+    // Like alerts, a whole batch goes out as one message so it can't overrun a client's send limit
+    static Map<String, Object> logsMessage(List<LogEntry> entries) {
+        if (entries.size() == 1) {
+            return logMessage(entries.get(0));
+        }
+        List<Map<String, Object>> logs = new ArrayList<>(entries.size());
+        for (LogEntry entry : entries) {
+            logs.add(logFields(entry));
+        }
+        return Map.of(
+                "type", "logs",
+                "logs", logs
+        );
+    }
+
+    private static Map<String, Object> logFields(LogEntry entry) {
+        return Map.of(
+                "id", entry.getId(),
+                "timestamp", entry.getTimestamp().toString(),
+                "source", entry.getSource(),
+                "level", entry.getLevel().name(),
+                "message", entry.getMessage()
+        );
     }
 
     public static void broadcastStats(Map<String, Object> stats) {
@@ -152,4 +248,8 @@ public class LogWebSocket implements AlertListener {
     public static int getConnectedClients() {
         return clients.size();
     }
+
+    public static long getDroppedMessages() {
+        return droppedMessages.get();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,54 @@
+package com.logaggregator.alert;
+
+import com.logaggregator.core.LogEntry;
+import com.logaggregator.core.LogLevel;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AlertDispatcherTest {
+
+    private static AlertEvent event(int i) {
+        AlertRule rule = new AlertRule("r", "r", "x", "message", AlertSeverity.LOW, "r");
+        LogEntry entry = new LogEntry("src", "msg " + i, LogLevel.ERROR, LocalDateTime.now(), "msg " + i);
+        return new AlertEvent(rule, entry, LocalDateTime.now(), "alert " + i);
+    }
+
+    @Test
+    public void testSlowListenerDoesNotBlockCaller() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> received = new CopyOnWriteArrayList<>();
+        AlertDispatcher dispatcher = new AlertDispatcher("slow", new AlertListener() {
+            @Override
+            public void onAlert(AlertEvent event) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                received.add(event.getMessage());
+            }
+        }, 4, DispatchOverflow.DROP_OLDEST, 10);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 100; i++) {
+            dispatcher.dispatch(event(i));
+        }
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+
+        release.countDown();
+        dispatcher.stop();
+
+        long dropped = ((Number) dispatcher.getStats().get("dropped")).longValue();
+        assertTrue(dropped >= 90, "dropped " + dropped);
+        assertEquals(100, received.size() + dropped);
+        // The newest alerts survive under DROP_OLDEST
+        assertEquals("alert 99", received.get(received.size() - 1));
+    }
+}
@@ -0,0 +1,42 @@
+package com.logaggregator.alert;
+
+import com.logaggregator.core.LogEntry;
+import com.logaggregator.core.LogLevel;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AlertGrouperTest {
+
+    private static LogEntry entry(String source) {
+        return new LogEntry(source, "disk full", LogLevel.ERROR, LocalDateTime.now(), "disk full");
+    }
+
+    @Test
+    public void testRepeatsAreSuppressedAndRolledUp() {
+        AlertRule rule = new AlertRule("disk", "disk", "disk", "message", AlertSeverity.HIGH, "Disk alert");
+        AlertGrouper grouper = new AlertGrouper(List.of("source"), 60_000, 100);
+
+        AlertEvent first = grouper.onTrigger(rule, entry("api"), 1_000);
+        assertNotNull(first);
+        assertEquals(1, first.getOccurrences());
+
+        for (int i = 0; i < 5; i++) {
+            assertNull(grouper.onTrigger(rule, entry("api"), 2_000 + i));
+        }
+        assertNotNull(grouper.onTrigger(rule, entry("worker"), 3_000), "other sources form their own group");
+
+        assertTrue(grouper.flush(30_000).isEmpty());
+        List<AlertEvent> rollups = grouper.flush(61_000);
+        assertEquals(1, rollups.size());
+        assertEquals(5, rollups.get(0).getOccurrences());
+        assertTrue(rollups.get(0).getMessage().contains("5 occurrences since"));
+
+        // Quiet groups are forgotten once a full window passes without triggers
+        grouper.flush(200_000);
+        assertEquals(0, grouper.getStats().get("activeGroups"));
+    }
+}
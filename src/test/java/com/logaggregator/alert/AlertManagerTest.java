@@ -0,0 +1,68 @@
+package com.logaggregator.alert;
+
+import com.logaggregator.core.LogEntry;
+import com.logaggregator.core.LogLevel;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AlertManagerTest {
+
+    private static final long HOUR = 3_600_000;
+
+    private static WindowedAlertRule heartbeat() {
+        return new WindowedAlertRule("heartbeat", "heartbeat", "^beat$", "message",
+                AlertSeverity.CRITICAL, "no heartbeat", AlertRuleType.ABSENCE, 30, 0, "source");
+    }
+
+    private static AlertManager manager(boolean eventClock) {
+        return new AlertManager(new AlertGrouper(List.of("source"), 60_000, 100), eventClock);
+    }
+
+    @Test
+    public void testOldTimestampsDontFireAbsenceWithEventTimeOff() {
+        // The event clock was asked for, but nothing publishes a watermark
+        assertFalse(AlertManager.useEventClock("event", false));
+        assertTrue(AlertManager.useEventClock("event", true));
+        assertFalse(AlertManager.useEventClock("processing", true));
+
+        AlertManager manager = manager(AlertManager.useEventClock("event", false));
+        WindowedAlertRule rule = heartbeat();
+        manager.addRule(rule);
+        try {
+            // A backlog of hour-old heartbeats, still arriving now
+            long old = System.currentTimeMillis() - HOUR;
+            manager.processBatch(List.of(new LogEntry("api", "beat", LogLevel.INFO, old, "beat")));
+            manager.checkWindowedRules();
+            assertEquals(0L, rule.getTriggerCount());
+            assertEquals("processing", manager.getStats().get("windowClock"));
+        } finally {
+            manager.stop();
+        }
+    }
+
+    @Test
+    public void testEventClockWaitsForTheWatermark() {
+        AlertManager manager = manager(true);
+        WindowedAlertRule rule = heartbeat();
+        manager.addRule(rule);
+        try {
+            long old = System.currentTimeMillis() - HOUR;
+            manager.processBatch(List.of(new LogEntry("api", "beat", LogLevel.INFO, old, "beat")));
+            // Not compared against the wall clock before any watermark
+            manager.checkWindowedRules();
+            assertEquals(0L, rule.getTriggerCount());
+
+            manager.onWatermark(old + 10_000);
+            manager.checkWindowedRules();
+            assertEquals(0L, rule.getTriggerCount());
+            manager.onWatermark(old + 31_000);
+            manager.checkWindowedRules();
+            assertEquals(1L, rule.getTriggerCount());
+        } finally {
+            manager.stop();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.logaggregator.alert;
+
+import com.logaggregator.core.LogEntry;
+import com.logaggregator.core.LogLevel;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AlertRuleEngineTest {
+
+    private static AlertRule rule(String id, String pattern, String field) {
+        return new AlertRule(id, id, pattern, field, AlertSeverity.MEDIUM, id);
+    }
+
+    @Test
+    public void testLiteralExtraction() {
+        assertEquals(Set.of("error", "exception", "failed", "critical", "fatal"),
+                RegexLiterals.extract(".*(error|exception|failed|critical|fatal).*"));
+        assertEquals(Set.of("timeout after "), RegexLiterals.extract("Timeout after \\d+ms"));
+        assertEquals(Set.of("connection refused"), RegexLiterals.extract("^connection refused$"));
+        assertEquals(Set.of(" disk"), RegexLiterals.extract("[a-z]+ disk\\b"));
+        assertNull(RegexLiterals.extract(".*"));
+        assertNull(RegexLiterals.extract("(?i)error"));
+        assertNull(RegexLiterals.extract("a?b*"));
+        assertNull(RegexLiterals.extract("error|\\d+"));
+    }
+
+    @Test
+    public void testEngineMatchesSequentialEvaluation() {
+        List<AlertRule> rules = List.of(
+                rule("errors", ".*(error|exception|failed|critical|fatal).*", "message"),
+                rule("all", ".*", "message"),
+                rule("timeout", "timeout after \\d+ms", "message"),
+                rule("db", "(postgres|mysql)[- ]?(down|unreachable)", "message"),
+                rule("noisy-source", "^payments", "source"),
+                rule("fatal-level", "FATAL", "level"),
+                rule("user", "admin", "user"),
+                rule("digits", "\\d{3}", "message")
+        );
+        AlertRuleEngine engine = new AlertRuleEngine(rules);
+
+        String[] words = {"Error", "timeout", "after", "120ms", "postgres", "down", "mysql-unreachable",
+                "ok", "FAILED", "critical", "user", "admin", "exceptionally", "42", "fatal"};
+        String[] sources = {"payments-api", "orders", "PAYMENTS"};
+        Random random = new Random(42);
+
+        List<LogEntry> batch = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder message = new StringBuilder();
+            int wordCount = 1 + random.nextInt(6);
+            for (int w = 0; w < wordCount; w++) {
+                message.append(words[random.nextInt(words.length)]).append(random.nextBoolean() ? " " : "");
+            }
+            LogLevel level = LogLevel.values()[random.nextInt(LogLevel.values().length)];
+            LogEntry entry = new LogEntry(sources[random.nextInt(sources.length)], message.toString(),
+                    level, LocalDateTime.now(), message.toString());
+            if (random.nextBoolean()) {
+                entry.addField("user", random.nextBoolean() ? "Admin" : "guest");
+            }
+            batch.add(entry);
+        }
+
+        List<String> expected = new ArrayList<>();
+        for (LogEntry entry : batch) {
+            for (AlertRule rule : rules) {
+                if (rule.matches(entry)) {
+                    expected.add(rule.getId() + ":" + entry.getId());
+                }
+            }
+        }
+
+        List<String> actual = new ArrayList<>();
+        engine.evaluateBatch(batch, (rule, entry) -> actual.add(rule.getId() + ":" + entry.getId()));
+
+        assertEquals(expected, actual);
+        assertTrue(((Number) engine.getStats().get("regexEvaluations")).longValue() < 2000L * rules.size());
+    }
+}
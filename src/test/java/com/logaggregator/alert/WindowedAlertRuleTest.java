@@ -0,0 +1,79 @@
+package com.logaggregator.alert;
+
+import com.logaggregator.core.LogEntry;
+import com.logaggregator.core.LogLevel;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WindowedAlertRuleTest {
+
+    private static LogEntry entry(String source) {
+        return new LogEntry(source, "boom", LogLevel.ERROR, LocalDateTime.now(), "boom");
+    }
+
+    @Test
+    public void testWindowCounterSlides() {
+        WindowCounter counter = new WindowCounter(60_000, 12);
+        counter.add(0, 5);
+        counter.add(30_000, 3);
+        assertEquals(8, counter.currentWindow(59_999));
+        assertEquals(3, counter.currentWindow(60_000));
+        assertEquals(5, counter.previousWindow(60_000));
+        assertEquals(0, counter.currentWindow(95_000));
+        assertEquals(8, counter.previousWindow(95_000));
+        assertEquals(0, counter.previousWindow(500_000));
+    }
+
+    @Test
+    public void testCountWindowFiresOncePerBreachAndKey() {
+        WindowedAlertRule rule = new WindowedAlertRule("burst", "burst", "ERROR", "level",
+                AlertSeverity.HIGH, "burst", AlertRuleType.COUNT_WINDOW, 60, 3, "source");
+
+        int fired = 0;
+        for (int i = 0; i < 10; i++) {
+            if (rule.shouldTrigger(entry("api"), 1_000 + i)) fired++;
+        }
+        assertEquals(1, fired);
+        assertFalse(rule.shouldTrigger(entry("worker"), 2_000), "other sources are counted separately");
+
+        // After the window has passed the count starts from scratch
+        for (int i = 0; i < 4; i++) {
+            if (rule.shouldTrigger(entry("api"), 200_000 + i)) fired++;
+        }
+        assertEquals(2, fired);
+    }
+
+    @Test
+    public void testRateChangeComparesWithPreviousWindow() {
+        WindowedAlertRule rule = new WindowedAlertRule("rate", "rate", ".*", "message", AlertSeverity.MEDIUM,
+                "rate", AlertRuleType.RATE_CHANGE, 10, 2.0, 6, "source", 0);
+        for (int i = 0; i < 5; i++) {
+            assertFalse(rule.shouldTrigger(entry("api"), i * 100));
+        }
+        boolean fired = false;
+        for (int i = 0; i < 11; i++) {
+            fired |= rule.shouldTrigger(entry("api"), 10_000 + i * 100);
+        }
+        assertTrue(fired);
+    }
+
+    @Test
+    public void testAbsenceFiresAfterSilence() {
+        WindowedAlertRule rule = new WindowedAlertRule("heartbeat", "heartbeat", ".*", "message",
+                AlertSeverity.CRITICAL, "no logs", AlertRuleType.ABSENCE, 30, 0, "source");
+        rule.shouldTrigger(entry("api"), 0);
+
+        List<LogEntry> absent = new ArrayList<>();
+        rule.checkAbsence(10_000, (r, e) -> absent.add(e));
+        assertTrue(absent.isEmpty());
+        rule.checkAbsence(31_000, (r, e) -> absent.add(e));
+        rule.checkAbsence(32_000, (r, e) -> absent.add(e));
+        assertEquals(1, absent.size());
+        assertEquals("api", absent.get(0).getSource());
+    }
+}
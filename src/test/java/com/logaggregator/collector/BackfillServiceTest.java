@@ -0,0 +1,106 @@
+package com.logaggregator.collector;
+
+import com.logaggregator.core.LogEntry;
+import com.logaggregator.core.LogLevel;
+import com.logaggregator.parser.ParserRegistry;
+import com.logaggregator.storage.InMemoryStorage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BackfillServiceTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testChunkedAndGzipFilesLoadEveryLineOnce() throws Exception {
+        StringBuilder plain = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            plain.append("INFO plain line ").append(i).append('\n');
+        }
+        Files.writeString(dir.resolve("app.log"), plain.toString());
+
+        StringBuilder zipped = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            zipped.append("WARN zipped line ").append(i).append('\n');
+        }
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(dir.resolve("app.log.1.gz")))) {
+            out.write(zipped.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        Files.writeString(dir.resolve("notes.txt"), "INFO not an archive\n");
+
+        // Chunks far smaller than the file so lines straddle chunk boundaries
+        InMemoryStorage storage = new InMemoryStorage(10_000);
+        BackfillService service = new BackfillService(new ParserRegistry(), storage, 4, 64, 1_000,
+                "{*.log,*.log.[0-9]*,*.gz,*.json}");
+        BackfillJob job = service.submit(List.of(dir));
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!job.isDone() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        service.stop();
+
+        assertEquals(BackfillJob.State.COMPLETED, job.getState());
+        assertEquals(700L, job.getStatus().get("entries"));
+
+        List<LogEntry> stored = storage.getRecentEntries(1_000);
+        Set<String> unique = new HashSet<>();
+        for (LogEntry entry : stored) {
+            assertEquals("app.log", entry.getSource(), "rotated and compressed files share the live source name");
+            unique.add(entry.getRawMessage());
+        }
+        assertEquals(700, stored.size());
+        assertEquals(700, unique.size());
+    }
+
+    @Test
+    public void testBackfillIntoAFullStoreKeepsNewerLiveEntries() {
+        InMemoryStorage storage = new InMemoryStorage(10);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 10; i++) {
+            storage.store(new LogEntry("app.log", "live " + i, LogLevel.INFO, now + i, "live " + i));
+        }
+
+        // A historical batch older than everything stored is what gets trimmed
+        List<LogEntry> history = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            history.add(new LogEntry("app.log", "old " + i, LogLevel.INFO, now - 60_000 + i, "old " + i));
+        }
+        storage.storeBatch(history);
+
+        List<LogEntry> stored = storage.getRecentEntries(100);
+        assertEquals(10, stored.size());
+        for (LogEntry entry : stored) {
+            assertTrue(entry.getRawMessage().startsWith("live "), entry.getRawMessage());
+        }
+        assertTrue(storage.search("old", 10).isEmpty());
+
+        // Partly newer: only the oldest overall are evicted
+        storage.storeBatch(List.of(
+                new LogEntry("app.log", "late 0", LogLevel.INFO, now + 2, "late 0"),
+                new LogEntry("app.log", "late 1", LogLevel.INFO, now - 1, "late 1")));
+        Set<String> kept = new HashSet<>();
+        for (LogEntry entry : storage.getRecentEntries(100)) {
+            kept.add(entry.getRawMessage());
+        }
+        assertEquals(10, kept.size());
+        assertTrue(kept.contains("late 0"));
+        assertFalse(kept.contains("late 1"));
+        assertFalse(kept.contains("live 0"));
+        assertTrue(kept.contains("live 1"));
+        assertEquals(1, storage.search("late", 10).size());
+    }
+}
@@ -0,0 +1,153 @@
+package com.logaggregator.collector;
+
+import com.logaggregator.core.LogBuffer;
+import com.logaggregator.core.LogEntry;
+import com.logaggregator.parser.ParserRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileTailerTest {
+
+    @TempDir
+    Path dir;
+
+    private static List<String> drain(LogBuffer buffer, int expected) throws InterruptedException {
+        List<String> messages = new ArrayList<>();
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (messages.size() < expected && System.currentTimeMillis() < deadline) {
+            for (LogEntry entry : buffer.pollBatch(50)) {
+                messages.add(entry.getRawMessage());
+            }
+        }
+        return messages;
+    }
+
+    private FileTailer tailer(Path file, LogBuffer buffer, CheckpointStore checkpoints) {
+        return new FileTailer(file, "text", buffer, new ParserRegistry(), checkpoints,
+                ConcurrentHashMap.newKeySet(), 10, 20, 1_000, Long.MAX_VALUE, 16, 1024, null);
+    }
+
+    @Test
+    public void testDrainsRotatedFileAndResumesFromCheckpoint() throws Exception {
+        Path log = dir.resolve("app.log");
+        Files.writeString(log, "INFO one\nINFO two\n");
+        CheckpointStore checkpoints = new CheckpointStore(dir.resolve("checkpoints.json").toString(), 60_000);
+        LogBuffer buffer = new LogBuffer(1000, 10, 10, 5);
+
+        FileTailer tailer = tailer(log, buffer, checkpoints);
+        Thread thread = new Thread(tailer);
+        thread.start();
+        assertEquals(List.of("INFO one", "INFO two"), drain(buffer, 2));
+
+        // Rotate by rename: the tail written to the old file just before the move must not be lost
+        Files.writeString(log, "INFO three\n", StandardOpenOption.APPEND);
+        Files.move(log, dir.resolve("app.log.1"));
+        Files.writeString(log, "INFO four\n");
+        tailer.signal();
+        assertEquals(List.of("INFO three", "INFO four"), drain(buffer, 2));
+
+        tailer.stop();
+        thread.join(2_000);
+        checkpoints.flush();
+
+        // A restart with the persisted checkpoints only picks up what was appended since
+        Files.writeString(log, "INFO five\n", StandardOpenOption.APPEND);
+        CheckpointStore reloaded = new CheckpointStore(dir.resolve("checkpoints.json").toString(), 60_000);
+        FileTailer restarted = tailer(log, buffer, reloaded);
+        Thread restartedThread = new Thread(restarted);
+        restartedThread.start();
+        assertEquals(List.of("INFO five"), drain(buffer, 1));
+        restarted.stop();
+        restartedThread.join(2_000);
+    }
+
+    @Test
+    public void testMultilineEventSurvivesRestartInOnePiece() throws Exception {
+        Path log = dir.resolve("app.log");
+        Files.writeString(log, "ERROR failed\n\tat Api.handle(Api.java:1)\n");
+        CheckpointStore checkpoints = new CheckpointStore(dir.resolve("checkpoints.json").toString(), 60_000);
+        LogBuffer buffer = new LogBuffer(1000, 10, 10, 5);
+        MultilineAssembler assembler = new MultilineAssembler(null, Pattern.compile("^\\s"), 100, 10_000, 60_000);
+
+        FileTailer tailer = new FileTailer(log, "text", buffer, new ParserRegistry(), checkpoints,
+                ConcurrentHashMap.newKeySet(), 10, 20, 1_000, Long.MAX_VALUE, 16, 1024, assembler);
+        Thread thread = new Thread(tailer);
+        thread.start();
+        Thread.sleep(300);
+        tailer.stop();
+        thread.join(2_000);
+        assertEquals(0, buffer.size(), "the event is still held, waiting for more lines");
+
+        // The checkpoint was kept at the start of the held event, so it is read again as a whole
+        Files.writeString(log, "\tat Main.run(Main.java:2)\nINFO recovered\n", StandardOpenOption.APPEND);
+        FileTailer restarted = new FileTailer(log, "text", buffer, new ParserRegistry(), checkpoints,
+                ConcurrentHashMap.newKeySet(), 10, 20, 1_000, Long.MAX_VALUE, 16, 1024,
+                new MultilineAssembler(null, Pattern.compile("^\\s"), 100, 10_000, 100));
+        Thread restartedThread = new Thread(restarted);
+        restartedThread.start();
+        assertEquals(List.of("ERROR failed\n\tat Api.handle(Api.java:1)\n\tat Main.run(Main.java:2)", "INFO recovered"),
+                drain(buffer, 2));
+        restarted.stop();
+        restartedThread.join(2_000);
+    }
+
+    @Test
+    public void testReopeningAnIdleFileWithoutCheckpointsResumesWhereItStopped() throws Exception {
+        Path log = dir.resolve("app.log");
+        Files.writeString(log, "INFO one\nINFO two\n");
+        LogBuffer buffer = new LogBuffer(1000, 10, 10, 5);
+
+        // No checkpoint store, and the descriptor is released after 100 ms without new data
+        FileTailer tailer = new FileTailer(log, "text", buffer, new ParserRegistry(), null,
+                ConcurrentHashMap.newKeySet(), 10, 20, 1_000, 100, 16, 1024, null);
+        Thread thread = new Thread(tailer);
+        thread.start();
+        assertEquals(List.of("INFO one", "INFO two"), drain(buffer, 2));
+
+        Thread.sleep(300);
+        Files.writeString(log, "INFO three\n", StandardOpenOption.APPEND);
+        tailer.signal();
+        assertEquals(List.of("INFO three"), drain(buffer, 1));
+        Thread.sleep(200);
+        assertEquals(0, buffer.size(), "the released file is not read again from the start");
+
+        tailer.stop();
+        thread.join(2_000);
+    }
+
+    @Test
+    public void testSignalWakesABackedOffTailer() throws Exception {
+        Path log = dir.resolve("app.log");
+        Files.writeString(log, "INFO one\n");
+        LogBuffer buffer = new LogBuffer(1000, 10, 10, 5);
+
+        // Idle polls back off towards 30 s, so only the signal can explain a prompt read
+        FileTailer tailer = new FileTailer(log, "text", buffer, new ParserRegistry(), null,
+                ConcurrentHashMap.newKeySet(), 10, 30_000, 1_000, Long.MAX_VALUE, 16, 1024, null);
+        Thread thread = new Thread(tailer);
+        thread.start();
+        assertEquals(List.of("INFO one"), drain(buffer, 1));
+        // By now the idle wait is past a second (10, 20, 40 ... ms)
+        Thread.sleep(1_500);
+
+        Files.writeString(log, "INFO two\n", StandardOpenOption.APPEND);
+        long signalled = System.currentTimeMillis();
+        tailer.signal();
+        assertEquals(List.of("INFO two"), drain(buffer, 1));
+        assertTrue(System.currentTimeMillis() - signalled < 500);
+
+        tailer.stop();
+        thread.join(2_000);
+        assertFalse(thread.isAlive());
+    }
+}
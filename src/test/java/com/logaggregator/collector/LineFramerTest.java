@@ -0,0 +1,56 @@
+package com.logaggregator.collector;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LineFramerTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testLinesAcrossReadBoundaries() throws Exception {
+        Path file = dir.resolve("app.log");
+        // Multi-byte characters and lines longer than the 8 byte read buffer
+        Files.writeString(file, "héllo wörld\r\nshort\n\nsecond line with ünïcode\npartial", StandardCharsets.UTF_8);
+
+        LineFramer framer = new LineFramer(8, 1024);
+        List<String> lines = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long read = framer.readFrom(channel, 0, lines::add);
+            assertEquals(Files.size(file), read);
+            assertEquals(List.of("héllo wörld", "short", "second line with ünïcode"), lines);
+            assertEquals("partial".length(), framer.pendingBytes());
+
+            Files.writeString(file, " line\n", StandardOpenOption.APPEND);
+            framer.readFrom(channel, read, lines::add);
+        }
+        assertEquals("partial line", lines.get(lines.size() - 1));
+        assertEquals(0, framer.pendingBytes());
+    }
+
+    @Test
+    public void testOversizedLineIsSplit() throws Exception {
+        Path file = dir.resolve("big.log");
+        Files.writeString(file, "x".repeat(40) + "\nok\n");
+
+        LineFramer framer = new LineFramer(8, 16);
+        List<String> lines = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            framer.readFrom(channel, 0, lines::add);
+        }
+        assertEquals("x".repeat(40), String.join("", lines.subList(0, lines.size() - 1)));
+        assertEquals("ok", lines.get(lines.size() - 1));
+        assertTrue(framer.getOversizedLines() > 0);
+    }
+}
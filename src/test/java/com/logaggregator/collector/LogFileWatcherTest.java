@@ -0,0 +1,157 @@
+package com.logaggregator.collector;
+
+import com.logaggregator.core.LogBuffer;
+import com.logaggregator.core.LogEntry;
+import com.logaggregator.core.LogSink;
+import com.logaggregator.parser.ParserRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LogFileWatcherTest {
+
+    @TempDir
+    Path dir;
+
+    private static List<String> drain(LogBuffer buffer, int expected) throws InterruptedException {
+        List<String> messages = new ArrayList<>();
+        long deadline = System.currentTimeMillis() + 15_000;
+        while (messages.size() < expected && System.currentTimeMillis() < deadline) {
+            for (LogEntry entry : buffer.pollBatch(50)) {
+                messages.add(entry.getRawMessage());
+            }
+        }
+        return messages;
+    }
+
+    @Test
+    public void testSelectorMatchesNamesAndRelativePaths() {
+        FileSelector selector = FileSelector.parse("*.{log,json}, payments/**/*.txt", "*.gz,archive");
+        assertEquals(List.of("*.{log,json}", "payments/**/*.txt"), selector.getIncludes());
+
+        assertTrue(selector.matchesFile(Paths.get("app.log")));
+        assertTrue(selector.matchesFile(Paths.get("api/v2/app.json")));
+        assertTrue(selector.matchesFile(Paths.get("payments/eu/out.txt")));
+        assertFalse(selector.matchesFile(Paths.get("billing/eu/out.txt")));
+        assertFalse(selector.matchesFile(Paths.get("app.log.gz")));
+        assertTrue(selector.isExcluded(Paths.get("api/archive")));
+    }
+
+    @Test
+    public void testFollowsNestedAndNewDirectoriesAcrossRoots() throws Exception {
+        Path first = dir.resolve("first");
+        Path second = dir.resolve("second");
+        Files.createDirectories(first.resolve("api/v1"));
+        Files.createDirectories(first.resolve("archive"));
+        Files.createDirectories(second);
+        Files.writeString(first.resolve("api/v1/app.log"), "INFO nested\n");
+        Files.writeString(first.resolve("archive/old.log"), "INFO excluded\n");
+        Files.writeString(second.resolve("db.log"), "INFO second root\n");
+
+        LogBuffer buffer = new LogBuffer(1000, 10, 10, 5);
+        LogFileWatcher watcher = new LogFileWatcher(List.of(first, second), FileSelector.parse("*.log", "archive"),
+                true, buffer, new ParserRegistry(), TailMode.PLATFORM, null);
+        watcher.start();
+        try {
+            List<String> initial = drain(buffer, 2);
+            assertTrue(initial.containsAll(List.of("INFO nested", "INFO second root")), initial.toString());
+
+            // A directory tree created after startup is registered and its files tailed
+            Path created = first.resolve("worker/eu");
+            Files.createDirectories(created);
+            Files.writeString(created.resolve("jobs.log"), "INFO created later\n");
+            assertEquals(List.of("INFO created later"), drain(buffer, 1));
+
+            assertEquals(3, watcher.getTailedFileCount());
+            assertFalse(initial.contains("INFO excluded"));
+        } finally {
+            watcher.stop();
+        }
+    }
+
+    @Test
+    public void testVirtualTailersReadEachAppendOnce() throws Exception {
+        for (int i = 0; i < 50; i++) {
+            Files.writeString(dir.resolve("app" + i + ".log"), "INFO start " + i + "\n");
+        }
+        LogBuffer buffer = new LogBuffer(10_000, 10, 10, 5);
+        AtomicInteger platformOffers = new AtomicInteger();
+        // Records which kind of thread hands entries to the buffer
+        LogSink sink = new LogSink() {
+            @Override
+            public boolean offer(LogEntry entry) {
+                if (!Thread.currentThread().isVirtual()) {
+                    platformOffers.incrementAndGet();
+                }
+                return buffer.offer(entry);
+            }
+
+            @Override
+            public long getDroppedCount() {
+                return buffer.getDroppedCount();
+            }
+
+            @Override
+            public int size() {
+                return buffer.size();
+            }
+
+            @Override
+            public long getBacklog() {
+                return buffer.getBacklog();
+            }
+
+            @Override
+            public int getCapacity() {
+                return buffer.getCapacity();
+            }
+
+            @Override
+            public Map<String, Object> getStats() {
+                return buffer.getStats();
+            }
+
+            @Override
+            public void close() {
+                buffer.close();
+            }
+        };
+
+        LogFileWatcher watcher = new LogFileWatcher(List.of(dir), FileSelector.parse("*.log", ""),
+                false, sink, new ParserRegistry(), TailMode.VIRTUAL, null);
+        watcher.start();
+        try {
+            assertEquals(50, drain(buffer, 50).size());
+
+            // Many modify events per file: they wake the file's one tailer instead of starting more
+            for (int round = 0; round < 3; round++) {
+                for (int i = 0; i < 50; i++) {
+                    Files.writeString(dir.resolve("app" + i + ".log"), "INFO round " + round + " file " + i + "\n",
+                            StandardOpenOption.APPEND);
+                }
+            }
+            List<String> appended = drain(buffer, 150);
+            assertEquals(150, appended.size());
+            assertEquals(150, new HashSet<>(appended).size());
+            Thread.sleep(300);
+            assertEquals(0, buffer.size(), "no line is read twice");
+
+            assertEquals(50, watcher.getTailedFileCount());
+            assertEquals("VIRTUAL", watcher.getStats().get("tailMode"));
+            assertEquals(0, platformOffers.get());
+        } finally {
+            watcher.stop();
+        }
+    }
+}
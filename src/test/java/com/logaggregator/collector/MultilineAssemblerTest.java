@@ -0,0 +1,78 @@
+package com.logaggregator.collector;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MultilineAssemblerTest {
+
+    private static final Pattern CONTINUATION = Pattern.compile(MultilineAssembler.DEFAULT_CONTINUATION);
+
+    @Test
+    public void testStackTraceBecomesOneEvent() {
+        MultilineAssembler assembler = new MultilineAssembler(null, CONTINUATION, 100, 10_000, 1_000);
+        List<String> events = new ArrayList<>();
+
+        assembler.accept("ERROR request failed", 0, 0, events::add);
+        assembler.accept("java.lang.IllegalStateException: boom", 21, 0, events::add);
+        assembler.accept("\tat com.example.Api.handle(Api.java:42)", 60, 0, events::add);
+        assembler.accept("Caused by: java.io.IOException: closed", 100, 0, events::add);
+        assembler.accept("\t... 12 more", 140, 0, events::add);
+        // The exception header belongs to the logged error, not to an event of its own
+        assertEquals(List.of(), events);
+        assertEquals(0, assembler.pendingOffset(), "resume offset points at the held event");
+
+        assembler.accept("INFO next request", 160, 10, events::add);
+        assertEquals(1, events.size());
+        assertTrue(events.get(0).startsWith("ERROR request failed\njava.lang.IllegalStateException: boom\n"));
+        assertEquals(5, events.get(0).split("\n").length);
+        assertEquals(4, assembler.getMergedLines());
+
+        // Nothing follows the last line: it is only emitted once the timeout passes
+        assertFalse(assembler.flushIfIdle(500, events::add));
+        assertTrue(assembler.flushIfIdle(1_010, events::add));
+        assertEquals("INFO next request", events.get(1));
+        assertFalse(assembler.hasPending());
+    }
+
+    @Test
+    public void testStartPatternAndLineLimit() {
+        Pattern start = Pattern.compile("^\\d{4}-\\d{2}-\\d{2}");
+        MultilineAssembler assembler = new MultilineAssembler(start, null, 3, 10_000, 1_000);
+        List<String> events = new ArrayList<>();
+
+        assembler.accept("2024-01-01 10:00:00 ERROR dump", 0, 0, events::add);
+        for (int i = 0; i < 4; i++) {
+            assembler.accept("row " + i, 0, 0, events::add);
+        }
+        assembler.accept("2024-01-01 10:00:01 INFO done", 0, 0, events::add);
+        assembler.flush(events::add);
+
+        assertEquals(List.of("2024-01-01 10:00:00 ERROR dump\nrow 0\nrow 1", "row 2\nrow 3",
+                "2024-01-01 10:00:01 INFO done"), events);
+        assertEquals(1, assembler.getSplitEvents());
+    }
+
+    @Test
+    public void testByteLimitCountsEncodedBytes() {
+        // 10 chars, 30 bytes in UTF-8
+        String wide = "\u20ac".repeat(10);
+        MultilineAssembler assembler = new MultilineAssembler(null, CONTINUATION, 100, 100, 1_000);
+        List<String> events = new ArrayList<>();
+
+        assembler.accept("ERROR " + wide, 0, 0, events::add);
+        assembler.accept(" " + wide, 0, 0, events::add);
+        assertTrue(events.isEmpty());
+        // 68 bytes held, 1 + 31 more reaches the limit; by chars (40) it would still fit
+        assembler.accept(" " + wide, 0, 0, events::add);
+        assertEquals(1, events.size());
+        assertEquals(1, assembler.getSplitEvents());
+
+        assertFalse(Pattern.compile(MultilineAssembler.DEFAULT_CONTINUATION).matcher("ERROR failed").find());
+        assertTrue(Pattern.compile(MultilineAssembler.DEFAULT_CONTINUATION).matcher("java.lang.OutOfMemoryError").find());
+    }
+}
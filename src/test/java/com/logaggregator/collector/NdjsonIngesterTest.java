@@ -0,0 +1,193 @@
+package com.logaggregator.collector;
+
+import com.logaggregator.core.LogBuffer;
+import com.logaggregator.core.LogEntry;
+import com.logaggregator.core.LogLevel;
+import com.logaggregator.core.OverflowPolicy;
+import com.logaggregator.core.SpillQueue;
+import com.logaggregator.parser.JsonLogParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NdjsonIngesterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static String records(int from, int to) {
+        StringBuilder body = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            body.append("{\"timestamp\":\"2024-01-01T00:00:00\",\"level\":\"warn\",\"message\":\"m")
+                    .append(i).append("\",\"ctx\":{\"id\":").append(i).append("}}\n");
+        }
+        return body.toString();
+    }
+
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testGzipBodyIsStreamedIntoTheBuffer() throws Exception {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write((records(0, 250) + "{\"service\":\"no message\"}\n").getBytes(StandardCharsets.UTF_8));
+        }
+        LogBuffer buffer = new LogBuffer(1000, 100, 100, 5);
+        NdjsonIngester ingester = new NdjsonIngester(buffer, 100, 0.9);
+
+        NdjsonIngester.Result result = ingester.ingest(
+                new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray())), "checkout");
+        assertEquals(250, result.accepted());
+        assertEquals(1, result.skipped());
+        assertEquals(251, result.committedRecords());
+        assertFalse(result.saturated());
+        assertEquals(250, buffer.size());
+
+        LogEntry first = buffer.pollBatch(10).get(0);
+        assertEquals("checkout", first.getSource());
+        assertEquals("m0", first.getMessage());
+        assertEquals(LogLevel.WARN, first.getLevel());
+        // Nested values are skipped, like in a tailed JSON line
+        assertNull(first.getFields().get("ctx"));
+    }
+
+    @Test
+    public void testFieldsMatchATailedJsonLine() throws Exception {
+        String line = "{\"time\":\"2024-01-01T00:00:00\",\"level\":\"error\",\"msg\":\"boom\",\"status\":503,"
+                + "\"bytes\":5000000000,\"latency\":0.25,\"cached\":false,\"user\":\"bob\",\"ctx\":{\"a\":1},"
+                + "\"service\":\"orders\"}";
+        LogBuffer buffer = new LogBuffer(100, 10, 10, 5);
+        NdjsonIngester.Result result = new NdjsonIngester(buffer, 10, 0.9).ingest(stream(line + "\n"), "http");
+        assertEquals(1, result.accepted());
+
+        LogEntry ingested = buffer.pollBatch(10).get(0);
+        LogEntry tailed = new JsonLogParser().parse("orders", line).orElseThrow();
+        assertEquals(tailed.getFields(), ingested.getFields());
+        assertEquals(503, ingested.getFields().get("status"));
+        assertEquals(5_000_000_000L, ingested.getFields().get("bytes"));
+        assertEquals(0.25, ingested.getFields().get("latency"));
+        assertEquals(false, ingested.getFields().get("cached"));
+        assertEquals("orders", ingested.getSource());
+        assertEquals("boom", ingested.getMessage());
+        assertEquals(LogLevel.ERROR, ingested.getLevel());
+        assertEquals(tailed.getEventTimeMillis(), ingested.getEventTimeMillis());
+    }
+
+    @Test
+    public void testTruncatedGzipStillReportsWhatWasCommitted() throws Exception {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(records(0, 2_000).getBytes(StandardCharsets.UTF_8));
+        }
+        byte[] whole = compressed.toByteArray();
+        byte[] truncated = java.util.Arrays.copyOf(whole, whole.length / 2);
+        LogBuffer buffer = new LogBuffer(10_000, 100, 100, 5);
+        NdjsonIngester ingester = new NdjsonIngester(buffer, 100, 0.9);
+
+        NdjsonIngester.Result result = ingester.ingest(new GZIPInputStream(new ByteArrayInputStream(truncated)), "api");
+        assertNotNull(result.error());
+        assertFalse(result.saturated());
+        assertTrue(result.committedRecords() > 100, "earlier batches were queued before the body broke off");
+        assertEquals(result.committedRecords(), result.accepted());
+        assertEquals(result.accepted(), buffer.size());
+        assertEquals(1L, ingester.getStats().get("unreadableRequests"));
+    }
+
+    @Test
+    public void testStopsAtSaturationAndReportsWhereToResume() throws Exception {
+        LogBuffer buffer = new LogBuffer(100, 10, 10, 5);
+        NdjsonIngester ingester = new NdjsonIngester(buffer, 25, 0.8);
+
+        // Three whole batches, then only the 5 entries that still fit below the 80% threshold
+        NdjsonIngester.Result result = ingester.ingest(stream(records(0, 200)), "api");
+        assertTrue(result.saturated());
+        assertEquals(80, result.accepted());
+        assertEquals(80, result.committedRecords());
+        assertEquals(80, buffer.size());
+        assertEquals(0, buffer.getDroppedCount(), "refused records are not dropped, the client keeps them");
+    }
+
+    @Test
+    public void testBatchLargerThanTheThresholdStillMakesProgress() throws Exception {
+        // The shipped sizes before the batch was capped: 1000 entries never fit below 900
+        LogBuffer buffer = new LogBuffer(1000, 100, 100, 5);
+        NdjsonIngester ingester = new NdjsonIngester(buffer, 1000, 0.9);
+        assertEquals(900, ingester.getStats().get("batchSize"));
+
+        NdjsonIngester.Result result = ingester.ingest(stream(records(0, 1500)), "api");
+        assertTrue(result.saturated());
+        assertEquals(900, result.accepted());
+        assertEquals(900, result.committedRecords());
+
+        buffer.pollBatch(10);
+        result = ingester.ingest(stream(records(900, 1500)), "api");
+        assertEquals(100, result.accepted(), "room freed by the consumer is used by the retry");
+        assertEquals(100, result.committedRecords());
+    }
+
+    @Test
+    public void testSkippedRecordsBeforeTheCutAreCommitted() throws Exception {
+        LogBuffer buffer = new LogBuffer(10, 5, 5, 5);
+        NdjsonIngester ingester = new NdjsonIngester(buffer, 5, 0.5);
+
+        // Records 1 and 6 have no message; the first batch (records 2-5 and 7) fills the room
+        String body = "{\"service\":\"no message\"}\n" + records(0, 4) + "{\"service\":\"no message\"}\n" + records(4, 8);
+        NdjsonIngester.Result result = ingester.ingest(stream(body), "api");
+        assertTrue(result.saturated());
+        assertEquals(5, result.accepted());
+        assertEquals(2, result.skipped());
+        assertEquals(7, result.committedRecords());
+    }
+
+    @Test
+    public void testSpilledBacklogCountsTowardsSaturation() throws Exception {
+        SpillQueue spillQueue = new SpillQueue(tempDir.toString(), 1 << 20, 1 << 16);
+        LogBuffer buffer = new LogBuffer(10, 5, 5, 5, OverflowPolicy.SPILL, spillQueue);
+        for (int i = 0; i < 30; i++) {
+            buffer.offer(new LogEntry("api", "m", LogLevel.INFO, 0L, "m"));
+        }
+        assertEquals(10, buffer.size());
+        assertEquals(30, buffer.getBacklog());
+
+        NdjsonIngester ingester = new NdjsonIngester(buffer, 5, 0.9);
+        assertTrue(ingester.isSaturated(1));
+        NdjsonIngester.Result result = ingester.ingest(stream(records(0, 5)), "api");
+        assertTrue(result.saturated());
+        assertEquals(0, result.accepted());
+        assertEquals(30, buffer.getBacklog());
+    }
+
+    @Test
+    public void testEntriesRefusedByTheBufferAreNotCommitted() throws Exception {
+        // Fill memory and then the small spill cap until the buffer refuses
+        SpillQueue spillQueue = new SpillQueue(tempDir.toString(), 1000, 1 << 16);
+        LogBuffer buffer = new LogBuffer(10, 5, 5, 5, OverflowPolicy.SPILL, spillQueue);
+        while (buffer.offer(new LogEntry("api", "m", LogLevel.INFO, 0L, "m"))) {
+        }
+        buffer.pollBatch(10);
+        buffer.pollBatch(10);
+        assertEquals(0, buffer.size());
+        assertTrue(buffer.getBacklog() < 10, "room below the threshold, but the spill cap is reached");
+        long dropped = buffer.getDroppedCount();
+
+        NdjsonIngester ingester = new NdjsonIngester(buffer, 5, 1.0);
+        NdjsonIngester.Result result = ingester.ingest(stream(records(0, 5)), "api");
+        assertTrue(result.saturated());
+        assertEquals(0, result.accepted());
+        assertEquals(0, result.committedRecords());
+        assertEquals(0L, ingester.getStats().get("acceptedEntries"));
+        // Only the one refused offer, after which ingestion stopped
+        assertEquals(dropped + 1, buffer.getDroppedCount());
+    }
+}
@@ -0,0 +1,139 @@
+package com.logaggregator.collector;
+
+import com.logaggregator.core.LogBuffer;
+import com.logaggregator.core.LogEntry;
+import com.logaggregator.parser.ParserRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NetworkCollectorTest {
+
+    private LogBuffer buffer;
+    private NetworkCollector collector;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        buffer = new LogBuffer(100_000, 100, 100, 5);
+        collector = new NetworkCollector("127.0.0.1", 0, 0, 0, buffer, new ParserRegistry(), 1_000, 1024, 4096);
+        collector.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        collector.stop();
+    }
+
+    private List<LogEntry> drain(int expected) throws InterruptedException {
+        List<LogEntry> entries = new ArrayList<>();
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (entries.size() < expected && System.currentTimeMillis() < deadline) {
+            entries.addAll(buffer.pollBatch(50));
+        }
+        return entries;
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testSyslogOverUdpAndOctetCountedTcp() throws Exception {
+        try (DatagramSocket udp = new DatagramSocket()) {
+            byte[] datagram = bytes("<11>1 2024-01-01T00:00:00Z host api - - - udp message");
+            udp.send(new DatagramPacket(datagram, datagram.length, InetAddress.getLoopbackAddress(),
+                    collector.getSyslogUdpPort()));
+        }
+        assertEquals("udp message", drain(1).get(0).getMessage());
+
+        String first = "<14>1 2024-01-01T00:00:00Z host api - - - first";
+        String second = "<14>1 2024-01-01T00:00:00Z host api - - - second\nwith a newline inside";
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), collector.getSyslogTcpPort())) {
+            OutputStream out = socket.getOutputStream();
+            byte[] framed = bytes(bytes(first).length + " " + first + bytes(second).length + " " + second
+                    + "<13>Jan  1 00:00:00 host cron: lf framed\n");
+            // Split mid-header and mid-message: frames are reassembled across reads
+            out.write(framed, 0, 1);
+            out.flush();
+            Thread.sleep(50);
+            out.write(framed, 1, 40);
+            out.flush();
+            Thread.sleep(50);
+            out.write(framed, 41, framed.length - 41);
+            out.flush();
+
+            List<LogEntry> entries = drain(3);
+            assertEquals(List.of("first", "second\nwith a newline inside", "lf framed"),
+                    entries.stream().map(LogEntry::getMessage).toList());
+            assertEquals("cron", entries.get(2).getSource());
+        }
+    }
+
+    @Test
+    public void testManyRawTcpConnections() throws Exception {
+        List<Socket> sockets = new ArrayList<>();
+        try {
+            for (int i = 0; i < 200; i++) {
+                sockets.add(new Socket(InetAddress.getLoopbackAddress(), collector.getRawTcpPort()));
+            }
+            for (int i = 0; i < sockets.size(); i++) {
+                sockets.get(i).getOutputStream().write(bytes("INFO line " + i + "\nINFO partial " + i));
+            }
+            assertEquals(200, drain(200).size());
+            assertEquals(200, collector.getStats().get("activeConnections"));
+
+            // Closing delivers the unterminated last line of each connection
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+            assertEquals(200, drain(200).size());
+        } finally {
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+        }
+    }
+
+    @Test
+    public void testTcpReadsPauseWhileTheBufferIsFull() throws Exception {
+        LogBuffer small = new LogBuffer(2, 1, 1, 5);
+        NetworkCollector paced = new NetworkCollector("127.0.0.1", -1, -1, 0, small, new ParserRegistry(), 10, 1024, 4096);
+        paced.start();
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), paced.getRawTcpPort())) {
+            StringBuilder lines = new StringBuilder();
+            for (int i = 0; i < 20; i++) {
+                lines.append("INFO line ").append(i).append('\n');
+            }
+            socket.getOutputStream().write(bytes(lines.toString()));
+            socket.getOutputStream().flush();
+
+            // Taken out one at a time: the collector holds the rest instead of dropping them
+            List<String> messages = new ArrayList<>();
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (messages.size() < 20 && System.currentTimeMillis() < deadline) {
+                for (LogEntry entry : small.pollBatch(20)) {
+                    messages.add(entry.getRawMessage());
+                }
+                Thread.sleep(5);
+            }
+            assertEquals(20, messages.size());
+            assertEquals("INFO line 0", messages.get(0));
+            assertEquals("INFO line 19", messages.get(19));
+            assertEquals(0L, paced.getStats().get("droppedMessages"));
+            assertTrue((Long) paced.getStats().get("readPauses") > 0);
+        } finally {
+            paced.stop();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.logaggregator.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FieldStoreTest {
+
+    @Test
+    public void testValuesKeepTheirTypesAndOrder() {
+        FieldStore store = new FieldStore();
+        store.putInt("status", 503);
+        store.putLong("bytes", 5_000_000_000L);
+        store.putDouble("latency", 0.25);
+        store.putBoolean("cached", false);
+        store.put("user", "bob");
+        store.put("missing", null);
+
+        assertEquals(503, store.get("status"));
+        assertEquals(5_000_000_000L, store.get("bytes"));
+        assertEquals(0.25, store.get("latency"));
+        assertEquals(false, store.get("cached"));
+        assertEquals("bob", store.get("user"));
+        assertNull(store.get("missing"));
+        assertTrue(store.containsKey("missing"));
+        assertNull(store.get("other"));
+
+        Map<String, Object> expected = new LinkedHashMap<>();
+        expected.put("status", 503);
+        expected.put("bytes", 5_000_000_000L);
+        expected.put("latency", 0.25);
+        expected.put("cached", false);
+        expected.put("user", "bob");
+        expected.put("missing", null);
+        assertEquals(expected, store.asMap());
+        assertEquals(String.join(",", expected.keySet()), String.join(",", store.asMap().keySet()));
+    }
+
+    @Test
+    public void testEntriesOfOneShapeShareTheSchema() {
+        FieldStore first = new FieldStore();
+        FieldStore second = new FieldStore();
+        for (FieldStore store : new FieldStore[]{first, second}) {
+            store.put("service", new String("orders"));
+            store.put("status", 200);
+        }
+        assertEquals(first.asMap(), second.asMap());
+        Map.Entry<String, Object> a = first.asMap().entrySet().iterator().next();
+        Map.Entry<String, Object> b = second.asMap().entrySet().iterator().next();
+        // Keys are interned through the shared schema
+        assertSame(a.getKey(), b.getKey());
+    }
+
+    @Test
+    public void testOverwritingWithAnotherKind() {
+        FieldStore store = new FieldStore();
+        store.put("a", 1);
+        store.put("b", "x");
+        store.put("a", "one");
+        store.put("b", "y");
+        store.asMap().put("c", 2.5);
+
+        assertEquals(Map.of("a", "one", "b", "y", "c", 2.5), store.asMap());
+        assertEquals(3, store.size());
+    }
+}
@@ -0,0 +1,77 @@
+package com.logaggregator.core;
+
+import com.logaggregator.parser.JsonLogParser;
+import com.logaggregator.parser.TextLogParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LazyLogEntryTest {
+
+    @Test
+    public void testTextEntryDecodesOnDemand() {
+        LazyLogEntry entry = (LazyLogEntry) new TextLogParser()
+                .parse("app", "  2024-01-01 10:00:00 [warn] disk almost full  ").orElseThrow();
+        assertEquals(LogLevel.WARN, entry.getLevel());
+        assertFalse(entry.isDecoded());
+
+        assertEquals("disk almost full", entry.getMessage());
+        assertEquals(47, entry.getField("raw_length"));
+        assertFalse(entry.isDecoded(), "single fields and the message don't build the map");
+
+        entry.addField("tag", "x");
+        assertEquals(Map.of("raw_length", 47, "tag", "x"), entry.getFields());
+        assertTrue(entry.isDecoded());
+    }
+
+    @Test
+    public void testJsonTakesOnlyIndexedFieldsUpFront() {
+        IndexedFields.configure("status, user, trace");
+        try {
+            LazyLogEntry entry = (LazyLogEntry) new JsonLogParser().parse("api",
+                    "{\"message\":\"done\",\"level\":\"error\",\"status\":503,\"user\":\"bob\",\"region\":\"eu\",\"ctx\":{\"a\":1}}")
+                    .orElseThrow();
+            assertEquals("done", entry.getMessage());
+            assertEquals(LogLevel.ERROR, entry.getLevel());
+            assertEquals(503, entry.getField("status"));
+            assertNull(entry.getField("trace"));
+            assertFalse(entry.isDecoded());
+
+            assertEquals("eu", entry.getField("region"));
+            assertTrue(entry.isDecoded(), "a field outside the index decodes the line once");
+            assertEquals(Map.of("level", "error", "status", 503, "user", "bob", "region", "eu"), entry.getFields());
+        } finally {
+            IndexedFields.configure("*");
+        }
+    }
+
+    @Test
+    public void testFullDecodeIsCachedForLaterLookups() {
+        AtomicInteger decodes = new AtomicInteger();
+        LazyLogEntry.Decoder decoder = new LazyLogEntry.Decoder() {
+            @Override
+            public String message(String raw, int[] offsets) {
+                return raw;
+            }
+
+            @Override
+            public void fields(String raw, int[] offsets, FieldStore into) {
+                decodes.incrementAndGet();
+                into.put("region", "eu");
+                into.putInt("status", 200);
+            }
+        };
+        LazyLogEntry entry = new LazyLogEntry("api", "line", LogLevel.INFO, 0L, null, new int[0], decoder, null, false);
+        entry.addField("tag", "x");
+
+        assertEquals("eu", entry.getField("region"));
+        assertEquals(200, entry.getField("status"));
+        assertNull(entry.getField("missing"));
+        assertEquals("x", entry.getField("tag"));
+        assertEquals(Map.of("region", "eu", "status", 200, "tag", "x"), entry.getFields());
+        assertEquals(1, decodes.get());
+    }
+}
@@ -0,0 +1,178 @@
+package com.logaggregator.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LogBufferTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static LogEntry entry(String message) {
+        return new LogEntry("test-app", message, LogLevel.INFO, LocalDateTime.now(), message);
+    }
+
+    @Test
+    public void testPartialBatchFlushesAfterTargetLatency() throws InterruptedException {
+        LogBuffer buffer = new LogBuffer(1000, 10, 100, 20);
+        buffer.offer(entry("only one"));
+
+        long start = System.currentTimeMillis();
+        List<LogEntry> batch = buffer.takeBatch();
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertEquals(1, batch.size());
+        assertTrue(elapsed < 1000, "partial batch should not wait for the full batch timeout");
+    }
+
+    @Test
+    public void testBatchSizeGrowsUnderLoadAndShrinksWhenIdle() throws InterruptedException {
+        LogBuffer buffer = new LogBuffer(1000, 10, 80, 5);
+        for (int i = 0; i < 500; i++) {
+            buffer.offer(entry("entry " + i));
+        }
+
+        assertEquals(10, buffer.takeBatch().size());
+        assertEquals(20, buffer.getCurrentBatchSize());
+        assertEquals(20, buffer.takeBatch().size());
+        assertEquals(40, buffer.getCurrentBatchSize());
+        buffer.takeBatch();
+        buffer.takeBatch();
+        assertEquals(80, buffer.getCurrentBatchSize(), "batch size is capped at the configured maximum");
+
+        while (!buffer.isEmpty()) {
+            buffer.takeBatch();
+        }
+        buffer.offer(entry("straggler"));
+        buffer.takeBatch();
+        assertEquals(40, buffer.getCurrentBatchSize());
+    }
+
+    @Test
+    public void testDropPolicyCountsDroppedEntries() {
+        LogBuffer buffer = new LogBuffer(2, 10, 10, 5);
+        assertTrue(buffer.offer(entry("a")));
+        assertTrue(buffer.offer(entry("b")));
+        assertFalse(buffer.offer(entry("c")));
+        assertEquals(1, buffer.getDroppedCount());
+    }
+
+    @Test
+    public void testOverflowSpillsToDiskAndDrainsInOrder() throws Exception {
+        SpillQueue spillQueue = new SpillQueue(tempDir.toString(), 1 << 20, 512);
+        LogBuffer buffer = new LogBuffer(5, 4, 4, 5, OverflowPolicy.SPILL, spillQueue);
+
+        for (int i = 0; i < 50; i++) {
+            assertTrue(buffer.offer(entry("entry " + i)));
+        }
+        assertEquals(5, buffer.size());
+        assertEquals(45, spillQueue.getPendingCount());
+
+        List<String> messages = new ArrayList<>();
+        while (messages.size() < 50) {
+            buffer.takeBatch().forEach(e -> messages.add(e.getMessage()));
+        }
+        for (int i = 0; i < 50; i++) {
+            assertEquals("entry " + i, messages.get(i));
+        }
+        assertFalse(spillQueue.hasPending());
+        assertEquals(0, buffer.getDroppedCount());
+        buffer.close();
+    }
+
+    @Test
+    public void testSpillRecoversPendingEntriesAfterRestart() throws Exception {
+        SpillQueue first = new SpillQueue(tempDir.toString(), 1 << 20, 1 << 16);
+        first.append(entry("survivor"));
+        first.close();
+
+        SpillQueue second = new SpillQueue(tempDir.toString(), 1 << 20, 1 << 16);
+        assertTrue(second.hasPending());
+        List<LogEntry> batch = new ArrayList<>();
+        assertEquals(1, second.poll(batch, 10));
+        assertEquals("survivor", batch.get(0).getMessage());
+        assertFalse(second.hasPending());
+    }
+
+    @Test
+    public void testSpillCapRejectsEntries() throws Exception {
+        SpillQueue spillQueue = new SpillQueue(tempDir.toString(), 300, 1 << 16);
+        LogBuffer buffer = new LogBuffer(1, 1, 1, 5, OverflowPolicy.SPILL, spillQueue);
+        for (int i = 0; i < 20; i++) {
+            buffer.offer(entry("entry " + i));
+        }
+        assertTrue(buffer.getDroppedCount() > 0);
+        buffer.close();
+    }
+
+    @Test
+    public void testCorruptSpilledRecordsAreSkipped() throws Exception {
+        SpillQueue first = new SpillQueue(tempDir.toString(), 1 << 20, 1 << 16);
+        first.append(entry("before"));
+        first.append(entry("after"));
+        first.close();
+        // A garbage line in the middle and a record cut short by a crash at the end
+        Path segment;
+        try (var files = Files.list(tempDir)) {
+            segment = files.filter(p -> p.toString().endsWith(".jsonl")).findFirst().orElseThrow();
+        }
+        List<String> lines = new ArrayList<>(Files.readAllLines(segment));
+        lines.add(1, "not json");
+        Files.write(segment, lines);
+        Files.write(segment, "{\"source\":\"test-app\",\"lev".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        SpillQueue second = new SpillQueue(tempDir.toString(), 1 << 20, 1 << 16);
+        assertEquals(4, second.getPendingCount());
+        LogBuffer buffer = new LogBuffer(5, 10, 10, 5, OverflowPolicy.SPILL, second);
+        List<LogEntry> batch = buffer.pollBatch(10);
+        assertEquals(List.of("before", "after"), batch.stream().map(LogEntry::getMessage).toList());
+        assertFalse(second.hasPending());
+        assertEquals(2L, second.getStats().get("corrupt"));
+
+        // New entries go to memory again instead of queueing behind the damaged spill
+        buffer.offer(entry("next"));
+        assertEquals(1, buffer.size());
+        assertEquals("next", buffer.pollBatch(10).get(0).getMessage());
+    }
+
+    @Test
+    public void testUnreadableSegmentIsQuarantined() throws Exception {
+        SpillQueue first = new SpillQueue(tempDir.toString(), 1 << 20, 1 << 16);
+        first.append(entry("kept"));
+        first.close();
+        // An older segment holding bytes that aren't UTF-8
+        Path broken = tempDir.resolve("spill-000000000000.jsonl");
+        Files.write(broken, new byte[]{'{', (byte) 0xC3, (byte) 0x28, '}', '\n'});
+
+        SpillQueue second = new SpillQueue(tempDir.toString(), 1 << 20, 1 << 16);
+        assertEquals(2, second.getPendingCount());
+        List<LogEntry> batch = new ArrayList<>();
+        second.poll(batch, 10);
+        assertEquals(List.of("kept"), batch.stream().map(LogEntry::getMessage).toList());
+        assertFalse(second.hasPending());
+        assertTrue(Files.exists(tempDir.resolve("spill-000000000000.jsonl.corrupt")));
+        assertEquals(1L, second.getStats().get("quarantinedSegments"));
+    }
+
+    @Test
+    public void testCloseFlushesSpilledEntries() throws Exception {
+        SpillQueue first = new SpillQueue(tempDir.toString(), 1 << 20, 1 << 16);
+        for (int i = 0; i < 3; i++) {
+            first.append(entry("entry " + i));
+        }
+        first.close();
+
+        SpillQueue second = new SpillQueue(tempDir.toString(), 1 << 20, 1 << 16);
+        assertEquals(3, second.getPendingCount());
+    }
+}
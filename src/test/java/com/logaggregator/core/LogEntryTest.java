@@ -0,0 +1,33 @@
+package com.logaggregator.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LogEntryTest {
+
+    @Test
+    public void testCompactFieldsKeepTheOldGetters() {
+        LocalDateTime time = LocalDateTime.of(2024, 3, 1, 10, 15, 30, 123_456_789);
+        LogEntry first = new LogEntry("orders", "raw", LogLevel.WARN, time, "msg");
+        LogEntry second = new LogEntry(new String("orders"), "raw", LogLevel.FATAL, 1_700_000_000_123L, "msg");
+
+        assertTrue(second.getSequence() > first.getSequence());
+        assertEquals(Long.toString(first.getSequence()), first.getId());
+        assertEquals(first.getSourceId(), second.getSourceId());
+        assertEquals("orders", second.getSource());
+        assertEquals(LogLevel.WARN, first.getLevel());
+        assertEquals(LogLevel.FATAL, second.getLevel());
+
+        assertEquals(time, first.getTimestamp());
+        assertEquals(1_700_000_000_123L, second.getEventTimeMillis());
+        assertEquals(1_700_000_000_123_000_000L, second.getEventTimeNanos());
+
+        assertNull(first.getField("x"));
+        first.addField("x", 1);
+        assertEquals(1, first.getFields().get("x"));
+        assertNull(new LogEntry(null, "raw", LogLevel.INFO, 0L, "msg").getSource());
+    }
+}
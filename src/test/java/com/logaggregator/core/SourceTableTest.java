@@ -0,0 +1,31 @@
+package com.logaggregator.core;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SourceTableTest {
+
+    @Test
+    public void testSourcesPastTheCapKeepTheirOwnNames() {
+        SourceTable table = new SourceTable(3);
+        String a = table.canonical("a");
+        int b = table.id("b");
+        int c = table.id("c");
+        assertSame(a, table.canonical(new String("a")));
+        assertEquals("c", table.name(c));
+
+        // Full: new names are passed through as they are, never merged into one
+        String d = new String("d");
+        assertSame(d, table.canonical(d));
+        assertEquals("e", table.canonical("e"));
+        assertEquals(-1, table.id("d"));
+        assertNotEquals(table.canonical("d"), table.canonical("e"));
+
+        // Sources registered before the cap keep their ids
+        assertEquals(b, table.id("b"));
+        assertEquals(3, table.stats().get("sources"));
+        assertEquals(-1, table.id(null));
+        assertNull(table.canonical(null));
+    }
+}
@@ -0,0 +1,37 @@
+package com.logaggregator.parser;
+
+import com.logaggregator.core.LogEntry;
+import com.logaggregator.core.LogLevel;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JsonLogParserTest {
+
+    private final JsonLogParser parser = new JsonLogParser();
+
+    @Test
+    public void testAliasesTypedFieldsAndSkippedSubtrees() {
+        LogEntry entry = parser.parse("api.json", "  {\"msg\":\"fallback\",\"message\":\"handled\",\"time\":\"2024-01-01 10:00:00\","
+                + "\"severity\":\"error\",\"status\":503,\"latency\":12.5,\"cached\":false,"
+                + "\"request\":{\"path\":\"/a\",\"nested\":[1,2]},\"user\":null}").orElseThrow();
+
+        assertEquals("handled", entry.getMessage(), "message wins over msg regardless of order");
+        assertEquals(LogLevel.ERROR, entry.getLevel());
+        assertEquals(2024, entry.getTimestamp().getYear());
+        assertEquals(503, entry.getFields().get("status"));
+        assertEquals(12.5, entry.getFields().get("latency"));
+        assertEquals(Boolean.FALSE, entry.getFields().get("cached"));
+        assertEquals("fallback", entry.getFields().get("msg"));
+        assertFalse(entry.getFields().containsKey("request"));
+        assertFalse(entry.getFields().containsKey("message"));
+    }
+
+    @Test
+    public void testRejectsNonJsonAndBrokenJson() {
+        assertTrue(parser.parse("x", "2024-01-01 INFO plain text").isEmpty());
+        assertTrue(parser.parse("x", "").isEmpty());
+        assertTrue(parser.parse("x", "{\"message\": \"unterminated").isEmpty());
+        assertTrue(parser.parse("x", "{\"level\":\"info\"}").isEmpty(), "no message field");
+    }
+}
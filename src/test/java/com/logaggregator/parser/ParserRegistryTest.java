@@ -0,0 +1,71 @@
+package com.logaggregator.parser;
+
+import com.logaggregator.core.LogEntry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ParserRegistryTest {
+
+    @Test
+    public void testJsonInTextFileIsRecognisedAndCached() {
+        ParserRegistry registry = new ParserRegistry(100, 10);
+        for (int i = 0; i < 50; i++) {
+            LogEntry entry = registry.parseLine("app.log", "{\"message\":\"m" + i + "\",\"level\":\"warn\"}", "text")
+                    .orElseThrow();
+            assertEquals("m" + i, entry.getMessage(), "sniffed as JSON despite the text hint");
+        }
+        // A plain line in the same source is still handled, by the text parser
+        assertEquals("plain line", registry.parseLine("app.log", "2024-01-01 10:00:00 INFO plain line", "text").orElseThrow().getMessage());
+
+        Map<String, Object> stats = registry.getStats();
+        assertEquals(49L, stats.get("hits"));
+        assertEquals(2L, stats.get("probes"));
+        assertEquals(1L, stats.get("switches"));
+
+        // Per-source parser stats and the source table stats sit side by side
+        Map<?, ?> perSource = (Map<?, ?>) stats.get("sources");
+        assertEquals(49L, ((Map<?, ?>) perSource.get("app.log")).get("hits"));
+        assertTrue(((Map<?, ?>) stats.get("sourceTable")).containsKey("maxSources"));
+    }
+
+    @Test
+    public void testPreferredParserIsReprobedPeriodically() {
+        ParserRegistry registry = new ParserRegistry(10, 10);
+        for (int i = 0; i < 30; i++) {
+            registry.parseLine("a.log", "{\"message\":\"m" + i + "\"}", "json");
+        }
+        // The first line and the reprobes at lines 10, 20 and 30 run the full probe
+        Map<String, Object> stats = registry.getStats();
+        assertEquals(4L, stats.get("probes"));
+        assertEquals(26L, stats.get("hits"));
+    }
+
+    @Test
+    public void testUnsureParserAheadOfTextIsTriedOnEveryLine() {
+        ParserRegistry registry = new ParserRegistry(10, 10);
+        AtomicInteger customCalls = new AtomicInteger();
+        registry.registerParser(new LogParser() {
+            @Override
+            public boolean supports(String logFormat) {
+                return "custom".equals(logFormat);
+            }
+
+            @Override
+            public Optional<LogEntry> parse(String source, String rawLine) {
+                customCalls.incrementAndGet();
+                return Optional.empty();
+            }
+        });
+
+        for (int i = 0; i < 30; i++) {
+            registry.parseLine("a.log", "line " + i, "custom");
+        }
+        // Text takes the lines the custom parser rejects, but being cached doesn't let it skip that parser
+        assertEquals(30, customCalls.get());
+    }
+}
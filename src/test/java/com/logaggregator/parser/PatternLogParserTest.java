@@ -0,0 +1,111 @@
+package com.logaggregator.parser;
+
+import com.logaggregator.core.LogEntry;
+import com.logaggregator.core.LogLevel;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PatternLogParserTest {
+
+    private static final String APP = "%{TIMESTAMP_ISO8601:timestamp} %{LOGLEVEL:level} \\[%{NOTSPACE:thread}\\] "
+            + "%{NOTSPACE:logger} - user=%{NOTSPACE:user} latency=%{INT:latency_ms:int} %{DATA:action}: %{GREEDYDATA:message}";
+
+    @Test
+    public void testConfiguredFormats() throws Exception {
+        Path file = Paths.get("config/log-patterns.json");
+        PatternLogParser parser = PatternLogParser.load(file);
+
+        LogEntry nginx = parser.parse("nginx", "10.0.0.7 - alice [10/Oct/2024:13:55:36 +0000] "
+                + "\"GET /orders/42 HTTP/1.1\" 404 512 \"-\" \"curl/8.0\" 0.012").orElseThrow();
+        assertEquals(404, nginx.getFields().get("status"));
+        assertEquals(512L, nginx.getFields().get("bytes"));
+        assertEquals(0.012, nginx.getFields().get("latency"));
+        assertEquals("alice", nginx.getFields().get("user"));
+        assertEquals(1_728_568_536_000L, nginx.getEventTimeMillis());
+
+        LogEntry pg = parser.parse("postgres", "2024-01-01 10:00:00.123 UTC [4242] WARNING:  duration: 1500.5 ms  "
+                + "statement: SELECT 1").orElseThrow();
+        assertEquals(LogLevel.WARN, pg.getLevel());
+        assertEquals(4242, pg.getFields().get("pid"));
+        assertEquals(1500.5, pg.getFields().get("duration_ms"));
+        assertEquals("statement: SELECT 1", pg.getMessage());
+
+        LogEntry app = parser.parse("app", "2024-01-01T10:00:00.5Z ERROR [http-nio-8080-exec-1] c.e.Orders - "
+                + "user=bob latency=87 payment declined").orElseThrow();
+        assertEquals(LogLevel.ERROR, app.getLevel());
+        assertEquals("http-nio-8080-exec-1", app.getFields().get("thread"));
+        assertEquals(87, app.getFields().get("latency_ms"));
+        assertEquals("payment declined", app.getMessage());
+        assertEquals("app", app.getFields().get("pattern"));
+
+        assertTrue(parser.parse("app", "something else entirely").isEmpty());
+        Map<String, Object> stats = parser.getStats();
+        assertEquals("regex", ((Map<?, ?>) stats.get("nginx-access")).get("mode"));
+        assertEquals("scan", ((Map<?, ?>) stats.get("app")).get("mode"));
+    }
+
+    @Test
+    public void testScannerAgreesWithRegex() {
+        PatternLogParser scanned = new PatternLogParser(Map.of(), Map.of("app", APP));
+        // Redefining the built-ins (identically) forces the regex path
+        Map<String, String> same = Map.of("NOTSPACE", PatternLogParser.BUILTIN.get("NOTSPACE"),
+                "DATA", PatternLogParser.BUILTIN.get("DATA"));
+        PatternLogParser regex = new PatternLogParser(same, Map.of("app", APP));
+        assertEquals("scan", ((Map<?, ?>) scanned.getStats().get("app")).get("mode"));
+        assertEquals("regex", ((Map<?, ?>) regex.getStats().get("app")).get("mode"));
+
+        List<String> lines = List.of(
+                "2024-01-01T10:00:00 INFO [main] a.B - user=x latency=1 login: ok",
+                "2024-01-01 10:00:00,123 warning [pool-1] a.B - user=x latency=-5 a: b: c",
+                "2024-01-01T10:00:00+01:00 INFO [a]b] a.B - user=x latency=1 do: it",
+                "2024-01-01T10:00:00 INFO [main] a.B - user=x latency=1x login: ok",
+                "2024-01-01T10:00:00 VERBOSE [main] a.B - user=x latency=1 login: ok",
+                "2024-01-01T10:00:00 INFO [main] a.B - user=x latency=1 no colon here",
+                "2024-01-01T10:00:00 INFO [main] a.B - user=x  latency=1 login: ok",
+                "2024-01-01T10:00:00 INFO main a.B - user=x latency=1 login: ok");
+        for (String line : lines) {
+            Optional<LogEntry> a = scanned.parse("s", line);
+            Optional<LogEntry> b = regex.parse("s", line);
+            assertEquals(b.isPresent(), a.isPresent(), line);
+            if (a.isPresent()) {
+                assertEquals(b.get().getFields(), a.get().getFields(), line);
+                assertEquals(b.get().getMessage(), a.get().getMessage(), line);
+                assertEquals(b.get().getLevel(), a.get().getLevel(), line);
+            }
+        }
+    }
+
+    @Test
+    public void testInvalidPatternsAreRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new PatternLogParser(Map.of(), Map.of("p", "%{NOPE:x}")));
+        assertThrows(IllegalArgumentException.class,
+                () -> new PatternLogParser(Map.of("A", "%{B}", "B", "%{A}"), Map.of("p", "%{A:x}")));
+        assertThrows(IllegalArgumentException.class,
+                () -> new PatternLogParser(Map.of(), Map.of("p", "(%{INT:x}")));
+    }
+
+    @Test
+    public void testRegisteredBeforeTextParser() {
+        ParserRegistry registry = new ParserRegistry();
+        registry.registerParser(new PatternLogParser(Map.of(), Map.of("kv", "status=%{INT:status:int} %{GREEDYDATA:message}")));
+        assertTrue(registry.getParsers().get(registry.getParsers().size() - 1) instanceof TextLogParser);
+
+        LogEntry entry = registry.parseLine("a.log", "status=500 upstream failed", "text").orElseThrow();
+        assertEquals(500, entry.getFields().get("status"));
+        assertEquals("upstream failed", entry.getMessage());
+        assertEquals("plain", registry.parseLine("a.log", "plain", "text").orElseThrow().getMessage());
+
+        // The text parser took the unmatched line, but doesn't shadow the pattern for later ones
+        LogEntry after = registry.parseLine("a.log", "status=404 not found", "text").orElseThrow();
+        assertEquals(404, after.getFields().get("status"));
+        assertEquals("not found", after.getMessage());
+    }
+}
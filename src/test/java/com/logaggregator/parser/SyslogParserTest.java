@@ -0,0 +1,40 @@
+package com.logaggregator.parser;
+
+import com.logaggregator.core.LogEntry;
+import com.logaggregator.core.LogLevel;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SyslogParserTest {
+
+    private final SyslogParser parser = new SyslogParser();
+
+    @Test
+    public void testRfc5424() {
+        LogEntry entry = parser.parse("syslog:10.0.0.1",
+                "<165>1 2024-03-01T10:15:30.123Z web-01 checkout 4321 ID47 [origin ip=\"10.0.0.1\"] order failed").orElseThrow();
+        assertEquals("checkout", entry.getSource());
+        assertEquals("order failed", entry.getMessage());
+        assertEquals(LogLevel.INFO, entry.getLevel());
+        assertEquals(20, entry.getFields().get("facility"));
+        assertEquals("web-01", entry.getFields().get("hostname"));
+        assertEquals("4321", entry.getFields().get("procid"));
+
+        LogEntry nil = parser.parse("syslog:10.0.0.1", "<11>1 - - - - - - disk failing").orElseThrow();
+        assertEquals("syslog:10.0.0.1", nil.getSource());
+        assertEquals(LogLevel.ERROR, nil.getLevel());
+    }
+
+    @Test
+    public void testRfc3164() {
+        LogEntry entry = parser.parse("syslog:10.0.0.2", "<12>Mar  1 10:15:30 db-01 postgres[99]: slow query").orElseThrow();
+        assertEquals("postgres", entry.getSource());
+        assertEquals("slow query", entry.getMessage());
+        assertEquals(LogLevel.WARN, entry.getLevel());
+        assertEquals(3, entry.getTimestamp().getMonthValue());
+        assertEquals("99", entry.getFields().get("procid"));
+
+        assertTrue(parser.parse("x", "plain text line").isEmpty());
+    }
+}
@@ -0,0 +1,63 @@
+package com.logaggregator.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimestampParserTest {
+
+    private static long local(String isoLocal) {
+        return LocalDateTime.parse(isoLocal).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static long offset(String isoOffset) {
+        return OffsetDateTime.parse(isoOffset).toInstant().toEpochMilli();
+    }
+
+    @Test
+    public void testLayouts() {
+        TimestampParser parser = new TimestampParser();
+        assertEquals(local("2024-01-01T10:00:00"), parser.parse("2024-01-01T10:00:00", 0, 19));
+        assertEquals(local("2024-01-01T10:00:00.120"), TimestampParser.parse("a", "2024-01-01 10:00:00,12"));
+        assertEquals(local("2024-02-29T23:59:59"), TimestampParser.parse("b", "2024/02/29 23:59:59"));
+        assertEquals(offset("2024-03-01T10:15:30.123Z"), TimestampParser.parse("c", "2024-03-01T10:15:30.123456Z"));
+        assertEquals(offset("2024-03-01T10:15:30+05:30"), TimestampParser.parse("d", "2024-03-01T10:15:30+0530"));
+        assertEquals(offset("2000-10-10T13:55:36-07:00"), TimestampParser.parse("e", "10/Oct/2000:13:55:36 -0700"));
+        assertEquals(1_704_103_200_000L, TimestampParser.parse("f", "1704103200"));
+        assertEquals(1_704_103_200_123L, TimestampParser.parse("g", "1704103200123"));
+        assertEquals(1_704_103_200_500L, TimestampParser.parse("h", "1704103200.5"));
+        assertEquals(3, LocalDateTime.ofInstant(java.time.Instant.ofEpochMilli(
+                TimestampParser.parse("i", "Mar  1 10:15:30")), ZoneId.systemDefault()).getMonthValue());
+    }
+
+    @Test
+    public void testRejectsInvalid() {
+        assertEquals(TimestampParser.UNPARSED, TimestampParser.parse("x", "2023-02-29T10:00:00"));
+        assertEquals(TimestampParser.UNPARSED, TimestampParser.parse("x", "2024-01-01T25:00:00"));
+        assertEquals(TimestampParser.UNPARSED, TimestampParser.parse("x", "2024-01-01T10:00"));
+        assertEquals(TimestampParser.UNPARSED, TimestampParser.parse("x", "2024-01-01T10:00:00 garbage"));
+        assertEquals(TimestampParser.UNPARSED, TimestampParser.parse("x", "not a time"));
+        assertEquals(TimestampParser.UNPARSED, TimestampParser.parse("x", ""));
+    }
+
+    @Test
+    public void testPrefixCacheAndRelearning() {
+        TimestampParser parser = new TimestampParser();
+        String first = "2024-01-01T10:00:01.250";
+        String second = "2024-01-01T10:00:02";
+        String nextMinute = "2024-01-01T10:01:00";
+        assertEquals(local(first), parser.parse(first, 0, first.length()));
+        assertEquals(local(second), parser.parse(second, 0, second.length()));
+        assertEquals(local(nextMinute), parser.parse(nextMinute, 0, nextMinute.length()));
+        // Same minute prefix but cut short must not read past the end
+        assertEquals(TimestampParser.UNPARSED, parser.parse("2024-01-01T10:01", 0, 16));
+        assertEquals(TimestampParser.Layout.ISO, parser.getLearnedLayout());
+
+        assertEquals(1_704_103_200_000L, parser.parse("1704103200", 0, 10));
+        assertEquals(TimestampParser.Layout.EPOCH, parser.getLearnedLayout());
+    }
+}
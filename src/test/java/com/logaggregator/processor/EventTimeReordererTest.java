@@ -0,0 +1,53 @@
+package com.logaggregator.processor;
+
+import com.logaggregator.core.LogEntry;
+import com.logaggregator.core.LogLevel;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EventTimeReordererTest {
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    private static LogEntry at(String source, long offsetMillis) {
+        String message = source + "@" + offsetMillis;
+        return new LogEntry(source, message, LogLevel.INFO, BASE.plusNanos(offsetMillis * 1_000_000), message);
+    }
+
+    private static long offset(LogEntry entry) {
+        return Long.parseLong(entry.getMessage().substring(entry.getMessage().indexOf('@') + 1));
+    }
+
+    @Test
+    public void testReleasesInTimestampOrderAcrossSources() {
+        EventTimeReorderer reorderer = new EventTimeReorderer(1_000, 60_000, 10_000);
+        List<LogEntry> released = new ArrayList<>();
+
+        // b lags behind a: nothing past b's watermark may be released yet
+        released.addAll(reorderer.add(List.of(at("a", 0), at("a", 500), at("a", 2_000), at("b", 100)), 0).released());
+        assertTrue(released.isEmpty());
+        released.addAll(reorderer.add(List.of(at("b", 1_200)), 0).released());
+        released.addAll(reorderer.add(List.of(at("b", 300), at("a", 3_000), at("b", 2_500)), 0).released());
+
+        List<Long> offsets = released.stream().map(EventTimeReordererTest::offset).toList();
+        assertEquals(List.of(0L, 100L, 300L, 500L, 1_200L), offsets);
+    }
+
+    @Test
+    public void testLateEntriesAndIdleFlush() {
+        EventTimeReorderer reorderer = new EventTimeReorderer(1_000, 5_000, 10_000);
+        reorderer.add(List.of(at("a", 0), at("a", 5_000)), 0);
+
+        EventTimeReorderer.Result result = reorderer.add(List.of(at("a", 1_000), at("a", 4_500)), 10);
+        assertEquals(List.of(at("a", 1_000).getMessage()), result.late().stream().map(LogEntry::getMessage).toList());
+
+        // Once the source goes quiet everything still held is flushed, in order
+        List<Long> flushed = reorderer.advance(6_000).released().stream()
+                .map(EventTimeReordererTest::offset).toList();
+        assertEquals(List.of(4_500L, 5_000L), flushed);
+    }
+}
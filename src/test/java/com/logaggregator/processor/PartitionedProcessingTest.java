@@ -0,0 +1,149 @@
+package com.logaggregator.processor;
+
+import com.logaggregator.core.LogBuffer;
+import com.logaggregator.core.LogEntry;
+import com.logaggregator.core.LogLevel;
+import com.logaggregator.core.PartitionedLogBuffer;
+import com.logaggregator.alert.AlertManager;
+import com.logaggregator.storage.LogStorage;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PartitionedProcessingTest {
+
+    private static LogStorage recordingStorage(List<LogEntry> stored) {
+        return new LogStorage() {
+            public void store(LogEntry entry) { stored.add(entry); }
+            public void storeBatch(List<LogEntry> entries) { stored.addAll(entries); }
+            public List<LogEntry> search(String query, int limit) { return List.of(); }
+            public long getTotalCount() { return stored.size(); }
+            public void close() { }
+        };
+    }
+
+    private static void assertInOrderPerSource(List<LogEntry> stored) {
+        Map<String, Integer> last = new HashMap<>();
+        synchronized (stored) {
+            for (LogEntry entry : stored) {
+                int seq = Integer.parseInt(entry.getMessage());
+                Integer previous = last.put(entry.getSource(), seq);
+                assertTrue(previous == null || previous < seq,
+                        entry.getSource() + " out of order: " + previous + " then " + seq);
+            }
+        }
+    }
+
+    private static void awaitStored(List<LogEntry> stored, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (stored.size() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    public void testEntriesOfOneSourceAreStoredInOrder() throws Exception {
+        List<LogEntry> stored = Collections.synchronizedList(new ArrayList<>());
+        LogStorage storage = recordingStorage(stored);
+
+        PartitionedLogBuffer buffer = new PartitionedLogBuffer(4, i -> new LogBuffer(100_000, 10, 50, 5));
+        LogProcessor processor = new LogProcessor(buffer, storage, null, null, 2);
+        processor.start();
+
+        String[] sources = {"api.log", "db.log", "worker.log", "noisy.log", "auth.log"};
+        int perSource = 2_000;
+        for (int i = 0; i < perSource; i++) {
+            for (String source : sources) {
+                // One source produces most of the traffic
+                int repeats = source.equals("noisy.log") ? 5 : 1;
+                for (int r = 0; r < repeats; r++) {
+                    String seq = String.valueOf(i * 5 + r);
+                    buffer.offer(new LogEntry(source, seq, LogLevel.INFO, LocalDateTime.now(), seq));
+                }
+            }
+        }
+
+        int expected = perSource * (sources.length + 4);
+        awaitStored(stored, expected);
+        processor.stop();
+        assertEquals(expected, stored.size());
+        assertInOrderPerSource(stored);
+    }
+
+    @Test
+    public void testIdleWorkerStealsFromABusyOwner() throws Exception {
+        List<LogEntry> stored = Collections.synchronizedList(new ArrayList<>());
+        // Two workers over four partitions: worker 0 owns 0 and 2, worker 1 owns 1 and 3
+        PartitionedLogBuffer buffer = new PartitionedLogBuffer(4, i -> new LogBuffer(100_000, 10, 10, 5));
+        String first = null;
+        String second = null;
+        for (int i = 0; first == null || second == null; i++) {
+            String source = "s" + i + ".log";
+            int partition = buffer.partitionFor(source);
+            if (partition == 0 && first == null) {
+                first = source;
+            } else if (partition == 2 && second == null) {
+                second = source;
+            }
+        }
+
+        LogProcessor processor = new LogProcessor(buffer, recordingStorage(stored), null, null, 2);
+        // Slow enrichment keeps worker 0 busy on one of its partitions while the other fills up
+        processor.addEnricher(entry -> LockSupport.parkNanos(200_000));
+        int perSource = 1_000;
+        for (int i = 0; i < perSource; i++) {
+            String seq = String.valueOf(i);
+            buffer.offer(new LogEntry(first, seq, LogLevel.INFO, LocalDateTime.now(), seq));
+            buffer.offer(new LogEntry(second, seq, LogLevel.INFO, LocalDateTime.now(), seq));
+        }
+        processor.start();
+
+        awaitStored(stored, 2 * perSource);
+        processor.stop();
+        assertEquals(2 * perSource, stored.size());
+        assertTrue((Long) processor.getStats().get("stolenBatches") > 0, "worker 1 has no traffic of its own");
+        assertInOrderPerSource(stored);
+    }
+
+    @Test
+    public void testSlowAlertingSeesEveryBatchThroughStop() throws Exception {
+        List<LogEntry> stored = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger alerted = new AtomicInteger();
+        AlertManager alertManager = new AlertManager() {
+            @Override
+            public void processBatch(List<LogEntry> batch) {
+                // Far slower than the store, so the alert queue fills up
+                LockSupport.parkNanos(2_000_000);
+                alerted.addAndGet(batch.size());
+            }
+        };
+
+        PartitionedLogBuffer buffer = new PartitionedLogBuffer(4, i -> new LogBuffer(100_000, 1, 10, 5));
+        LogProcessor processor = new LogProcessor(buffer, recordingStorage(stored), alertManager, null, 2);
+        processor.start();
+        for (int i = 0; i < 5_000; i++) {
+            String seq = String.valueOf(i);
+            buffer.offer(new LogEntry("source-" + (i % 8), seq, LogLevel.INFO, LocalDateTime.now(), seq));
+        }
+        long deadline = System.currentTimeMillis() + 20_000;
+        while (buffer.getBacklog() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        processor.stop();
+        alertManager.stop();
+
+        assertEquals(5_000, stored.size());
+        assertEquals(5_000, alerted.get(), "a full alert queue makes the processors wait instead of shedding");
+        Map<?, ?> alertStage = (Map<?, ?>) ((Map<?, ?>) processor.getStats().get("stages")).get("alert");
+        assertEquals(0L, alertStage.get("droppedBatches"));
+    }
+}
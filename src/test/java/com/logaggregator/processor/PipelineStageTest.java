@@ -0,0 +1,114 @@
+package com.logaggregator.processor;
+
+import com.logaggregator.core.LogEntry;
+import com.logaggregator.core.LogLevel;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PipelineStageTest {
+
+    private static List<LogEntry> batch(int size) {
+        LogEntry[] entries = new LogEntry[size];
+        for (int i = 0; i < size; i++) {
+            entries[i] = new LogEntry("app", "line " + i, LogLevel.INFO, 0L, "line " + i);
+        }
+        return List.of(entries);
+    }
+
+    @Test
+    public void testSaturatedStageBlocksSubmitAndShedsOffer() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        PipelineStage stage = new PipelineStage("slow", 1, 1, batch -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        stage.start();
+
+        stage.submit(batch(1));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        // The worker is busy and the one queue slot is taken
+        stage.submit(batch(1));
+        assertFalse(stage.offer(batch(1)));
+
+        CountDownLatch submitted = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            try {
+                stage.submit(batch(1));
+                submitted.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        producer.start();
+        assertFalse(submitted.await(200, TimeUnit.MILLISECONDS), "submit waits for room");
+
+        release.countDown();
+        assertTrue(submitted.await(5, TimeUnit.SECONDS));
+        producer.join(2_000);
+        stage.stop();
+        assertEquals(1L, stage.getStats().get("droppedBatches"));
+        assertEquals(3L, stage.getStats().get("batches"));
+    }
+
+    @Test
+    public void testStopHandlesWhatIsAlreadyQueued() throws Exception {
+        AtomicInteger handled = new AtomicInteger();
+        PipelineStage stage = new PipelineStage("drain", 2, 16, true, batch -> {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            handled.addAndGet(batch.size());
+        });
+        stage.start();
+        for (int i = 0; i < 10; i++) {
+            stage.submit(i, batch(3));
+        }
+        stage.stop();
+        assertEquals(30, handled.get());
+        assertEquals(0, stage.getQueueDepth());
+    }
+
+    @Test
+    public void testMetricsAndWorkerNames() throws Exception {
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        CountDownLatch bothBusy = new CountDownLatch(2);
+        PipelineStage stage = new PipelineStage("store", 2, 8, batch -> {
+            threads.add(Thread.currentThread().getName());
+            bothBusy.countDown();
+            try {
+                // Hold each worker until both have taken a batch, so both names show up
+                bothBusy.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        stage.start();
+        stage.submit(batch(2));
+        stage.submit(batch(5));
+        stage.submit(batch(1));
+        stage.stop();
+
+        assertEquals(Set.of("pipeline-store-0", "pipeline-store-1"), threads);
+        assertEquals(3L, stage.getStats().get("batches"));
+        assertEquals(8L, stage.getStats().get("entries"));
+        assertEquals(2, stage.getStats().get("workers"));
+        assertEquals(false, stage.getStats().get("keyed"));
+        assertTrue((Double) stage.getStats().get("maxLatencyMs") >= 0.0);
+        assertEquals(0L, stage.getStats().get("droppedBatches"));
+    }
+}
@@ -0,0 +1,72 @@
+package com.logaggregator.processor;
+
+import com.logaggregator.core.LogBuffer;
+import com.logaggregator.core.LogEntry;
+import com.logaggregator.core.LogLevel;
+import com.logaggregator.core.OverflowPolicy;
+import com.logaggregator.core.SpillQueue;
+import com.logaggregator.storage.InMemoryStorage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WorkerScalerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testGrowsUnderBacklogAndShrinksWhenIdle() {
+        WorkerScaler scaler = new WorkerScaler(2, 8, 10_000, 0.1, 250, 3);
+
+        int workers = 2;
+        workers = scaler.decide(0, 0, 1, workers);
+        assertEquals(2, workers);
+
+        // Growing backlog: scale up until max
+        workers = scaler.decide(1_000, 2_000, 5, workers);
+        assertEquals(3, workers);
+        workers = scaler.decide(2_000, 4_000, 5, workers);
+        workers = scaler.decide(3_000, 6_000, 5, workers);
+        workers = scaler.decide(4_000, 8_000, 5, workers);
+        assertEquals(8, workers);
+
+        // Idle: one worker less after each run of quiet intervals, never below min
+        for (int i = 0; i < 30; i++) {
+            workers = scaler.decide(5_000 + i * 1_000, 0, 0, workers);
+        }
+        assertEquals(2, workers);
+    }
+
+    @Test
+    public void testHoldsWhenBatchesAreSlow() {
+        WorkerScaler scaler = new WorkerScaler(1, 8, 1_000, 0.1, 250, 3);
+        scaler.decide(0, 500, 400, 4);
+        assertEquals(4, scaler.decide(1_000, 900, 400, 4));
+    }
+
+    @Test
+    public void testProcessorScalesOnSpilledBacklog() throws Exception {
+        SpillQueue spillQueue = new SpillQueue(tempDir.toString(), 1 << 20, 1 << 16);
+        LogBuffer buffer = new LogBuffer(100, 50, 50, 5, OverflowPolicy.SPILL, spillQueue);
+        for (int i = 0; i < 1000; i++) {
+            buffer.offer(new LogEntry("app", "m", LogLevel.INFO, 0L, "m"));
+        }
+        // Memory drained while 900 entries still wait on disk
+        buffer.pollBatch(10);
+        buffer.pollBatch(10);
+        assertEquals(0, buffer.size());
+        assertEquals(900, buffer.getBacklog());
+
+        LogProcessor processor = new LogProcessor(buffer, new InMemoryStorage(100), 2);
+        processor.rescale();
+        Map<?, ?> scaling = (Map<?, ?>) processor.getStats().get("scaling");
+        Map<?, ?> decision = (Map<?, ?>) ((List<?>) scaling.get("recentDecisions")).get(0);
+        assertEquals(900L, decision.get("depth"));
+    }
+}
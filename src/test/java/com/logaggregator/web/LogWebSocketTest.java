@@ -0,0 +1,59 @@
+package com.logaggregator.web;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.logaggregator.alert.AlertEvent;
+import com.logaggregator.alert.AlertRule;
+import com.logaggregator.alert.AlertSeverity;
+import com.logaggregator.core.LogEntry;
+import com.logaggregator.core.LogLevel;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LogWebSocketTest {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private static LogEntry entry(int i) {
+        return new LogEntry("api", "msg " + i, LogLevel.ERROR, LocalDateTime.now(), "msg " + i);
+    }
+
+    private static AlertEvent alert(int i) {
+        AlertRule rule = new AlertRule("r", "errors", "msg", "message", AlertSeverity.HIGH, "errors");
+        return new AlertEvent(rule, entry(i), LocalDateTime.now(), "alert " + i);
+    }
+
+    private static JsonNode json(Object message) throws Exception {
+        return mapper.readTree(mapper.writeValueAsString(message));
+    }
+
+    @Test
+    public void testSingleAlertKeepsTheAlertMessage() throws Exception {
+        JsonNode single = json(LogWebSocket.alertsMessage(List.of(alert(1))));
+        assertEquals("alert", single.get("type").asText());
+        assertEquals("alert 1", single.get("alert").get("message").asText());
+        assertEquals("errors", single.get("alert").get("rule").asText());
+
+        JsonNode batch = json(LogWebSocket.alertsMessage(List.of(alert(1), alert(2), alert(3))));
+        assertEquals("alerts", batch.get("type").asText());
+        assertEquals(3, batch.get("alerts").size());
+        assertEquals("alert 3", batch.get("alerts").get(2).get("message").asText());
+        assertEquals("api", batch.get("alerts").get(0).get("logEntry").get("source").asText());
+    }
+
+    @Test
+    public void testLogBatchIsOneMessage() throws Exception {
+        JsonNode single = json(LogWebSocket.logsMessage(List.of(entry(1))));
+        assertEquals("log", single.get("type").asText());
+        assertEquals("msg 1", single.get("log").get("message").asText());
+
+        JsonNode batch = json(LogWebSocket.logsMessage(List.of(entry(1), entry(2))));
+        assertEquals("logs", batch.get("type").asText());
+        assertEquals(2, batch.get("logs").size());
+        assertEquals("ERROR", batch.get("logs").get(1).get("level").asText());
+    }
+}